@@ -0,0 +1,222 @@
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Paulkia 2020.
+ * The game's classes live in the default package, which JMH benchmarks cannot. This public class exposes the hot
+ * paths being benchmarked as public static methods; fakeymon.bench.Hooks binds them once as method handles.
+ * Game objects are passed around as Object for the same reason.
+ */
+public final class BenchHooks extends Fakeyverse {
+
+    // The game the benchmarks play: headless, so no console output, input, sound or pauses are measured.
+    private static final GameContext GAME = GameContext.headless(new Rng());
+    // Random object for everything benchmarked.
+    private static final Rng RANDOM = GAME.random;
+
+    private BenchHooks() {
+    }
+
+    /**
+     * Loads the game's data before anything is measured. The benchmarks play a headless GameContext, so nothing is
+     * printed or played.
+     */
+    public static void quiet() {
+        GAME.headless();
+    }
+
+    /**
+     * @return The number of species in the Fakeydex.
+     */
+    public static int species() {
+        return GAME_MONS.size();
+    }
+
+    /**
+     * Generates a wild monster, exactly as Battle does.
+     *
+     * @param species - Index of the monster's profile in GAME_MONS.
+     * @param kills   - The user's kills, deciding how strong the monster is.
+     * @return A new Monster.
+     */
+    public static Object wildMon(int species, int kills) {
+        return new Monster(GAME_MONS.get(species), kills, RANDOM);
+    }
+
+    /**
+     * @param capacity - Number of monsters the pool can hold.
+     * @return A new, empty MonsterPool.
+     */
+    public static Object pool(int capacity) {
+        return new MonsterPool(capacity);
+    }
+
+    /**
+     * Fills pool with wild monsters as Battle would generate them, emptying it first if there is no room.
+     *
+     * @param pool  - A MonsterPool.
+     * @param count - Number of monsters to generate.
+     * @param kills - The user's kills, deciding how strong the monsters are.
+     * @return The slot of the first monster generated.
+     */
+    public static int spawnWild(Object pool, int count, int kills) {
+        MonsterPool monsters = (MonsterPool) pool;
+        if (monsters.size() + count > monsters.capacity())
+            monsters.clear();
+        return monsters.spawnWild(count, kills, RANDOM);
+    }
+
+    /**
+     * @param seed - The seed of the new Rng.
+     * @return A new Rng.
+     */
+    public static Object rng(long seed) {
+        return new Rng(seed);
+    }
+
+    /**
+     * @param rng   - An Rng.
+     * @param bound - The upper bound (exclusive).
+     * @return rng.nextInt(bound).
+     */
+    public static int nextInt(Object rng, int bound) {
+        return ((Rng) rng).nextInt(bound);
+    }
+
+    /**
+     * @param name - Name of an attack in AttackData.json.
+     * @return The Attack.
+     */
+    public static Object attack(String name) {
+        return GAME_ATKS.get(name);
+    }
+
+    /**
+     * @return A new Outcome to be reused by useAttack(...).
+     */
+    public static Object outcome() {
+        return new Outcome();
+    }
+
+    /**
+     * Resolves one use of atk, first restoring the defender's HP so that every call does the same work.
+     *
+     * @param atk      - The attack being used.
+     * @param attacker - The monster using the attack.
+     * @param defender - The monster getting attacked.
+     * @param outcome  - Reused outcome.
+     * @return The damage dealt.
+     */
+    public static int useAttack(Object atk, Object attacker, Object defender, Object outcome) {
+        Monster def = (Monster) defender;
+        def.tempStats[HP] = def.stats[HP];
+        Outcome out = (Outcome) outcome;
+        ((Attack) atk).use((Monster) attacker, def, RANDOM, out);
+        return out.amount;
+    }
+
+    /**
+     * @return The name of a randomly generated held item.
+     */
+    public static String generateItem() {
+        return Fakeyverse.generateItem(RANDOM);
+    }
+
+    /**
+     * Gives mon xp and lets Battle.distXp distribute it, possibly learning a new move, then puts mon's stats and
+     * attacks back to what they were so that the next call does the same work. Saving the stats copies two small
+     * arrays, which shows up in the gc profiler's numbers for this benchmark.
+     *
+     * @param mon   - The monster gaining xp.
+     * @param xp    - The xp gained.
+     * @param kills - The user's kills, at least 1.
+     * @return The number of attacks mon knew after distributing the xp.
+     * @throws Exception never, since the game is quiet.
+     */
+    public static int distXp(Object mon, int xp, int kills) throws Exception {
+        Monster m = (Monster) mon;
+        int[] stats = m.stats.clone(), tempStats = m.tempStats.clone();
+        int attacks = m.attacks.size();
+        m.xp = xp;
+        Battle.distXp(GAME, m, kills, RANDOM);
+        int learned = m.attacks.size();
+        System.arraycopy(stats, 0, m.stats, 0, stats.length);
+        System.arraycopy(tempStats, 0, m.tempStats, 0, tempStats.length);
+        m.attacks.subList(attacks, learned).clear();
+        return learned;
+    }
+
+    /**
+     * @see Fakeyverse#healMon(int, int, String)
+     */
+    public static int healMon(int tempHP, int maxHP, String hpRestoreValue) {
+        return Fakeyverse.healMon(tempHP, maxHP, hpRestoreValue);
+    }
+
+    /**
+     * @see Fakeyverse#statBoost(Monster, int, double)
+     */
+    public static int statBoost(Object mon, int statIndex, double percentBoost) {
+        return Fakeyverse.statBoost((Monster) mon, statIndex, percentBoost);
+    }
+
+    /**
+     * Builds a player with a full bag and a team of wild monsters.
+     *
+     * @param teamSize - Number of monsters on the team.
+     * @return A new Player.
+     */
+    public static Object player(int teamSize) {
+        Player user = new Player();
+        user.name = "bench";
+        for (int i = 0; i < teamSize; i++)
+            user.team.add(new Monster(GAME_MONS.get(i % (GAME_MONS.size() - 2)), i, RANDOM));
+        List<String> items = Arrays.asList(GAME_ITEMS.keySet().toArray(new String[0]));
+        for (int i = 0; i < user.bagSize; i++)
+            user.bag.add(items.get(i % items.size()));
+        return user;
+    }
+
+    /**
+     * @param user - A Player.
+     * @return The save file contents of user, as toJSON() makes them.
+     */
+    public static String save(Object user) {
+        return ((Player) user).toJSON().toString();
+    }
+
+    /**
+     * @return A buffer for writeSave(Object, Object) to reuse.
+     */
+    public static Object saveBuffer() {
+        return new ByteArrayOutputStream();
+    }
+
+    /**
+     * Writes the save file contents of user into buffer, as SaveWriter does for Game.save().
+     *
+     * @param user   - A Player.
+     * @param buffer - A buffer from saveBuffer(), emptied first.
+     * @return The number of bytes written.
+     * @throws IOException never, since buffer is in memory.
+     */
+    public static int writeSave(Object user, Object buffer) throws IOException {
+        ByteArrayOutputStream out = (ByteArrayOutputStream) buffer;
+        out.reset();
+        ((Player) user).writeJSON(new JsonWriter(out));
+        return out.size();
+    }
+
+    /**
+     * @param saveData - The contents of a save file.
+     * @return The Player loaded from saveData, as in Game.loadFile(File).
+     */
+    public static Object load(String saveData) {
+        return new Player((JSONObject) JSONValue.parse(saveData));
+    }
+}
@@ -0,0 +1,37 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Attack.use damage resolution: accuracy, crit and evade rolls and the damage formula, for a plain physical attack,
+ * a hi-crit attack and a status attack.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AttackBench {
+
+    @Param({"Soft Slap", "Jaw Breaker", "Stoic"})
+    public String attack;
+
+    private Object atk, attacker, defender, outcome;
+
+    @Setup
+    public void setup() throws Throwable {
+        Hooks.quiet();
+        atk = (Object) Hooks.ATTACK.invokeExact(attack);
+        attacker = (Object) Hooks.WILD_MON.invokeExact(0, 5);
+        defender = (Object) Hooks.WILD_MON.invokeExact(1, 5);
+        outcome = (Object) Hooks.OUTCOME.invokeExact();
+    }
+
+    @Benchmark
+    public int use() throws Throwable {
+        return (int) Hooks.USE_ATTACK.invokeExact(atk, attacker, defender, outcome);
+    }
+}
@@ -0,0 +1,33 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Fakeyverse.healMon, used by heal items, hold-heal items and status attacks, for flat and percent restore values.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HealBench {
+
+    @Param({"10", "50%"})
+    public String restore;
+
+    private int tempHP;
+
+    @Setup
+    public void setup() throws Throwable {
+        Hooks.quiet();
+    }
+
+    @Benchmark
+    public int healMon() throws Throwable {
+        tempHP = (tempHP + 7) & 63;
+        return (int) Hooks.HEAL_MON.invokeExact(tempHP, 80, restore);
+    }
+}
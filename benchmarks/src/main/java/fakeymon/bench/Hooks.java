@@ -0,0 +1,61 @@
+package fakeymon.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/*
+ * Method handles to the public static methods of BenchHooks, which sits in the default package with the game and
+ * therefore cannot be referenced from here by name. The handles are static final, so the JIT inlines calls through
+ * them just like direct calls.
+ */
+final class Hooks {
+    static final MethodHandle QUIET, SPECIES, WILD_MON, POOL, SPAWN_WILD, ATTACK, OUTCOME, USE_ATTACK, GENERATE_ITEM,
+            DIST_XP, HEAL_MON, STAT_BOOST, PLAYER, SAVE, SAVE_BUFFER, WRITE_SAVE, LOAD, RNG, NEXT_INT;
+
+    static {
+        try {
+            Class<?> hooks = Class.forName("BenchHooks");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            QUIET = lookup.findStatic(hooks, "quiet", MethodType.methodType(void.class));
+            SPECIES = lookup.findStatic(hooks, "species", MethodType.methodType(int.class));
+            WILD_MON = lookup.findStatic(hooks, "wildMon",
+                    MethodType.methodType(Object.class, int.class, int.class));
+            POOL = lookup.findStatic(hooks, "pool", MethodType.methodType(Object.class, int.class));
+            SPAWN_WILD = lookup.findStatic(hooks, "spawnWild",
+                    MethodType.methodType(int.class, Object.class, int.class, int.class));
+            ATTACK = lookup.findStatic(hooks, "attack", MethodType.methodType(Object.class, String.class));
+            OUTCOME = lookup.findStatic(hooks, "outcome", MethodType.methodType(Object.class));
+            USE_ATTACK = lookup.findStatic(hooks, "useAttack",
+                    MethodType.methodType(int.class, Object.class, Object.class, Object.class, Object.class));
+            GENERATE_ITEM = lookup.findStatic(hooks, "generateItem", MethodType.methodType(String.class));
+            DIST_XP = lookup.findStatic(hooks, "distXp",
+                    MethodType.methodType(int.class, Object.class, int.class, int.class));
+            HEAL_MON = lookup.findStatic(hooks, "healMon",
+                    MethodType.methodType(int.class, int.class, int.class, String.class));
+            STAT_BOOST = lookup.findStatic(hooks, "statBoost",
+                    MethodType.methodType(int.class, Object.class, int.class, double.class));
+            PLAYER = lookup.findStatic(hooks, "player", MethodType.methodType(Object.class, int.class));
+            SAVE = lookup.findStatic(hooks, "save", MethodType.methodType(String.class, Object.class));
+            SAVE_BUFFER = lookup.findStatic(hooks, "saveBuffer", MethodType.methodType(Object.class));
+            WRITE_SAVE = lookup.findStatic(hooks, "writeSave",
+                    MethodType.methodType(int.class, Object.class, Object.class));
+            LOAD = lookup.findStatic(hooks, "load", MethodType.methodType(Object.class, String.class));
+            RNG = lookup.findStatic(hooks, "rng", MethodType.methodType(Object.class, long.class));
+            NEXT_INT = lookup.findStatic(hooks, "nextInt",
+                    MethodType.methodType(int.class, Object.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Hooks() {
+    }
+
+    /**
+     * Silences the game. Called from every benchmark's setup.
+     */
+    static void quiet() throws Throwable {
+        QUIET.invokeExact();
+    }
+}
@@ -0,0 +1,27 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Fakeyverse.generateItem(): drawing a held item by drop rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ItemBench {
+
+    @Setup
+    public void setup() throws Throwable {
+        Hooks.quiet();
+    }
+
+    @Benchmark
+    public String generateItem() throws Throwable {
+        return (String) Hooks.GENERATE_ITEM.invokeExact();
+    }
+}
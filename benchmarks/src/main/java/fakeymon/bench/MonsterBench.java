@@ -0,0 +1,44 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Monster(Monster profile, int kills): generating a scaled wild monster, including its held item roll, compared with
+ * MonsterPool.spawnWild generating the same monsters into primitive columns (scored per batch of POOL_BATCH).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MonsterBench {
+    private static final int POOL_BATCH = 1024;
+
+    @Param({"0", "9"})
+    public int kills;
+
+    private int species, next;
+    private Object pool;
+
+    @Setup
+    public void setup() throws Throwable {
+        Hooks.quiet();
+        species = (int) Hooks.SPECIES.invokeExact() - 2; // The last two are Fakeyceus.
+        pool = (Object) Hooks.POOL.invokeExact(POOL_BATCH * 64);
+    }
+
+    @Benchmark
+    public Object wildMon() throws Throwable {
+        next = next + 1 == species ? 0 : next + 1;
+        return (Object) Hooks.WILD_MON.invokeExact(next, kills);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POOL_BATCH)
+    public int poolSpawnWild() throws Throwable {
+        return (int) Hooks.SPAWN_WILD.invokeExact(pool, POOL_BATCH, kills);
+    }
+}
@@ -0,0 +1,47 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Rolling nextInt(100) from 4 threads at once: each thread splitting off its own Rng, as parallel simulations do,
+ * against all threads sharing one java.util.Random, as they did with the old global Fakeyverse.RANDOM.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RngBench {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final Random random = new Random(42);
+        final AtomicLong seeds = new AtomicLong(42);
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        Object rng;
+
+        @Setup
+        public void setup(Shared shared) throws Throwable {
+            Hooks.quiet();
+            rng = (Object) Hooks.RNG.invokeExact(shared.seeds.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    public int splitRng(PerThread state) throws Throwable {
+        return (int) Hooks.NEXT_INT.invokeExact(state.rng, 100);
+    }
+
+    @Benchmark
+    public int sharedRandom(Shared shared) {
+        return shared.random.nextInt(100);
+    }
+}
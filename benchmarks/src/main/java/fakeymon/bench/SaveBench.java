@@ -0,0 +1,53 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Player.toJSON() and Player(JSONObject): writing and reading a save file's contents (without the disk).
+ * writeJSON writes the same contents as save, streamed into a reused buffer as the autosave does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SaveBench {
+
+    @Param({"1", "6", "30"})
+    public int teamSize;
+
+    private Object user;
+    private String saveData;
+    private Object buffer;
+
+    @Setup
+    public void setup() throws Throwable {
+        Hooks.quiet();
+        user = (Object) Hooks.PLAYER.invokeExact(teamSize);
+        saveData = (String) Hooks.SAVE.invokeExact(user);
+        buffer = (Object) Hooks.SAVE_BUFFER.invokeExact();
+    }
+
+    @Benchmark
+    public String save() throws Throwable {
+        return (String) Hooks.SAVE.invokeExact(user);
+    }
+
+    @Benchmark
+    public int writeJSON() throws Throwable {
+        return (int) Hooks.WRITE_SAVE.invokeExact(user, buffer);
+    }
+
+    @Benchmark
+    public Object load() throws Throwable {
+        return (Object) Hooks.LOAD.invokeExact(saveData);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Throwable {
+        return (Object) Hooks.LOAD.invokeExact((String) Hooks.SAVE.invokeExact(user));
+    }
+}
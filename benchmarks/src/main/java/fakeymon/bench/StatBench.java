@@ -0,0 +1,30 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Fakeyverse.statBoost, used by status attacks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatBench {
+
+    private Object mon;
+
+    @Setup
+    public void setup() throws Throwable {
+        Hooks.quiet();
+        mon = (Object) Hooks.WILD_MON.invokeExact(0, 5);
+    }
+
+    @Benchmark
+    public int statBoost() throws Throwable {
+        return (int) Hooks.STAT_BOOST.invokeExact(mon, 2, 15.0);
+    }
+}
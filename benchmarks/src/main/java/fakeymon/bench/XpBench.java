@@ -0,0 +1,33 @@
+package fakeymon.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Battle.distXp: distributing xp over a monster's stats and, NEW_MOVE% of the time, picking a new move to learn.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XpBench {
+
+    @Param({"1", "9"})
+    public int kills;
+
+    private Object mon;
+
+    @Setup
+    public void setup() throws Throwable {
+        Hooks.quiet();
+        mon = (Object) Hooks.WILD_MON.invokeExact(0, kills);
+    }
+
+    @Benchmark
+    public int distXp() throws Throwable {
+        return (int) Hooks.DIST_XP.invokeExact(mon, 40, kills);
+    }
+}
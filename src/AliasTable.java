@@ -0,0 +1,84 @@
+/*
+ * Paulkia 2020.
+ * Draws an index between 0 and n - 1 with probability proportional to an integer weight, in constant time and
+ * without allocating (Vose's alias method). Built once when the game data is loaded; see Fakeyverse.ITEM_DROPS and
+ * Fakeyverse.SPAWNS.
+ * Weights are integers so the table is exact: when all weights are equal, sample(Rng) is rng.nextInt(n).
+ */
+class AliasTable {
+
+    // Sum of all weights.
+    private final int total;
+    /*
+     * Column i is kept with probability prob[i] / total, otherwise alias[i] is drawn instead.
+     * prob[i] = total means column i is always kept.
+     */
+    private final int[] prob, alias;
+
+    /**
+     * Builds the table for the given weights.
+     *
+     * @param weights - The weight of each index. Must not be negative, and must add up to at least 1.
+     * @throws IllegalArgumentException if the weights are empty, negative, or all 0.
+     */
+    AliasTable(int[] weights) {
+        int n = weights.length;
+        long sum = 0;
+        for (int weight : weights) {
+            if (weight < 0)
+                throw new IllegalArgumentException("Negative weight " + weight);
+            sum += weight;
+        }
+        if (n == 0 || sum == 0 || sum > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Weights must add up to between 1 and " + Integer.MAX_VALUE);
+        total = (int) sum;
+        prob = new int[n];
+        alias = new int[n];
+
+        // Scaled so the average column is exactly total.
+        long[] scaled = new long[n];
+        int[] small = new int[n], large = new int[n];
+        int smalls = 0, larges = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (long) weights[i] * n;
+            if (scaled[i] < total)
+                small[smalls++] = i;
+            else
+                large[larges++] = i;
+        }
+        while (smalls > 0 && larges > 0) {
+            int less = small[--smalls], more = large[--larges];
+            prob[less] = (int) scaled[less];
+            alias[less] = more;
+            scaled[more] -= total - scaled[less];
+            if (scaled[more] < total)
+                small[smalls++] = more;
+            else
+                large[larges++] = more;
+        }
+        while (larges > 0)
+            prob[large[--larges]] = total;
+        // Only left over through rounding, which cannot happen with integer weights; kept for safety.
+        while (smalls > 0)
+            prob[small[--smalls]] = total;
+    }
+
+    /**
+     * @param rng - The random object making the draw.
+     * @return An index between 0 and size() - 1, drawn with probability weight / total.
+     */
+    int sample(Rng rng) {
+        int i = rng.nextInt(prob.length);
+        int keep = prob[i];
+        if (keep == total || rng.nextInt(total) < keep)
+            return i;
+        return alias[i];
+    }
+
+    /**
+     * @return The number of indices this table draws from.
+     */
+    int size() {
+        return prob.length;
+    }
+}
@@ -1,10 +1,9 @@
 import org.json.simple.JSONObject;
 
-import java.lang.reflect.Array;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Scanner;
 
 /*
  * Paulkia 2020.
@@ -31,6 +30,16 @@ public class Attack extends Fakeyverse implements Saveable, Comparable<Attack> {
      */
     private Integer[] stats, sfxVal;
 
+    // Bitflags of compiled attacks.
+    private static final int PHYSICAL = 1, STATUS = 1 << 1, RESTING = 1 << 2, SURE_HIT = 1 << 3;
+    /*
+     * The fields above compiled by compile() into the form use(...) runs, with no string comparisons or unboxing.
+     * Program = bitflags above. Accuracy, strength and critChance = acc, power and the resolved crit chance.
+     * StatDelta = the percent change of each stat; statMask has bit i set iff stats[i] is not null.
+     */
+    private int program, accuracy, strength, critChance, statMask;
+    private int[] statDelta;
+
     /**
      * Constructor that takes in a JSONObject in Java.Object form.
      *
@@ -58,66 +67,174 @@ public class Attack extends Fakeyverse implements Saveable, Comparable<Attack> {
 
         stats = getIntArrFromJSON("stats", attack);
         sfxVal = getIntArrFromJSON("sfx-val", attack);
+
+        compile();
+    }
+
+    /**
+     * Same as Attack(JSONObject), but reads the attack straight from DATA_DIR/AttackData.json.
+     *
+     * @param in - Reader at the start of the object of this attack.
+     * @throws IOException if the object is malformed or has no name.
+     */
+    Attack(JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    name = in.nextString();
+                    break;
+                case "desc":
+                    desc = in.nextString();
+                    break;
+                case "type":
+                    type = in.nextStrings();
+                    break;
+                case "sfx":
+                    sfx = in.nextStrings();
+                    break;
+                case "ID":
+                    ID = in.nextInteger();
+                    break;
+                case "power":
+                    power = in.nextInteger();
+                    break;
+                case "acc":
+                    acc = in.nextInteger();
+                    break;
+                case "stats":
+                    stats = in.nextIntegers();
+                    break;
+                case "sfx-val":
+                    sfxVal = in.nextIntegers();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (name == null)
+            throw in.error("attack has no name");
+        compile();
+    }
+
+    /**
+     * Compiles the type, sfx, acc, power and stats of this attack into program, accuracy, strength, critChance,
+     * statDelta and statMask. Called once when the attack is loaded.
+     */
+    private void compile() {
+        program = 0;
+        if (indexOf(type, "physical") > -1) program |= PHYSICAL;
+        if (indexOf(type, "status") > -1) program |= STATUS;
+        if (indexOf(sfx, "resting") > -1) program |= RESTING;
+        if (acc == null) program |= SURE_HIT;
+        accuracy = acc == null ? 100 : acc;
+        strength = power == null ? 0 : power;
+        int critIndex = indexOf(sfx, "hi-crit");
+        critChance = critIndex != -1 ? sfxVal[critIndex] : CRIT_CHANCE;
+        statDelta = new int[stats == null ? 0 : stats.length];
+        statMask = 0;
+        for (int i = 0; i < statDelta.length; i++)
+            if (stats[i] != null) {
+                statDelta[i] = stats[i];
+                statMask |= 1 << i;
+            }
     }
 
     /**
      * Called when the Monster uses this attack. Takes in the attacker and defender to manage the effects of the attack.
      * If type contains 'status' and the attack lands (or accuracy is null), the attacker's stats are modified.
      * If type contains 'physical' and the attack lands, the defender takes at least 1 damage.
+     * Nothing is printed; what happened is written to outcome so that it can be announced or recorded afterwards.
      *
      * @param attacker - The monster using this attack.
      * @param defender - The monster getting attacked.
-     * @throws Exception if sfx(String), p(String), enter() throw an exception.
+     * @param rng      - The random object deciding accuracy, crits and evasion.
+     * @param outcome  - Cleared and filled in with the result of this attack.
      */
-    public void use(Monster attacker, Monster defender) throws Exception {
-        List<String> atkText = new LinkedList<>();
-        atkText.add(attacker.name + " used " + name + "! > ");
-        if (acc == null || RANDOM.nextInt(100) < acc) { // if hits
-            if (indexOf(type, "physical") > -1) {
+    void use(Monster attacker, Monster defender, Rng rng, Outcome outcome) {
+        outcome.reset();
+        int program = this.program;
+        if ((program & SURE_HIT) != 0 || rng.chance(accuracy)) { // if hits
+            outcome.flags |= Outcome.HIT;
+            if ((program & PHYSICAL) != 0) {
                 double multiplier = DEFAULT_MULTIPLIER;
-                int critChance = indexOf(sfx, "hi-crit");
-                critChance = critChance != -1 ? sfxVal[critChance] : CRIT_CHANCE;
-                if (RANDOM.nextInt(100) < critChance) {
-                    atkText.add("A critical hit! > ");
+                if (rng.chance(critChance)) {
+                    outcome.flags |= Outcome.CRIT;
                     multiplier *= CRIT_MULTIPLIER; // Crit
                 }
-                if (RANDOM.nextInt(100) < EVADE_CHANCE) {
-                    atkText.add(defender.name + " partially evaded the attack! > ");
+                if (rng.chance(EVADE_CHANCE)) {
+                    outcome.flags |= Outcome.EVADED;
                     multiplier /= EVADE_MULTIPLIER;
                 }
-                int damage = (int) Math.round(multiplier * power *
-                        (attacker.tempStats[ATK]) / (defender.tempStats[DEF])) + 1;
-                defender.tempStats[HP] -= Math.min(damage, defender.tempStats[HP]);
-                atkText.add(defender.name + " took " + damage + " damage! > ");
+                int[] defStats = defender.tempStats;
+                int damage = (int) Math.round(multiplier * strength *
+                        (attacker.tempStats[ATK]) / (defStats[DEF])) + 1;
+                defStats[HP] -= Math.min(damage, defStats[HP]);
+                outcome.flags |= Outcome.DAMAGED;
+                outcome.amount = damage;
             }
-            if (indexOf(type, "status") > -1)
-                for (int i = 0; i < NUM_STATS; i++)
-                    if (stats[i] != null) {
-                        int statValue = stats[i];
-                        int adjIndex = statValue / ADJ_DIVISOR;
-                        int statChange = i == HP ?
-                                healMon(attacker.tempStats[HP], attacker.stats[HP], statValue + "%") :
+            if ((program & STATUS) != 0) {
+                int[] tempStats = attacker.tempStats;
+                for (int i = 0, mask = statMask; mask != 0; i++, mask >>>= 1)
+                    if ((mask & 1) != 0) {
+                        int statValue = statDelta[i];
+                        tempStats[i] += i == HP ?
+                                healMon(tempStats[HP], attacker.stats[HP], statValue, true) :
                                 statBoost(attacker, i, statValue);
-                        attacker.tempStats[i] += statChange;
-                        atkText.add(attacker.name + "'s " + STAT_TYPE[i] + " rose" + STAT_CHANGE_ADJ[adjIndex] + "! > ");
                     }
+                outcome.flags |= Outcome.BOOSTED;
+            }
 
-            if (indexOf(sfx, "resting") > -1)
+            if ((program & RESTING) != 0) {
                 attacker.resting = true;
+                outcome.flags |= Outcome.RESTING;
+            }
+        } else
+            outcome.flags |= Outcome.MISSED;
+    }
+
+    /**
+     * Prints what happened when attacker used this attack on defender, one message at a time, playing the matching
+     * sound effect for each.
+     *
+     * @param ctx      - The game it is printed to.
+     * @param attacker - The monster that used this attack.
+     * @param defender - The monster that was attacked.
+     * @param outcome  - The outcome written by use(Monster, Monster, Rng, Outcome).
+     * @throws Exception if sfx(String), p(String), enter() throw an exception.
+     */
+    void announce(GameContext ctx, Monster attacker, Monster defender, Outcome outcome) throws Exception {
+        List<String> atkText = new LinkedList<>();
+        atkText.add(attacker.name + " used " + name + "! > ");
+        if (outcome.has(Outcome.HIT)) {
+            if (outcome.has(Outcome.CRIT))
+                atkText.add("A critical hit! > ");
+            if (outcome.has(Outcome.EVADED))
+                atkText.add(defender.name + " partially evaded the attack! > ");
+            if (outcome.has(Outcome.DAMAGED))
+                atkText.add(defender.name + " took " + outcome.amount + " damage! > ");
+            if (outcome.has(Outcome.BOOSTED))
+                for (int i = 0; i < statDelta.length; i++)
+                    if ((statMask & 1 << i) != 0) {
+                        int adjIndex = statDelta[i] / ADJ_DIVISOR;
+                        atkText.add(attacker.name + "'s " + STAT_TYPE[i] + " rose" + STAT_CHANGE_ADJ[adjIndex] +
+                                "! > ");
+                    }
         } else
-            atkText.add(RANDOM.nextInt(100) < 50 ?
+            atkText.add(ctx.random.nextInt(100) < 50 ?
                     attacker.name + "'s attack missed! > " :
                     defender.name + " avoided the attack! > ");
         for (String msg : atkText)
             if (msg.length() > 0) {
                 if (msg.contains("damage"))
-                    sfx(DAMAGE_SFX);
+                    ctx.sfx(DAMAGE_SFX);
                 else if (msg.contains("HP"))
-                    sfx(HEAL_SFX);
+                    ctx.sfx(HEAL_SFX);
                 else if (msg.contains("rose"))
-                    sfx(STAT_BOOST_SFX);
-                p(msg);
-                enter();
+                    ctx.sfx(STAT_BOOST_SFX);
+                ctx.p(msg);
+                ctx.enter();
             }
     }
 
@@ -147,7 +264,7 @@ public class Attack extends Fakeyverse implements Saveable, Comparable<Attack> {
      * @return this Attack in display format for the user to see.
      */
     public String print() {
-        if (indexOf(type, "physical") > -1)
+        if ((program & PHYSICAL) != 0)
             return name + " (" + power + " PWR/" + (acc != null ? acc : "X") + " ACC) : " + desc;
         return name + " : " + desc;
     }
@@ -0,0 +1,391 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/*
+ * Paulkia 2020.
+ * A packed audio file (.pkf): several tracks in one file, written by AudioPacker. The file is memory-mapped, and
+ * a track is decoded a block at a time as it is played, so opening a pack reads only its index.
+ *
+ * Layout (little-endian):
+ *      "FKPK", int version, int number of tracks, then for each track:
+ *          short name length, name (UTF-8), byte codec, byte channels, int sample rate, int frames per block,
+ *          long frames, long offset of the first block, long length of the blocks in bytes.
+ *      Then the blocks. A PCM16 block is frames of 16 bit samples. An IMA_ADPCM block starts with, for each channel,
+ *      a short (the first sample) and a byte (the step index) and a padding byte, followed by 4 bits per sample
+ *      for every frame of the block, channels interleaved, low nibble first.
+ *
+ * Other .pkf files (such as the waveform caches audio editors leave next to a track) are recognised by their
+ * missing magic and ignored.
+ */
+class AudioPack {
+
+    static final byte[] MAGIC = "FKPK".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final byte PCM16 = 0, IMA_ADPCM = 1;
+
+    // IMA ADPCM step index changes, by nibble.
+    private static final int[] INDEX_TABLE = {-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8};
+    // IMA ADPCM step sizes.
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45, 50, 55, 60, 66, 73, 80, 88,
+            97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307, 337, 371, 408, 449, 494, 544, 598, 658,
+            724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327, 3660,
+            4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818,
+            18500, 20350, 22385, 24623, 27086, 29794, 32767};
+
+    /*
+     * One track's entry in the index.
+     */
+    static final class Entry {
+        final String name;
+        final byte codec;
+        final int channels, sampleRate, blockFrames;
+        final long frames, offset, length;
+
+        Entry(String name, byte codec, int channels, int sampleRate, int blockFrames, long frames, long offset,
+              long length) {
+            this.name = name;
+            this.codec = codec;
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.blockFrames = blockFrames;
+            this.frames = frames;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * @return Bytes of one full block.
+         */
+        int blockSize() {
+            return AudioPack.blockSize(codec, channels, blockFrames);
+        }
+    }
+
+    final File file;
+    private final MappedByteBuffer data;
+    // Track name -> entry, in file order.
+    private final Map<String, Entry> index = new LinkedHashMap<>();
+
+    /**
+     * Maps a pack and reads its index.
+     *
+     * @param file - A .pkf file written by AudioPacker.
+     * @throws IOException if the file cannot be read or is not a pack.
+     */
+    AudioPack(File file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer header = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[MAGIC.length];
+        if (header.remaining() < 12)
+            throw new IOException(file + " is not an audio pack");
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException(file + " is not an audio pack");
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new IOException(file + " has unsupported audio pack version " + version);
+        int tracks = header.getInt();
+        try {
+            for (int i = 0; i < tracks; i++) {
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+                Entry entry = new Entry(new String(name, StandardCharsets.UTF_8), header.get(), header.get(),
+                        header.getInt(), header.getInt(), header.getLong(), header.getLong(), header.getLong());
+                if (entry.offset < 0 || entry.offset + entry.length > data.capacity())
+                    throw new IOException(file + " is truncated");
+                index.put(entry.name, entry);
+            }
+        } catch (BufferUnderflowException e) { // The index ends before its last entry.
+            throw new IOException(file + " is truncated", e);
+        }
+    }
+
+    /**
+     * Opens every pack in dir. Other .pkf files are skipped; broken packs are reported and skipped.
+     *
+     * @param dir - A directory.
+     * @return The packs, in file name order.
+     */
+    static List<AudioPack> openAll(File dir) {
+        List<AudioPack> result = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".pkf"));
+        if (files == null)
+            return result;
+        Arrays.sort(files);
+        for (File file : files) {
+            try {
+                if (isPack(file))
+                    result.add(new AudioPack(file));
+            } catch (IOException e) {
+                System.err.println("Skipping " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param file - A .pkf file.
+     * @return Whether file starts with MAGIC.
+     * @throws IOException if file cannot be read.
+     */
+    private static boolean isPack(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * @param name - A track name.
+     * @return Whether this pack has the track.
+     */
+    boolean has(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * @return The names of the tracks, in file order.
+     */
+    Set<String> names() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * Opens a track. Nothing is decoded until it is read.
+     *
+     * @param name - The track.
+     * @return The track as 16 bit signed little-endian PCM, at its own sample rate and channels.
+     * @throws IOException if there is no such track.
+     */
+    AudioInputStream stream(String name) throws IOException {
+        Entry entry = index.get(name);
+        if (entry == null)
+            throw new IOException(file + " has no track " + name);
+        AudioFormat format = new AudioFormat(entry.sampleRate, 16, entry.channels, true, false);
+        return new AudioInputStream(new TrackStream(entry), format, entry.frames);
+    }
+
+    /**
+     * @param codec       - PCM16 or IMA_ADPCM.
+     * @param channels    - Channels.
+     * @param blockFrames - Frames in the block.
+     * @return Bytes of a block.
+     */
+    static int blockSize(byte codec, int channels, int blockFrames) {
+        if (codec == PCM16)
+            return blockFrames * channels * 2;
+        return channels * 4 + (blockFrames * channels + 1) / 2;
+    }
+
+    /**
+     * Encodes one block of IMA ADPCM.
+     *
+     * @param samples   - The block's samples, channels interleaved.
+     * @param frames    - Frames in the block.
+     * @param channels  - Channels.
+     * @param stepIndex - The step index of each channel, carried over from the track's previous block (all 0 for
+     *                  the first) so that a block does not start with large errors. Updated.
+     * @param out       - Receives blockSize(IMA_ADPCM, channels, frames) bytes.
+     */
+    static void encode(short[] samples, int frames, int channels, int[] stepIndex, ByteBuffer out) {
+        int[] predictor = new int[channels];
+        for (int c = 0; c < channels; c++) {
+            predictor[c] = samples[c];
+            out.putShort(samples[c]).put((byte) stepIndex[c]).put((byte) 0);
+        }
+        int pending = -1;
+        for (int i = 0; i < frames * channels; i++) {
+            int c = i % channels;
+            int step = STEP_TABLE[stepIndex[c]];
+            int diff = samples[i] - predictor[c];
+            int nibble = 0;
+            if (diff < 0) {
+                nibble = 8;
+                diff = -diff;
+            }
+            int delta = step >> 3;
+            if (diff >= step) {
+                nibble |= 4;
+                diff -= step;
+                delta += step;
+            }
+            if (diff >= step >> 1) {
+                nibble |= 2;
+                diff -= step >> 1;
+                delta += step >> 1;
+            }
+            if (diff >= step >> 2) {
+                nibble |= 1;
+                delta += step >> 2;
+            }
+            predictor[c] = clamp(predictor[c] + ((nibble & 8) != 0 ? -delta : delta));
+            stepIndex[c] = Math.max(0, Math.min(88, stepIndex[c] + INDEX_TABLE[nibble]));
+            if (pending < 0)
+                pending = nibble;
+            else {
+                out.put((byte) (pending | nibble << 4));
+                pending = -1;
+            }
+        }
+        if (pending >= 0)
+            out.put((byte) pending);
+    }
+
+    /**
+     * Decodes one block of IMA ADPCM.
+     *
+     * @param in       - Positioned at the block.
+     * @param frames   - Frames in the block.
+     * @param channels - Channels.
+     * @param samples  - Receives the block's samples, channels interleaved.
+     */
+    static void decode(ByteBuffer in, int frames, int channels, short[] samples) {
+        int[] predictor = new int[channels], stepIndex = new int[channels];
+        for (int c = 0; c < channels; c++) {
+            predictor[c] = in.getShort();
+            stepIndex[c] = Math.max(0, Math.min(88, in.get()));
+            in.get();
+        }
+        int packed = 0;
+        for (int i = 0; i < frames * channels; i++) {
+            int c = i % channels;
+            int nibble;
+            if ((i & 1) == 0) {
+                packed = in.get();
+                nibble = packed & 0xF;
+            } else
+                nibble = (packed >> 4) & 0xF;
+            int step = STEP_TABLE[stepIndex[c]];
+            int delta = step >> 3;
+            if ((nibble & 4) != 0) delta += step;
+            if ((nibble & 2) != 0) delta += step >> 1;
+            if ((nibble & 1) != 0) delta += step >> 2;
+            predictor[c] = clamp(predictor[c] + ((nibble & 8) != 0 ? -delta : delta));
+            stepIndex[c] = Math.max(0, Math.min(88, stepIndex[c] + INDEX_TABLE[nibble]));
+            samples[i] = (short) predictor[c];
+        }
+    }
+
+    private static int clamp(int sample) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+    }
+
+    /*
+     * Reads a track from the mapped file, decoding one block at a time.
+     */
+    private final class TrackStream extends InputStream {
+        private final Entry entry;
+        private final ByteBuffer blocks;
+        private final short[] samples;
+        // Frames of the track before the current block, and frames of the current block already read.
+        private long blockStart;
+        private int blockFrames, read;
+        // One frame, for callers reading fewer bytes than a frame (such as read()), and how much of it is left.
+        private final byte[] frame;
+        private int frameStart, frameEnd;
+
+        TrackStream(Entry entry) {
+            this.entry = entry;
+            ByteBuffer slice = data.duplicate();
+            slice.position((int) entry.offset).limit((int) (entry.offset + entry.length));
+            blocks = slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+            samples = new short[entry.blockFrames * entry.channels];
+            frame = new byte[entry.channels * 2];
+        }
+
+        @Override
+        public int read() {
+            if (frameStart == frameEnd) {
+                frameStart = frameEnd = 0;
+                frameEnd = Math.max(0, read(frame, 0, frame.length));
+                if (frameEnd == 0)
+                    return -1;
+            }
+            return frame[frameStart++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int frameSize = entry.channels * 2, n = 0;
+            while (frameStart < frameEnd && n < len) // The rest of a frame read() started.
+                b[off + n++] = frame[frameStart++];
+            if (n == 0 && len > 0 && len < frameSize) { // Less than a frame: read one, and give out its start.
+                int c;
+                while (n < len && (c = read()) != -1)
+                    b[off + n++] = (byte) c;
+                return n == 0 ? -1 : n;
+            }
+            while (n + frameSize <= len) {
+                if (read == blockFrames && !nextBlock())
+                    break;
+                int frames = Math.min(blockFrames - read, (len - n) / frameSize);
+                for (int i = read * entry.channels; i < (read + frames) * entry.channels; i++) {
+                    b[off + n++] = (byte) samples[i];
+                    b[off + n++] = (byte) (samples[i] >> 8);
+                }
+                read += frames;
+            }
+            return n == 0 && len > 0 ? -1 : n;
+        }
+
+        /**
+         * Skips whole blocks without decoding them.
+         */
+        @Override
+        public long skip(long bytes) {
+            int frameSize = entry.channels * 2;
+            int rest = (int) Math.min(Math.max(bytes, 0), frameEnd - frameStart); // Of a frame read() started.
+            frameStart += rest;
+            long frames = (bytes - rest) / frameSize, skipped = 0;
+            while (frames - skipped >= entry.blockFrames && read == blockFrames
+                    && blockStart + blockFrames + entry.blockFrames <= entry.frames) {
+                blockStart += blockFrames;
+                blocks.position(blocks.position() + entry.blockSize());
+                blockFrames = entry.blockFrames;
+                read = blockFrames;
+                skipped += blockFrames;
+            }
+            while (skipped < frames && (read < blockFrames || nextBlock())) {
+                int step = (int) Math.min(blockFrames - read, frames - skipped);
+                read += step;
+                skipped += step;
+            }
+            return rest + skipped * frameSize;
+        }
+
+        /**
+         * Decodes the next block into samples.
+         *
+         * @return Whether there was a next block.
+         */
+        private boolean nextBlock() {
+            blockStart += blockFrames;
+            if (blockStart >= entry.frames)
+                return false;
+            blockFrames = (int) Math.min(entry.blockFrames, entry.frames - blockStart);
+            read = 0;
+            if (entry.codec == PCM16)
+                blocks.asShortBuffer().get(samples, 0, blockFrames * entry.channels);
+            else
+                decode(blocks.duplicate().order(ByteOrder.LITTLE_ENDIAN), blockFrames, entry.channels, samples);
+            blocks.position(blocks.position() + blockSize(entry.codec, entry.channels, blockFrames));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Paulkia 2020.
+ * Writes audio packs (see AudioPack). Each track keeps its sample rate and (up to 2) channels and is compressed 4:1
+ * with IMA ADPCM, or stored as 16 bit PCM with --pcm. Run from the repository root, e.g.:
+ *      java AudioPacker data/music/music.pkf data/music/center.wav data/music/healyhoo.wav
+ * Track names are the file names without extension; music() and sfx() then find them in the pack before looking
+ * for a .wav file.
+ */
+class AudioPacker {
+
+    // Frames per block: ~40 ms at 48 kHz, the granularity of seeking and of lazy decoding.
+    static final int BLOCK_FRAMES = 2048;
+
+    /**
+     * @param args - [--pcm] output.pkf input files...
+     * @throws Exception if a file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        int arg = 0;
+        byte codec = AudioPack.IMA_ADPCM;
+        if (arg < args.length && args[arg].equals("--pcm")) {
+            codec = AudioPack.PCM16;
+            arg++;
+        }
+        if (args.length - arg < 2) {
+            System.err.println("Usage: java AudioPacker [--pcm] output.pkf input.wav...");
+            System.exit(1);
+        }
+        File out = new File(args[arg++]);
+        List<File> inputs = new ArrayList<>();
+        while (arg < args.length)
+            inputs.add(new File(args[arg++]));
+        pack(out, inputs, codec);
+        AudioPack pack = new AudioPack(out);
+        long size = 0;
+        for (File input : inputs)
+            size += input.length();
+        System.out.println("Packed " + pack.names() + " into " + out + ": " + size + " -> " + out.length() + " bytes");
+    }
+
+    /**
+     * Writes the given audio files into one pack.
+     *
+     * @param out    - The pack to write. Overwritten.
+     * @param inputs - Audio files Java Sound can read.
+     * @param codec  - AudioPack.PCM16 or AudioPack.IMA_ADPCM.
+     * @throws Exception if a file cannot be read or written.
+     */
+    static void pack(File out, List<File> inputs, byte codec) throws Exception {
+        List<short[]> tracks = new ArrayList<>();
+        List<AudioFormat> formats = new ArrayList<>();
+        int indexSize = 12;
+        for (File input : inputs) {
+            try (AudioInputStream in = Pcm.toPcm16(AudioSystem.getAudioInputStream(input))) {
+                byte[] bytes = in.readAllBytes();
+                short[] samples = new short[bytes.length / 2];
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+                tracks.add(samples);
+                formats.add(in.getFormat());
+            }
+            indexSize += 2 + name(input).getBytes(StandardCharsets.UTF_8).length + 2 + 4 + 4 + 8 + 8 + 8;
+        }
+
+        List<ByteBuffer> blocks = new ArrayList<>();
+        ByteBuffer index = ByteBuffer.allocate(indexSize).order(ByteOrder.LITTLE_ENDIAN);
+        index.put(AudioPack.MAGIC).putInt(AudioPack.VERSION).putInt(inputs.size());
+        long offset = indexSize;
+        for (int t = 0; t < inputs.size(); t++) {
+            short[] samples = tracks.get(t);
+            int channels = formats.get(t).getChannels();
+            long frames = samples.length / channels;
+            ByteBuffer data = ByteBuffer.allocate(size(codec, channels, frames)).order(ByteOrder.LITTLE_ENDIAN);
+            short[] block = new short[BLOCK_FRAMES * channels];
+            int[] stepIndex = new int[channels];
+            for (long start = 0; start < frames; start += BLOCK_FRAMES) {
+                int count = (int) Math.min(BLOCK_FRAMES, frames - start);
+                System.arraycopy(samples, (int) start * channels, block, 0, count * channels);
+                if (codec == AudioPack.PCM16)
+                    for (int i = 0; i < count * channels; i++)
+                        data.putShort(block[i]);
+                else
+                    AudioPack.encode(block, count, channels, stepIndex, data);
+            }
+            data.flip();
+            blocks.add(data);
+            byte[] name = name(inputs.get(t)).getBytes(StandardCharsets.UTF_8);
+            index.putShort((short) name.length).put(name).put(codec).put((byte) channels)
+                    .putInt((int) formats.get(t).getSampleRate()).putInt(BLOCK_FRAMES)
+                    .putLong(frames).putLong(offset).putLong(data.remaining());
+            offset += data.remaining();
+        }
+        index.flip();
+
+        try (FileChannel channel = FileChannel.open(out.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (index.hasRemaining())
+                channel.write(index);
+            for (ByteBuffer data : blocks)
+                while (data.hasRemaining())
+                    channel.write(data);
+        }
+    }
+
+    /**
+     * @param codec    - The codec.
+     * @param channels - Channels.
+     * @param frames   - Frames of the track.
+     * @return Bytes of all the track's blocks.
+     */
+    private static int size(byte codec, int channels, long frames) {
+        long full = frames / BLOCK_FRAMES, last = frames % BLOCK_FRAMES;
+        long size = full * AudioPack.blockSize(codec, channels, BLOCK_FRAMES);
+        if (last > 0)
+            size += AudioPack.blockSize(codec, channels, (int) last);
+        return (int) size;
+    }
+
+    /**
+     * @param file - An audio file.
+     * @return The file name without extension.
+     */
+    private static String name(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+}
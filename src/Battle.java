@@ -4,25 +4,43 @@ import java.util.*;
  * Paulkia 2020.
  * Battle object handles all functions and properties of a battle between two Monster instances.
  */
-public class Battle extends Game {
+public final class Battle extends Game {
     // The user's data, stored in a Player object
     private Player user;
     // The user's current mon in battle; the enemy in battle
     private Monster mon, enemy;
     // Whether this is the final battle; whether the user has ran away
     private boolean fakeyceus, runAway;
+    // Applies the rules of the battle and narrates them to the user.
+    private final BattleEngine engine;
+    // The user's Rng, deciding every roll in this battle.
+    private final Rng rng;
+    // Chooses the enemy's attacks, thinking harder the stronger the enemy's tier (see MctsPolicy).
+    private MovePolicy enemyPolicy;
+    // Answers hints for the current mon and enemy, keeping what it solved for the next hint. Null until a hint.
+    private BattleSolver solver;
+    // Turns the enemy got to act: attacks exchanged, switches and failed escapes. See Metrics.BATTLE_TURNS.
+    private int turns;
 
     /**
-     * The constructor, taking in the user's data and whether this battle is the final battle.
+     * The constructor, taking in the game and whether this battle is the final battle.
      *
-     * @param user      - The player's data.
+     * @param ctx       - The game, whose user fights this battle.
      * @param fakeyceus - Whether this fight is the final battle against the boss, Fakeyceus.
      * @throws Exception if start() throws an exception.
      */
-    public Battle(Player user, boolean fakeyceus) throws Exception {
-        this.user = user;
+    public Battle(GameContext ctx, boolean fakeyceus) throws Exception {
+        super(ctx);
+        this.user = ctx.user;
         this.fakeyceus = fakeyceus;
-        start();
+        rng = user.rng;
+        engine = new BattleEngine(rng, user, new BattleNarrator(ctx));
+        Metrics.BATTLES.inc();
+        try {
+            start();
+        } finally {
+            Metrics.BATTLE_TURNS.observe(turns);
+        }
     }
 
     /**
@@ -34,21 +52,23 @@ public class Battle extends Game {
     private void start() throws Exception {
         music(fakeyceus ? CEUS_MUSIC : BATTLE_MUSIC);
         enemy = fakeyceus ?
-                new Monster(GAME_MONS.get(GAME_MONS.size() - 2), user.kills) :
-                new Monster(GAME_MONS.get(RANDOM.nextInt(Math.min(user.kills + FIRST_MONS, GAME_MONS.size() - 1))),
-                        user.kills);
+                new Monster(GAME_MONS.get(GAME_MONS.size() - 2), user.kills, rng) :
+                new Monster(GAME_MONS.get(generateMonIndex(user.kills, rng)), user.kills, rng);
         enemy.name = "Wild " + enemy.name;
         if (fakeyceus)
             enemy.holdItem = null;
+        enemyPolicy = journaled(fakeyceus ? MctsPolicy.FAKEYCEUS : MctsPolicy.WILD);
         mon = user.team.get(0);
         p(DIVIDER);
-        System.out.print(enemy.ascii);
+        print(enemy.sprite());
         p(NL + DIVIDER);
         p("A " + lowercase(enemy.name) + " appeared! > ");
         enter();
         p("Go, " + mon.name + "! > ");
         enter();
         battleLoop();
+        if (runAway)
+            Metrics.ESCAPES.inc();
         if (enemy.tempStats[HP] == 0) {
             endBattle();
         }
@@ -60,28 +80,37 @@ public class Battle extends Game {
         }
     }
 
+    /**
+     * @param policy - How the enemy chooses its attacks.
+     * @return policy, its choices recorded in (or replayed from) the game's journal if it has one.
+     */
+    private MovePolicy journaled(MovePolicy policy) {
+        return ctx.journal == null ? policy : ctx.journal.enemy(policy);
+    }
+
     /**
      * Loops continuously until the enemy has no more HP or the user runs away. If all of the user's mons die,
-     * System.exit(0) is called.
+     * the game is over (see quit()).
      *
      * @throws Exception if p(String), option(int, int, boolean), chooseAttack(), enter(), changeMon(), openBag(),
-     *                   tryExcape(), deadMon(), ceusEvolve() throw an exception.
+     *                   hint(), tryExcape(), deadMon(), ceusEvolve() throw an exception.
      */
     private void battleLoop() throws Exception {
         while (enemy.tempStats[HP] > 0 && !runAway) {
             p(DIVIDER);
             p(enemy.printLimited());
             p(DIVIDER);
-            p("What will " + mon.name + " do?\nType '1' to choose an attack, '2' to see stats, " +
-                    "'3' to use a different mon, '4' to open your bag,\nor 'X' to attempt to run. --> ");
-            int battleOption = option(1, 4, true);
+            p("What will " + mon.name + " do?\nType '1' to choose an attack, '2' to see stats, '3' to use a " +
+                    "different mon, '4' to open your bag,\n'5' for a hint, or 'X' to attempt to run. --> ");
+            int battleOption = option(1, 5, true);
             if (battleOption == 0) chooseAttack();
             else if (battleOption == 1) {
-                System.out.print(user.team.get(0).print());
+                print(user.team.get(0).print());
                 p("> ");
                 enter();
             } else if (battleOption == 2) changeMon();
             else if (battleOption == 3) openBag();
+            else if (battleOption == 4) hint();
             else if (tryEscape()) runAway = true;
             if (mon.tempStats[HP] == 0)
                 deadMon();
@@ -93,41 +122,66 @@ public class Battle extends Game {
     /**
      * Lists all of mon's attacks to the user. The user is given the option to choose an attack to use or cancel.
      *
-     * @throws Exception if Thread.sleep(String) throws an InterruptedException, or if p(String),
-     *                   option(int, int, boolean), Monster.attack(Monster), Monster.attack(int, Monster),
-     *                   checkItems(Monster, Monster) throw an exception.
+     * @throws Exception if p(String), option(int, int, boolean),
+     *                   BattleEngine.exchange(Monster, int, Monster, MovePolicy) throw an exception.
      */
     private void chooseAttack() throws Exception {
         p(BAR + " [ Attacks ] " + BAR + NL);
         for (int i = 1; i <= mon.attacks.size(); i++) {
-            System.out.print("'" + i + "' | " + GAME_ATKS.get(mon.attacks.get(i - 1)).print() + "\n");
-            Thread.sleep(TEXT_TIME);
+            print("'" + i + "' | " + GAME_ATKS.get(mon.attacks.get(i - 1)).print() + "\n");
+            pause(TEXT_TIME);
         }
         p("'X' to cancel.\n--> ");
         int attackOption = option(1, mon.attacks.size(), true);
-        if (attackOption != -1) {
-            if (mon.tempStats[SPE] > enemy.tempStats[SPE]) {
-                mon.attack(attackOption, enemy);
-                if (enemy.tempStats[HP] > 0)
-                    enemy.attack(mon);
-            } else {
-                enemy.attack(mon);
-                if (mon.tempStats[HP] > 0)
-                    mon.attack(attackOption, enemy);
-            }
-            if (mon.tempStats[HP] > 0)
-                checkItems(mon, enemy);
-            if (enemy.tempStats[HP] > 0)
-                checkItems(enemy, mon);
+        if (attackOption == -1)
+            return;
+        turns++;
+        if (engine.exchange(mon, attackOption, enemy, enemyPolicy))
+            runAway = true;
+    }
+
+    /**
+     * Solves the battle as it stands (see BattleSolver) and shows the user each attack's chance to win, if mon keeps
+     * choosing the best attack afterwards, and which attack is best. A chance the search could not narrow down to
+     * within BattleSolver.Solution.MAX_OPEN is shown as unknown, and no attack is recommended over one like that.
+     *
+     * @throws Exception if p(String), print(String), enter() throw an exception.
+     */
+    private void hint() throws Exception {
+        if (ctx.headless()) { // Nothing to show: a replay only waits for the user, as the battle did.
+            enter();
+            return;
         }
+        if (solver == null || solver.mon != mon || solver.enemy != enemy)
+            solver = new BattleSolver(user, mon, enemy);
+        BattleSolver.Solution hint = solver.solve(HINT_TIME);
+        p(BAR + " [ Hint ] " + BAR + NL);
+        for (int i = 0; i < mon.attacks.size(); i++)
+            print("'" + (i + 1) + "' | " + mon.attacks.get(i) + ": " +
+                    (hint.known(i) ? percent(hint.win[i], hint.open[i]) : "unknown") + " chance to win\n");
+        if (hint.decided())
+            p("Your best bet is " + mon.attacks.get(hint.best) + ". > ");
+        else p("There was not enough time to tell which attack is best. > ");
+        enter();
+    }
 
+    /**
+     * @param win  - The least a chance can be.
+     * @param open - How much more it might be.
+     * @return The chance as a percent, or a range of percents if it is not known to within 0.1%.
+     */
+    private static String percent(double win, double open) {
+        if (open < 0.0005)
+            return String.format("%.1f%%", 100 * win);
+        return String.format("%.1f-%.1f%%", 100 * win, 100 * (win + open));
     }
 
     /**
      * If the user has no other mons, states 'You have no other mons. > "
      * Else lists the user's team. The user may select a different mon to use for the remainder of the battle or cancel.
      *
-     * @throws Exception if p(String), enter(), option(int, int, boolean), Monster.attack(Monster) throw an exception.
+     * @throws Exception if p(String), enter(), option(int, int, boolean), BattleEngine.move(Monster, MovePolicy,
+     *                   Monster) throw an exception.
      */
     private void changeMon() throws Exception {
         if (user.team.size() == 1) {
@@ -151,7 +205,8 @@ public class Battle extends Game {
                 mon = user.team.get(0);
                 p("Go, " + mon.name + "! > ");
                 enter();
-                enemy.attack(mon);
+                turns++;
+                engine.move(enemy, enemyPolicy, mon);
             }
         }
     }
@@ -161,13 +216,13 @@ public class Battle extends Game {
      * enemy's to determine whether the user can escape from the battle.
      *
      * @return Whether the user can escape from the battle.
-     * @throws Exception if sfx(String), p(String), enter(), music(String), p(String), Monster.attack(Monster),
-     *                   escCeus2Msg() throw an exception.
+     * @throws Exception if sfx(String), p(String), enter(), music(String), p(String),
+     *                   BattleEngine.move(Monster, MovePolicy, Monster), escCeus2Msg() throw an exception.
      */
     private boolean tryEscape() throws Exception {
         boolean escaped = false,
                 canFlee = mon.stats[SPE] >= enemy.stats[SPE] ||
-                        RANDOM.nextInt(100) < (int) Math.round(100.0 * mon.stats[SPE] / enemy.stats[SPE]);
+                        rng.nextInt(100) < (int) Math.round(100.0 * mon.stats[SPE] / enemy.stats[SPE]);
         if (!user.finalBattle) {
             if (canFlee) {
                 sfx(ESC_SFX);
@@ -178,7 +233,8 @@ public class Battle extends Game {
             } else {
                 p("Can't escape! > ");
                 enter();
-                enemy.attack(mon);
+                turns++;
+                engine.move(enemy, enemyPolicy, mon);
             }
         } else escCeus2Msg();
         return escaped;
@@ -192,6 +248,7 @@ public class Battle extends Game {
      *                   throw an exception.
      */
     private void deadMon() throws Exception {
+        Metrics.USER_DEATHS.inc();
         if (user.team.size() > 1) {
             user.team.remove(mon);
             p(mon.name + " has died! > ");
@@ -233,11 +290,12 @@ public class Battle extends Game {
      * @throws Exception if p(String), enter(), pause(int), music(String) throw an exception.
      */
     private void ceusEvolve() throws Exception {
+        Metrics.ENEMY_DEATHS.inc();
         user.finalBattle = true;
         p(enemy.name + " died! > ");
         enter();
         p(DIVIDER);
-        music.stop();
+        music(null);
         for (int i = 0; i < SAVE_DOTS; i++) {
             p(".");
             pause(SHORT_TIME);
@@ -247,8 +305,9 @@ public class Battle extends Game {
         p("Fakeyceus evolved! > ");
         enter();
         mon.resetStats();
-        enemy = new Monster(GAME_MONS.get(GAME_MONS.size() - 1), user.kills);
+        enemy = new Monster(GAME_MONS.get(GAME_MONS.size() - 1), user.kills, rng);
         enemy.holdItem = FAKEYCEUS_ITEM;
+        enemyPolicy = journaled(MctsPolicy.FAKEYCEUS2);
         music(CEUS2_MUSIC);
     }
 
@@ -257,10 +316,11 @@ public class Battle extends Game {
      * If called after Fakeyceus is killed, prints congratulation message and quits the game.
      * Else enemy generates XP, drops cash, possibly drops item, possibly joins the user's team.
      *
-     * @throws Exception if p(String), enter(), quit(), music(String), distXp(Monster), newItem(), newTeammate(),
-     *                   confirm(), fakeyCenter() throws an exception.
+     * @throws Exception if p(String), enter(), quit(), music(String), distXp(GameContext, Monster, int, Rng),
+     *                   newItem(), newTeammate(), confirm(), fakeyCenter() throws an exception.
      */
     private void endBattle() throws Exception {
+        Metrics.ENEMY_DEATHS.inc();
         user.kills++;
         p(enemy.name + " died! > ");
         enter();
@@ -272,7 +332,7 @@ public class Battle extends Game {
             quit();
         }
         music(SCENARIO_MUSIC);
-        int xpGain = generateXp(enemy);
+        int xpGain = generateXp(enemy, rng);
         for (int i = 0; i < user.team.size(); i++) {
             Monster teammate = user.team.get(i);
             if (i == 0 || (teammate.holdItem != null &&
@@ -280,16 +340,16 @@ public class Battle extends Game {
                 teammate.xp += xpGain;
                 p(teammate.name + " gained " + xpGain + " xp points! > ");
                 enter();
-                distXp(teammate);
+                distXp(ctx, teammate, user.kills, rng);
             }
         }
         user.score += xpGain;
-        int cashDropped = RANDOM.nextInt(MAX_CASH * (user.kills / 2 + 1)) + 1;
+        int cashDropped = rng.nextInt(MAX_CASH * (user.kills / 2 + 1)) + 1;
         user.money += cashDropped;
         p(enemy.name + " dropped $" + cashDropped + "! > ");
         enter();
-        if (RANDOM.nextInt(100) < DROP_RATE && enemy.holdItem != null) newItem();
-        if (RANDOM.nextInt(100) < JOIN_TEAM)
+        if (rng.nextInt(100) < DROP_RATE && enemy.holdItem != null) newItem();
+        if (rng.nextInt(100) < JOIN_TEAM)
             newTeammate();
         if (user.kills % FAKEYCENTER_KILLS == 0) {
             p("You found a Fakeymon Center to heal your mons! Would you like to enter? (yes/no) --> ");
@@ -316,13 +376,13 @@ public class Battle extends Game {
                 for (Monster mon : user.team)
                     mon.resetStats();
                 music(HEAL_MUSIC);
-                System.out.print("Fake-");
+                print("Fake-");
                 pause(SHORT_TIME);
-                System.out.print("fake-");
+                print("fake-");
                 pause(MED_TIME);
-                System.out.print("fakey-");
+                print("fakey-");
                 pause(SHORT_TIME);
-                System.out.print("mon!");
+                print("mon!");
                 pause(SHORT_TIME);
                 music(CENTER_MUSIC);
                 p("\nYour Fakeymon have been fully healed. > ");
@@ -331,7 +391,9 @@ public class Battle extends Game {
             } else if (option == 1)
                 try {
                     fakeyMart();
-                } catch (Exception e) {
+                } catch (GameOver over) {
+                    throw over;
+                } catch (Exception e) { // Caught stealing.
                     break;
                 }
             else break;
@@ -345,7 +407,7 @@ public class Battle extends Game {
      * 2 allows the user to interact with their mons.
      * 3 allows the user to interact with their bag and items.
      * 4 allows the user to interact with the old lady. First interaction awards the user with a free XP share.
-     * Otherwise, the old lady provides several tips, all defined in OLD_LADY_TEXT.
+     * Otherwise, the old lady provides several tips, all defined in OLD_LADY_TEXT, in turn.
      * 5 allows the user to attempt to steal an item. A user has a STEAL_CHANCE% chance to steal an item. Otherwise,
      * their bag is cleared.
      * X allows the user to leave the shop.
@@ -355,14 +417,11 @@ public class Battle extends Game {
      *                   printBag(), openBag(), confirm(), monStatus() throw an exception.
      */
     private void fakeyMart() throws Exception {
-        List<String> clerkItems = new ArrayList<>(GAME_ITEMS.keySet());
-        for (int i = 0; i < clerkItems.size(); i++)
-            if (GAME_ITEMS.get(clerkItems.get(i)).costs == 0) {
-                clerkItems.remove(i);
-                i--;
-            }
-        Collections.shuffle(clerkItems);
-        clerkItems = clerkItems.subList(0, MAX_CLERK_ITEMS);
+        int[] stock = new int[MAX_CLERK_ITEMS];
+        int stocked = ctx.shopStock.deal(stock, MAX_CLERK_ITEMS, rng);
+        List<String> clerkItems = new ArrayList<>();
+        for (int i = 0; i < stocked; i++)
+            clerkItems.add(ITEM_LIST[stock[i]].name);
         while (true) {
             p(DIVIDER);
             p("Type 1 to speak with the clerk, '2' to view the status of a Fakeymon, '3' to open your bag,\n" +
@@ -453,13 +512,12 @@ public class Battle extends Game {
                         enter();
                     }
                 } else {
-                    p("Old lady: " + OLD_LADY_TEXT.get(0) + " > ");
+                    p("Old lady: " + ctx.nextTip() + " > ");
                     enter();
-                    OLD_LADY_TEXT.add(OLD_LADY_TEXT.remove(0));
                 }
             } else if (option == 4) {
-                boolean steal = RANDOM.nextInt(100) < STEAL_CHANCE;
-                int stealIndex = RANDOM.nextInt(clerkItems.size());
+                boolean steal = rng.nextInt(100) < STEAL_CHANCE;
+                int stealIndex = rng.nextInt(clerkItems.size());
                 if (steal) {
                     String item = clerkItems.remove(stealIndex);
                     user.bag.add(item);
@@ -550,57 +608,20 @@ public class Battle extends Game {
         }
     }
 
-    /**
-     * Checks held items for local Monster instance mon. If struggle(mon) and usable(item), mon will use held item.
-     * If the held item is of type hold-heal, then the mon will receive hp from the item.
-     *
-     * @param mon   - The monster whose item is being checked. Not necessarily this.mon.
-     * @param enemy - the enemy to mon. Not necessarily this.enemy.
-     * @throws Exception if p(String), enter(), Item.use(Player, Monster, Monster), sfx(String) throw an exception.
-     */
-    private void checkItems(Monster mon, Monster enemy) throws Exception    {
-        Item item = mon.holdItem == null ? null : GAME_ITEMS.get(mon.holdItem);
-        if (item != null && item.holdItem) {
-            if (struggle(mon) && usable(item)) {
-                p(mon.name + " used the held " + mon.holdItem + "! > ");
-                enter();
-                if (item.use(user, mon, enemy)) {
-                    if (item.type.equalsIgnoreCase("esc"))
-                        runAway = true;
-                    mon.holdItem = null;
-                }
-            } else if (item.type.equalsIgnoreCase("hold-heal")) {
-                String healPercent;
-                if (item.name.contains("hoo"))
-                    healPercent = item.value1;
-                else {
-                    int min = Integer.parseInt(item.value1.substring(0, item.value1.length() - 1));
-                    int max = Integer.parseInt(item.value2.substring(0, item.value2.length() - 1));
-                    healPercent = RANDOM.nextInt(min + max) - min + "%";
-                }
-                int healValue = healMon(mon.tempStats[HP], mon.stats[HP], healPercent);
-
-                if (healValue != 0) {
-                    mon.tempStats[HP] += healValue;
-                    sfx(HEAL_SFX);
-                    p(mon.name + " restored " + healValue + " hp from the held " + item.name + "! > ");
-                    enter();
-                }
-            }
-        }
-    }
-
     /**
      * Distributes mon's hp proportionally. If the monster has twice as much attack as defense, this will be maintained
      * as mon.xp is being distributed.
      *
-     * @param mon - The mon whose stats are increasing.
+     * @param ctx   - The game, told if mon learns an attack.
+     * @param mon   - The mon whose stats are increasing.
+     * @param kills - The user's kills so far; the more kills, the stronger the attacks mon may learn.
+     * @param rng   - The random object deciding whether mon learns an attack, and which.
      * @throws Exception if p(String), enter() throw an exception.
      */
-    private void distXp(Monster mon) throws Exception {
+    static void distXp(GameContext ctx, Monster mon, int kills, Rng rng) throws Exception {
         int statSum = 0;
         int changeSum = 0;
-        for (Integer stat : mon.stats)
+        for (int stat : mon.stats)
             statSum += stat;
         for (int i = 0; i < NUM_STATS - 1; i++) {
             int stat = mon.stats[i];
@@ -612,7 +633,7 @@ public class Battle extends Game {
         mon.tempStats[NUM_STATS - 1] = mon.stats[NUM_STATS - 1] += mon.xp - changeSum;
 
         mon.xp = 0;
-        if (mon.attacks.size() >= 1 && RANDOM.nextInt(100) < NEW_MOVE) {
+        if (mon.attacks.size() >= 1 && rng.nextInt(100) < NEW_MOVE) {
             List<Attack> atks = new ArrayList<>(GAME_ATKS.values());
             Set<String> knownAtks = new HashSet<>(mon.attacks);
             for (int i = 0; i < atks.size(); i++) {
@@ -623,23 +644,13 @@ public class Battle extends Game {
                 }
             }
             Collections.sort(atks);
-            String newAtk = atks.get(Math.min(atks.size() - 1, RANDOM.nextInt(user.kills * 2))).name;
+            String newAtk = atks.get(Math.min(atks.size() - 1, rng.nextInt(kills * 2))).name;
             mon.attacks.add(newAtk);
-            p(mon.name + " learned " + newAtk + "! > ");
-            enter();
+            ctx.p(mon.name + " learned " + newAtk + "! > ");
+            ctx.enter();
         }
     }
 
-    /**
-     * Returns whether the given mon is "struggling." This returns true iff the mon's temporary HP <= STRUGGLE_RANGE.
-     *
-     * @param mon - The mon that is being evaluated to see if it is struggling.
-     * @return Whether the mon is struggling.
-     */
-    private boolean struggle(Monster mon) {
-        return ((int) Math.floor((double) mon.tempStats[HP] / mon.stats[HP] * 100)) <= STRUGGLE_RANGE;
-    }
-
     /**
      * If the user's bag is empty, displays 'You have no items. > '
      * Else prints the user's bag and allows the user to select an item or to cancel.
@@ -650,7 +661,7 @@ public class Battle extends Game {
      * X allows the user to cancel.
      *
      * @throws Exception if p(String), enter(), printBag(), option(int, int, boolean), chooseMon(String),
-     *                   Item.use(Player, Monster, boolean), confirm() throw an exception.
+     *                   Item.use(GameContext, Monster, boolean), confirm() throw an exception.
      */
     private void openBag() throws Exception {
         if (user.bag.size() == 0) {
@@ -672,11 +683,14 @@ public class Battle extends Game {
                     if (choice == 0 && usable(item)) {
                         if (item.use % 2 == 1) {
                             int mon = chooseMon("On which mon would you like to use this item?\n", true);
-                            if (mon != -1 && item.use(user, user.team.get(mon), true))
+                            if (mon != -1 && item.use(ctx, user.team.get(mon), true))
                                 user.bag.remove(item.name);
-                        } else if (item.use(user, enemy, false)) {
-                            user.bag.remove(item.name);
-                            runAway = item.type.equalsIgnoreCase("esc");
+                        } else {
+                            Outcome outcome = new Outcome();
+                            if (item.use(ctx, null, enemy, outcome)) {
+                                user.bag.remove(item.name);
+                                runAway = outcome.has(Outcome.ESCAPED);
+                            }
                         }
                     } else if (choice == 0) {
                         p("This item cannot be used here. > ");
@@ -721,9 +735,6 @@ public class Battle extends Game {
      * @return whether the item is usable.
      */
     private boolean usable(Item item) {
-        if (item == null)
-            return false;
-        int use = item.use;
-        return 0 < use && use < 5;
+        return item != null && item.battleUsable();
     }
 }
@@ -0,0 +1,221 @@
+/*
+ * Paulkia 2020.
+ * The rules of a battle between two Monster instances, with no console, sound or pauses of its own.
+ * Battle drives an engine with a BattleNarrator so the user sees every event; simulations call fight(...) with no
+ * listener and get a BattleResult back.
+ */
+class BattleEngine extends Fakeyverse {
+    // fight(...) gives up and calls the battle a draw after this many turns (e.g. two mons that only boost stats).
+    static final int MAX_TURNS = 500;
+
+    // The random object deciding every roll in the battle.
+    final Rng rng;
+    // The turns fight(...) fights before calling a draw, MAX_TURNS unless given.
+    final int maxTurns;
+    // The user whose battle this is. Null in headless battles, where held esc items always work.
+    private final Player user;
+    // Told about every event, or null to run silently.
+    private final BattleListener listener;
+    // Reused for every attack and item so that a battle does not allocate.
+    private final Outcome outcome = new Outcome();
+
+    // While fight(...) runs: the result being recorded, the two sides, and the current turn.
+    private BattleResult result;
+    private Monster a;
+    private int turn;
+
+    /**
+     * Constructor for headless battles.
+     *
+     * @param rng - The random object deciding every roll in the battle.
+     */
+    BattleEngine(Rng rng) {
+        this(rng, MAX_TURNS);
+    }
+
+    /**
+     * Constructor for headless battles that give up sooner (or later) than MAX_TURNS, e.g. simulations where
+     * stalemates would otherwise take most of the time.
+     *
+     * @param rng      - The random object deciding every roll in the battle.
+     * @param maxTurns - The turns fight(...) fights before calling a draw.
+     */
+    BattleEngine(Rng rng, int maxTurns) {
+        this(rng, null, null, maxTurns);
+    }
+
+    /**
+     * Constructor for battles that are being watched.
+     *
+     * @param rng      - The random object deciding every roll in the battle.
+     * @param user     - The user whose battle this is, or null.
+     * @param listener - Told about every event in the battle, or null.
+     */
+    BattleEngine(Rng rng, Player user, BattleListener listener) {
+        this(rng, user, listener, MAX_TURNS);
+    }
+
+    private BattleEngine(Rng rng, Player user, BattleListener listener, int maxTurns) {
+        this.rng = rng;
+        this.user = user;
+        this.listener = listener;
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Fights a and b until one of them has no HP left, a held item gets one of them out of the battle, or maxTurns
+     * turns have passed. a and b are modified as in any battle; pass copies to keep the originals.
+     *
+     * @param a  - The first monster. Plays the part of the user's mon in Battle, so b goes first on speed ties.
+     * @param b  - The second monster.
+     * @param pa - Chooses a's attacks.
+     * @param pb - Chooses b's attacks.
+     * @return The result of the battle.
+     */
+    BattleResult fight(Monster a, Monster b, MovePolicy pa, MovePolicy pb) {
+        return fight(a, b, pa, pb, new BattleResult());
+    }
+
+    /**
+     * Same as fight(Monster, Monster, MovePolicy, MovePolicy) but fills in the given result instead of a new one.
+     *
+     * @param a      - The first monster.
+     * @param b      - The second monster.
+     * @param pa     - Chooses a's attacks.
+     * @param pb     - Chooses b's attacks.
+     * @param result - Reset and filled in with the result of the battle.
+     * @return result.
+     */
+    BattleResult fight(Monster a, Monster b, MovePolicy pa, MovePolicy pb, BattleResult result) {
+        result.reset();
+        this.result = result;
+        this.a = a;
+        try {
+            for (turn = 1; turn <= maxTurns; turn++) {
+                result.turns = turn;
+                if (exchange(a, pa.choose(a, b, rng), b, pb)) {
+                    result.escaped = true;
+                    break;
+                }
+                boolean aDead = a.tempStats[HP] <= 0, bDead = b.tempStats[HP] <= 0;
+                if (aDead || bDead) {
+                    result.winner = aDead == bDead ? BattleResult.NONE : aDead ? BattleResult.B : BattleResult.A;
+                    break;
+                }
+            }
+        } catch (Exception e) { // Only listeners throw, and a headless fight has none.
+            throw new IllegalStateException(e);
+        } finally {
+            this.result = null;
+            this.a = null;
+        }
+        return result;
+    }
+
+    /**
+     * One turn of attacks between mon and enemy. The faster monster attacks first (enemy wins speed ties), then both
+     * check their held items.
+     *
+     * @param mon         - The user's monster in Battle.
+     * @param monMove     - The index of the attack mon uses.
+     * @param enemy       - The enemy.
+     * @param enemyPolicy - Chooses the enemy's attack when it is the enemy's turn.
+     * @return Whether a held item got one of the monsters out of the battle.
+     * @throws Exception if the listener throws an exception.
+     */
+    boolean exchange(Monster mon, int monMove, Monster enemy, MovePolicy enemyPolicy) throws Exception {
+        if (mon.tempStats[SPE] > enemy.tempStats[SPE]) {
+            move(mon, monMove, enemy);
+            if (enemy.tempStats[HP] > 0)
+                move(enemy, enemyPolicy, mon);
+        } else {
+            move(enemy, enemyPolicy, mon);
+            if (mon.tempStats[HP] > 0)
+                move(mon, monMove, enemy);
+        }
+        boolean escaped = false;
+        if (mon.tempStats[HP] > 0)
+            escaped = checkItems(mon, enemy);
+        if (enemy.tempStats[HP] > 0)
+            escaped |= checkItems(enemy, mon);
+        return escaped;
+    }
+
+    /**
+     * attacker attacks defender with the attack chosen by policy.
+     *
+     * @param attacker - The monster attacking.
+     * @param policy   - Chooses attacker's attack.
+     * @param defender - The monster getting attacked.
+     * @throws Exception if the listener throws an exception.
+     */
+    void move(Monster attacker, MovePolicy policy, Monster defender) throws Exception {
+        move(attacker, policy.choose(attacker, defender, rng), defender);
+    }
+
+    /**
+     * attacker attacks defender with its attacks.get(attackIndex) attack, unless it must recharge this turn.
+     *
+     * @param attacker    - The monster attacking.
+     * @param attackIndex - The index of the attack that is being used, from attacker.attacks.
+     * @param defender    - The monster getting attacked.
+     * @throws Exception if the listener throws an exception.
+     */
+    void move(Monster attacker, int attackIndex, Monster defender) throws Exception {
+        if (attacker.resting) {
+            attacker.resting = false;
+            if (listener != null)
+                listener.recharging(attacker);
+            return;
+        }
+        Attack atk = GAME_ATKS.get(attacker.attacks.get(attackIndex));
+        atk.use(attacker, defender, rng, outcome);
+        if (result != null && outcome.has(Outcome.DAMAGED))
+            result.log(turn, side(attacker), BattleResult.ATTACK, outcome.amount);
+        if (listener != null)
+            listener.attacked(attacker, defender, atk, outcome);
+    }
+
+    /**
+     * Checks the held item of mon. If mon is struggling and the item is usable in battle, mon uses it up.
+     * Otherwise, if the item is of type hold-heal, mon receives hp from the item.
+     *
+     * @param mon   - The monster whose item is being checked.
+     * @param enemy - The enemy of mon.
+     * @return Whether the item got mon out of the battle.
+     * @throws Exception if the listener throws an exception.
+     */
+    boolean checkItems(Monster mon, Monster enemy) throws Exception {
+        Item item = mon.holdItem == null ? null : GAME_ITEMS.get(mon.holdItem);
+        if (item == null || !item.holdItem)
+            return false;
+        if (mon.struggling() && item.battleUsable()) {
+            item.apply(user, mon, enemy, rng, outcome);
+            if (result != null && outcome.has(Outcome.DAMAGED))
+                result.log(turn, side(mon), BattleResult.ITEM, outcome.amount);
+            else if (result != null && outcome.has(Outcome.USED) && outcome.amount > 0)
+                result.log(turn, side(mon), BattleResult.HEAL, outcome.amount);
+            if (listener != null)
+                listener.heldItemUsed(mon, enemy, item, outcome);
+            if (outcome.has(Outcome.USED))
+                mon.holdItem = null;
+            return outcome.has(Outcome.ESCAPED);
+        }
+        int healValue = item.holdHeal(mon, rng);
+        if (healValue != 0) {
+            if (result != null)
+                result.log(turn, side(mon), BattleResult.HEAL, healValue);
+            if (listener != null)
+                listener.heldItemHealed(mon, item, healValue);
+        }
+        return false;
+    }
+
+    /**
+     * @param mon - One of the monsters in the battle being recorded.
+     * @return BattleResult.A or BattleResult.B.
+     */
+    private int side(Monster mon) {
+        return mon == a ? BattleResult.A : BattleResult.B;
+    }
+}
@@ -0,0 +1,395 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/*
+ * Paulkia 2020.
+ * A record of one battle, enough to play it again exactly: the Player as it went in (with its Rng, so the enemy and
+ * every roll come out the same), then every choice made along the way, then how the battle ended and a fingerprint
+ * of the Player afterwards. Each choice is a fixed-width record of three bytes: its kind and its value. The user's
+ * answers (options, yes/no, names typed) are taken where GameContext reads them, and the enemy's attacks where its
+ * MovePolicy chooses them, so a battle costs a few bytes a turn and a replay runs the real Battle code, only headless.
+ * Everything else a battle does, the Fakeymart's stock included, is dealt from the Player's Rng.
+ * Journals are appended to the player's name.fkj in the save folder, one block per battle:
+ *      MAGIC, flags, the length and bytes of SaveCodec.encode(user), the number of records and the records,
+ *      the number of texts and the texts, the ending, and Player.fingerprint() after the battle.
+ * Run as a program to replay every battle in the given journals and check each one ends the same, e.g.:
+ *      java BattleJournal data/saves/ash.fkj
+ */
+class BattleJournal extends Fakeyverse {
+
+    static final int MAGIC = 0x464B4A33; // "FKJ3"
+
+    // Kinds of record. OPTION, CONFIRM: the user's answer. TEXT: the index of a line typed by the user among texts.
+    // ENEMY_RANDOM, ENEMY_CHOSEN: the enemy's attack, chosen by MovePolicy.RANDOM (replayed from the Rng) or by a
+    // search (replayed as recorded). WAIT: WAIT_MAX more enter() calls went by. END: the input ended, after value
+    // more enter() calls.
+    static final byte OPTION = 1, CONFIRM = 2, TEXT = 3, ENEMY_RANDOM = 4, ENEMY_CHOSEN = 5, WAIT = 6, END = 7;
+    // Bytes in a record. Most enter() calls one record counts, and the largest value a record holds: values are
+    // stored plus one, in an unsigned short.
+    static final int RECORD = 3, WAIT_MAX = 0xFFFE;
+    // Flags.
+    private static final int FAKEYCEUS = 1, FINAL_BATTLE = 2;
+    // Ending of a battle that finished on its own (won, escaped or left to the next battle).
+    static final String DONE = "done", INPUT_ENDED = "input ended";
+
+    // Whether this is the final battle, and whether Fakeyceus had already evolved.
+    final boolean fakeyceus, finalBattle;
+    // SaveCodec.encode() of the Player before the battle.
+    final byte[] start;
+    // The records, RECORD bytes each, and the lines typed.
+    private byte[] records = new byte[64];
+    private int size;
+    private final List<String> texts = new ArrayList<>();
+    // How the battle ended and the Player's fingerprint afterwards. Null and 0 until finish().
+    String ending;
+    long fingerprint;
+    // Whether this journal is being replayed rather than recorded; the next record to replay.
+    private final boolean replaying;
+    private int next;
+    // enter() calls since the last record.
+    private int waits;
+    // Whether the input ended during the battle.
+    private boolean ended;
+    // Whether a choice did not fit in a record, so the rest of the battle is not recorded.
+    private boolean abandoned;
+
+    private BattleJournal(boolean fakeyceus, boolean finalBattle, byte[] start, boolean replaying) {
+        this.fakeyceus = fakeyceus;
+        this.finalBattle = finalBattle;
+        this.start = start;
+        this.replaying = replaying;
+    }
+
+    /**
+     * @param user      - The Player about to battle.
+     * @param fakeyceus - Whether the battle is the final battle.
+     * @return An empty journal of the battle, to be given to GameContext.journal.
+     */
+    static BattleJournal record(Player user, boolean fakeyceus) {
+        return new BattleJournal(fakeyceus, user.finalBattle, SaveCodec.encode(user), false);
+    }
+
+    /**
+     * @return Whether GameContext should take the user's answers from this journal rather than from the user.
+     */
+    boolean replaying() {
+        return replaying;
+    }
+
+    // Recording, called by GameContext and the enemy's policy.
+
+    /**
+     * @return Whether the whole battle was recorded, so it can be replayed. A battle is left unrecorded, rather than
+     * stopped, if a choice does not fit in a record.
+     */
+    boolean complete() {
+        return !abandoned;
+    }
+
+    /**
+     * Counts an enter() call, which needs no record of its own unless the input ends during the next one.
+     */
+    void entered() {
+        if (waits == WAIT_MAX)
+            add(WAIT, WAIT_MAX);
+        waits++;
+    }
+
+    /**
+     * Notes that the input ended, after the enter() calls counted since the last record.
+     */
+    void ended() {
+        if (!ended)
+            add(END, waits);
+        ended = true;
+    }
+
+    /**
+     * @param option - The user's answer to GameContext.option(int, int, boolean).
+     * @return option.
+     */
+    int option(int option) {
+        add(OPTION, option);
+        return option;
+    }
+
+    /**
+     * @param confirm - The user's answer to GameContext.confirm().
+     * @return confirm.
+     */
+    boolean confirm(boolean confirm) {
+        add(CONFIRM, confirm ? 1 : 0);
+        return confirm;
+    }
+
+    /**
+     * @param text - The line typed by the user.
+     * @return text.
+     */
+    String text(String text) {
+        int index = texts.indexOf(text);
+        if (index < 0) {
+            index = texts.size();
+            texts.add(text);
+        }
+        add(TEXT, index);
+        return text;
+    }
+
+    /**
+     * @param policy - How the enemy chooses its attacks.
+     * @return policy, recording each choice it makes, or replaying them if this journal is replayed.
+     */
+    MovePolicy enemy(MovePolicy policy) {
+        return (self, foe, rng) -> {
+            if (replaying) {
+                boolean random = kind() != ENEMY_CHOSEN;
+                int move = take(random ? ENEMY_RANDOM : ENEMY_CHOSEN);
+                if (random && MovePolicy.RANDOM.choose(self, foe, rng) != move)
+                    throw new IllegalStateException("The replay diverged: the enemy chose a different attack");
+                return move;
+            }
+            int move = policy.choose(self, foe, rng);
+            add(policy == MovePolicy.RANDOM ? ENEMY_RANDOM : ENEMY_CHOSEN, move);
+            return move;
+        };
+    }
+
+    /**
+     * Ends the recording or replay of the battle.
+     *
+     * @param user   - The Player after the battle.
+     * @param ending - What the battle ended with, or null if it finished on its own.
+     */
+    void finish(Player user, Exception ending) {
+        this.ending = ending == null ? DONE : ended ? INPUT_ENDED : ending.toString();
+        fingerprint = user.fingerprint();
+    }
+
+    private void add(byte kind, int value) {
+        waits = 0;
+        if (value < -1 || value > WAIT_MAX)
+            abandoned = true;
+        if (abandoned)
+            return;
+        if (size + RECORD > records.length)
+            records = Arrays.copyOf(records, records.length * 2);
+        records[size++] = kind;
+        records[size++] = (byte) ((value + 1) >> 8);
+        records[size++] = (byte) (value + 1);
+    }
+
+    // Replaying, called by GameContext.
+
+    /**
+     * Plays back an enter() call.
+     *
+     * @throws NoSuchElementException if the input ended here when the battle was recorded.
+     */
+    void enter() {
+        if (waits == WAIT_MAX)
+            take(WAIT);
+        if (next < size && records[next] == END && value() == waits)
+            end();
+        waits++;
+    }
+
+    /**
+     * @return The user's answer to GameContext.option(int, int, boolean).
+     */
+    int option() {
+        return take(OPTION);
+    }
+
+    /**
+     * @return The user's answer to GameContext.confirm().
+     */
+    boolean confirm() {
+        return take(CONFIRM) == 1;
+    }
+
+    /**
+     * @return The line typed by the user.
+     */
+    String text() {
+        return texts.get(take(TEXT));
+    }
+
+    /**
+     * @return The kind of the next record.
+     * @throws IllegalStateException if there are no records left.
+     */
+    private byte kind() {
+        if (next >= size)
+            throw new IllegalStateException("The replay diverged: the battle went on after the journal ended");
+        return records[next];
+    }
+
+    private int value() {
+        return ((records[next + 1] & 0xFF) << 8 | records[next + 2] & 0xFF) - 1;
+    }
+
+    /**
+     * @param kind - The kind of record expected next.
+     * @return Its value.
+     * @throws NoSuchElementException if the input ended here when the battle was recorded.
+     * @throws IllegalStateException if the next record is of another kind.
+     */
+    private int take(byte kind) {
+        byte actual = kind();
+        if (actual == END && value() == waits)
+            end();
+        if (actual != kind)
+            throw diverged(actual);
+        int value = value();
+        next += RECORD;
+        waits = 0;
+        return value;
+    }
+
+    private void end() {
+        ended = true;
+        throw new NoSuchElementException("The input ended.");
+    }
+
+    private IllegalStateException diverged(byte kind) {
+        return new IllegalStateException("The replay diverged: the journal has a record of kind " + kind + " at " +
+                next / RECORD);
+    }
+
+    // Storage.
+
+    /**
+     * Appends this journal to a file.
+     *
+     * @param file - The file, created if need be.
+     * @throws IOException if it cannot be written.
+     */
+    void append(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file, true)))) {
+            out.writeInt(MAGIC);
+            out.writeByte((fakeyceus ? FAKEYCEUS : 0) | (finalBattle ? FINAL_BATTLE : 0));
+            out.writeInt(start.length);
+            out.write(start);
+            out.writeInt(size / RECORD);
+            out.write(records, 0, size);
+            out.writeShort(texts.size());
+            for (String text : texts)
+                out.writeUTF(text);
+            out.writeUTF(ending);
+            out.writeLong(fingerprint);
+        }
+    }
+
+    /**
+     * @param file - A file of journals, as written by append(File).
+     * @return Every journal in it, in order, ready to replay().
+     * @throws IOException if it cannot be read or is not a journal.
+     */
+    static List<BattleJournal> read(File file) throws IOException {
+        List<BattleJournal> result = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    return result;
+                }
+                if (magic != MAGIC)
+                    throw new IOException(file + " is not a battle journal");
+                int flags = in.readUnsignedByte();
+                byte[] start = new byte[in.readInt()];
+                in.readFully(start);
+                BattleJournal journal = new BattleJournal((flags & FAKEYCEUS) != 0, (flags & FINAL_BATTLE) != 0,
+                        start, true);
+                journal.size = in.readInt() * RECORD;
+                journal.records = new byte[journal.size];
+                in.readFully(journal.records);
+                for (int i = in.readUnsignedShort(); i > 0; i--)
+                    journal.texts.add(in.readUTF());
+                journal.ending = in.readUTF();
+                journal.fingerprint = in.readLong();
+                result.add(journal);
+            }
+        }
+    }
+
+    /**
+     * Plays the battle again, headless, from the Player it started with and the choices recorded.
+     *
+     * @return A journal of the replay, whose ending and fingerprint match this one's if the battle played out the
+     * same.
+     * @throws IOException if the Player cannot be decoded.
+     */
+    BattleJournal replay() throws IOException {
+        Player user = SaveCodec.decode(start);
+        user.finalBattle = finalBattle;
+        BattleJournal replay = new BattleJournal(fakeyceus, finalBattle, start, true);
+        replay.records = records;
+        replay.size = size;
+        replay.texts.addAll(texts);
+        GameContext ctx = GameContext.headless(new Rng(0));
+        ctx.user = user;
+        ctx.journal = replay;
+        Exception ending = null;
+        try {
+            new Battle(ctx, fakeyceus);
+        } catch (Exception e) {
+            ending = e;
+        }
+        replay.finish(user, ending);
+        return replay;
+    }
+
+    /**
+     * @param other - Another journal of the same battle.
+     * @return Whether both ended the same way, with the same Player.
+     */
+    boolean matches(BattleJournal other) {
+        return ending.equals(other.ending) && fingerprint == other.fingerprint;
+    }
+
+    /**
+     * Replays every battle in the journals named by args and prints whether each one ended as recorded.
+     *
+     * @param args - The journal files.
+     * @throws IOException if a journal cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int battles = 0, mismatches = 0;
+        long start = System.nanoTime();
+        for (String name : args) {
+            List<BattleJournal> journals = read(new File(name));
+            for (int i = 0; i < journals.size(); i++) {
+                BattleJournal journal = journals.get(i), replay = journal.replay();
+                battles++;
+                if (journal.matches(replay))
+                    System.out.println(name + " #" + (i + 1) + ": ok (" + journal.size / RECORD + " records, " +
+                            journal.ending + ")");
+                else {
+                    mismatches++;
+                    System.out.println(name + " #" + (i + 1) + ": MISMATCH, recorded " + journal.ending + " (" +
+                            Long.toHexString(journal.fingerprint) + "), replayed " + replay.ending + " (" +
+                            Long.toHexString(replay.fingerprint) + ")");
+                }
+            }
+        }
+        System.out.printf("%d battle(s) replayed in %.1f ms, %d mismatch(es)%n", battles,
+                (System.nanoTime() - start) / 1e6, mismatches);
+        if (mismatches > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Paulkia 2020.
+ * Receives everything that happens inside a BattleEngine as it happens. Battle uses a BattleNarrator to print the
+ * battle for the user; headless simulations leave the listener null and never touch the console.
+ */
+interface BattleListener {
+
+    /**
+     * Called after attacker used atk on defender.
+     *
+     * @param attacker - The monster that attacked.
+     * @param defender - The monster that was attacked.
+     * @param atk      - The attack that was used.
+     * @param outcome  - What happened. Only valid until the next call.
+     * @throws Exception if the listener cannot report the attack.
+     */
+    void attacked(Monster attacker, Monster defender, Attack atk, Outcome outcome) throws Exception;
+
+    /**
+     * Called when mon skips its turn to recharge after a resting attack.
+     *
+     * @param mon - The monster that is recharging.
+     * @throws Exception if the listener cannot report the recharge.
+     */
+    void recharging(Monster mon) throws Exception;
+
+    /**
+     * Called after a struggling mon used its held item.
+     *
+     * @param mon     - The monster holding the item.
+     * @param enemy   - mon's opponent.
+     * @param item    - The item that was used.
+     * @param outcome - What happened. Only valid until the next call.
+     * @throws Exception if the listener cannot report the item.
+     */
+    void heldItemUsed(Monster mon, Monster enemy, Item item, Outcome outcome) throws Exception;
+
+    /**
+     * Called after mon's hold-heal item changed its HP at the end of a turn.
+     *
+     * @param mon    - The monster holding the item.
+     * @param item   - The hold-heal item.
+     * @param amount - The change in mon's HP. Never 0.
+     * @throws Exception if the listener cannot report the heal.
+     */
+    void heldItemHealed(Monster mon, Item item, int amount) throws Exception;
+}
@@ -0,0 +1,58 @@
+/*
+ * Paulkia 2020.
+ * The BattleListener used in interactive battles. Prints each event of the battle to the user with sound effects,
+ * waiting for the user to press enter after every message.
+ */
+class BattleNarrator extends Fakeyverse implements BattleListener {
+    // The game whose battle is being narrated.
+    private final GameContext ctx;
+
+    /**
+     * @param ctx - The game whose battle is being narrated.
+     */
+    BattleNarrator(GameContext ctx) {
+        this.ctx = ctx;
+    }
+
+    public void attacked(Monster attacker, Monster defender, Attack atk, Outcome outcome) throws Exception {
+        if (outcome.has(Outcome.HIT))
+            Metrics.HITS.inc();
+        if (outcome.has(Outcome.MISSED))
+            Metrics.MISSES.inc();
+        if (outcome.has(Outcome.CRIT))
+            Metrics.CRITS.inc();
+        if (outcome.has(Outcome.EVADED))
+            Metrics.EVADES.inc();
+        damaged(attacker, outcome);
+        atk.announce(ctx, attacker, defender, outcome);
+    }
+
+    public void recharging(Monster mon) throws Exception {
+        ctx.p(mon.name + " must recharge! > ");
+        ctx.enter();
+    }
+
+    public void heldItemUsed(Monster mon, Monster enemy, Item item, Outcome outcome) throws Exception {
+        damaged(mon, outcome);
+        ctx.p(mon.name + " used the held " + item.name + "! > ");
+        ctx.enter();
+        item.announce(ctx, mon, enemy, outcome);
+    }
+
+    public void heldItemHealed(Monster mon, Item item, int amount) throws Exception {
+        ctx.sfx(HEAL_SFX);
+        ctx.p(mon.name + " restored " + amount + " hp from the held " + item.name + "! > ");
+        ctx.enter();
+    }
+
+    /**
+     * Counts the damage dealt by an attack or held item in Metrics, as the user's or the enemy's.
+     *
+     * @param mon     - The monster that attacked or used the item.
+     * @param outcome - What happened.
+     */
+    private void damaged(Monster mon, Outcome outcome) {
+        if (outcome.has(Outcome.DAMAGED))
+            (ctx.user.team.contains(mon) ? Metrics.USER_DAMAGE : Metrics.ENEMY_DAMAGE).add(outcome.amount);
+    }
+}
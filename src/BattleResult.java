@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+/*
+ * Paulkia 2020.
+ * The result of a headless battle run by BattleEngine.fight(...): who won, how many turns it took, and a log of
+ * every change in HP. The log is stored as packed ints so that a result can be reused for many battles.
+ */
+class BattleResult {
+    // Values of winner. A and B are the first and second monsters passed to BattleEngine.fight(...).
+    static final int NONE = -1, A = 0, B = 1;
+    // Kinds of log entries: damage from an attack, damage from a held item, HP restored by a held item.
+    static final int ATTACK = 0, ITEM = 1, HEAL = 2;
+    // Number of ints per log entry: turn, side, kind, amount.
+    private static final int ENTRY = 4;
+
+    // A, B, or NONE if the battle ended in an escape or ran out of turns.
+    int winner;
+    // Number of turns the battle took.
+    int turns;
+    // Whether a held Smoke bomb (or any esc item) ended the battle.
+    boolean escaped;
+
+    private int[] log = new int[ENTRY * 16];
+    private int size;
+
+    /**
+     * Clears this result so that it can be filled in by another battle.
+     */
+    void reset() {
+        winner = NONE;
+        turns = 0;
+        escaped = false;
+        size = 0;
+    }
+
+    /**
+     * Adds an entry to the log.
+     *
+     * @param turn   - The turn in which the HP changed, starting from 1.
+     * @param side   - A or B, the side whose action caused the change.
+     * @param kind   - ATTACK, ITEM or HEAL.
+     * @param amount - The damage dealt or HP restored.
+     */
+    void log(int turn, int side, int kind, int amount) {
+        if (size == log.length)
+            log = Arrays.copyOf(log, log.length * 2);
+        log[size++] = turn;
+        log[size++] = side;
+        log[size++] = kind;
+        log[size++] = amount;
+    }
+
+    /**
+     * @return The number of entries in the log.
+     */
+    int entries() {
+        return size / ENTRY;
+    }
+
+    int turn(int entry) {
+        return log[entry * ENTRY];
+    }
+
+    int side(int entry) {
+        return log[entry * ENTRY + 1];
+    }
+
+    int kind(int entry) {
+        return log[entry * ENTRY + 2];
+    }
+
+    int amount(int entry) {
+        return log[entry * ENTRY + 3];
+    }
+
+    /**
+     * @param side - A or B.
+     * @return The total damage dealt by side over the whole battle.
+     */
+    int damageDealt(int side) {
+        int sum = 0;
+        for (int i = 0; i < size; i += ENTRY)
+            if (log[i + 1] == side && log[i + 2] != HEAL)
+                sum += log[i + 3];
+        return sum;
+    }
+
+    /**
+     * @return This result in a short human-readable format.
+     */
+    public String toString() {
+        return "[winner=" + (winner == A ? "A" : winner == B ? "B" : "none") + ", turns=" + turns +
+                ", escaped=" + escaped + ", damage=" + damageDealt(A) + "/" + damageDealt(B) + "]";
+    }
+}
@@ -0,0 +1,658 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Paulkia 2020.
+ * Works out, for a battle as it stands, the chance that the user's mon wins with each of its attacks if it goes on
+ * choosing its best, against an enemy that attacks at random as in Battle. It plays one turn of BattleEngine for
+ * each attack, following every roll the turn can take (its Rng tries each outcome of chance() and nextInt() in turn,
+ * keeping track of how likely it is), and merges the turns that end in the same state. The states found this way are
+ * kept in a transposition table of fixed size, each with the states each attack leads to, and solved as an
+ * expectimax: the user choosing, the dice averaging. A turn that changes nothing (both attacks missing) is solved
+ * outright rather than searched again.
+ * Stats can keep rising, so a battle need not end, and the table need not hold every state it can reach. The search
+ * grows the table one turn further at a time, while it has time and room, and keeps for every state the least and
+ * the most its chance can be given the states not searched yet; the answer is exact once they meet. A later hint
+ * in the same battle mostly finds its states already there.
+ * The search covers attacking only; switching mons, using the bag and running away are up to the user.
+ */
+class BattleSolver extends Fakeyverse {
+
+    // The undecided chance below which the search stops.
+    static final double PRECISION = 1e-6;
+    // Log2 of the most states the table holds.
+    static final int TABLE_BITS = 16;
+
+    // A state is three longs holding 8 stats of 21 bits each (negative stats allowed), both resting flags and both
+    // held items. Stats beyond a million would be mixed up.
+    private static final int STAT_BITS = 21, ITEM_BITS = 9;
+    private static final long STAT_MASK = (1L << STAT_BITS) - 1, ITEM_MASK = (1L << ITEM_BITS) - 1;
+    private static final int FLAGS = 2 * STAT_BITS;
+    private static final long MON_RESTING = 1L << FLAGS, ENEMY_RESTING = 1L << (FLAGS + 1);
+    // Index in ITEM_LIST plus 1 of each item, 0 being no item.
+    private static final Map<String, Integer> ITEM_INDEX = new HashMap<>();
+    // Room kept free in the table, and in the edge arrays, for one more expansion: more than any expansion adds.
+    private static final int HEADROOM = 1024;
+    // The most edges kept, 12 bytes each.
+    private static final int MAX_EDGES = 1 << 21;
+    // Sweeps of the bounds between expansions, see iterate(int, int, long).
+    private static final int SWEEPS = 2;
+
+    static {
+        for (int i = 0; i < ITEM_LIST.length; i++)
+            ITEM_INDEX.put(ITEM_LIST[i].name, i + 1);
+    }
+
+    // The monsters whose battle is solved. Only read, when solve(long) starts.
+    final Monster mon, enemy;
+    // Copies of mon and enemy that the search plays on.
+    private final Monster a, b;
+    private final Outcomes rng = new Outcomes();
+    private final BattleEngine engine;
+    private final Turn turn = new Turn();
+
+    // The transposition table: slot -> state + 1, or 0 if empty.
+    private final int[] slots;
+    // Each state's key, the first of its attacks in the move arrays (-1 until it is expanded), and the least and
+    // most its chance of winning can be.
+    private final long[] keys1, keys2, keys3;
+    private final int[] firstMove;
+    private final double[] lower, upper;
+    private int size;
+    // Each attack of each expanded state: its edges, the chance it wins the battle this turn, and the chance it
+    // leaves the state as it was.
+    private int[] edgesFrom = new int[1024], edgesTo = new int[1024];
+    private double[] won = new double[1024], stays = new double[1024];
+    private int moveCount;
+    // Each edge: the state it leads to, and its chance.
+    private int[] targets = new int[8192];
+    private double[] chances = new double[8192];
+    private int edgeCount;
+
+    // The states reached from the one being solved, in the order they were reached; the solve that last reached each,
+    // and the chance of the likeliest way it was reached; the states to expand, likeliest first.
+    private final int[] order;
+    private final int[] seen;
+    private final double[] reach;
+    private int stamp;
+    private final Queue queue = new Queue();
+
+    /**
+     * Constructor for solving a battle outside of the game, where held esc items always work.
+     *
+     * @param mon   - The user's monster.
+     * @param enemy - The enemy, choosing its attacks at random.
+     */
+    BattleSolver(Monster mon, Monster enemy) {
+        this(null, mon, enemy);
+    }
+
+    /**
+     * @param user  - The user whose battle this is, or null.
+     * @param mon   - The user's monster.
+     * @param enemy - The enemy, choosing its attacks at random.
+     */
+    BattleSolver(Player user, Monster mon, Monster enemy) {
+        this.mon = mon;
+        this.enemy = enemy;
+        a = copy(mon);
+        b = copy(enemy);
+        engine = new BattleEngine(rng, user, null);
+        int capacity = 1 << TABLE_BITS;
+        slots = new int[capacity * 2];
+        keys1 = new long[capacity];
+        keys2 = new long[capacity];
+        keys3 = new long[capacity];
+        firstMove = new int[capacity];
+        lower = new double[capacity];
+        upper = new double[capacity];
+        order = new int[capacity];
+        seen = new int[capacity];
+        reach = new double[capacity];
+    }
+
+    /**
+     * Solves the battle as it stands now. The most likely states are searched first, until the answer is within
+     * PRECISION, the table is full or millis pass (the first turn is always searched).
+     *
+     * @param millis - Roughly how long it may take, in milliseconds.
+     * @return The chance of winning with each attack.
+     */
+    Solution solve(long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        if (!room(2)) // Mostly states of earlier turns: start over.
+            clear();
+        copyState(mon, a);
+        copyState(enemy, b);
+        int root = find(pack1(), pack2(), pack3());
+        stamp++;
+        seen[root] = stamp;
+        reach[root] = 1;
+        order[0] = root;
+        int count = 1, expanded = 0, check = 16;
+        queue.clear();
+        if (open(root) >= PRECISION) // Not solved by an earlier hint.
+            queue.push(1, root);
+        while (queue.size > 0) {
+            double chance = queue.topChance();
+            int state = queue.pop();
+            if (chance < reach[state]) // Found again since, more likely.
+                continue;
+            if (firstMove[state] < 0) {
+                if (expanded > 0 && System.nanoTime() > deadline || !room(1))
+                    break;
+                expand(state);
+                expanded++;
+            }
+            for (int m = firstMove[state], end = m + moves(state); m < end; m++)
+                for (int e = edgesFrom[m]; e < edgesTo[m]; e++) {
+                    int next = targets[e];
+                    double r = chance * chances[e];
+                    if (seen[next] != stamp) {
+                        seen[next] = stamp;
+                        order[count++] = next;
+                    } else if (r <= reach[next])
+                        continue;
+                    reach[next] = r;
+                    queue.push(r, next);
+                }
+            if (expanded == check) {
+                check *= 2;
+                iterate(count, SWEEPS, deadline);
+                if (open(root) < PRECISION)
+                    break;
+            }
+        }
+        iterate(count, Integer.MAX_VALUE, deadline);
+        int moves = mon.attacks.size();
+        double[] win = new double[moves], open = new double[moves];
+        for (int m = 0; m < moves; m++) {
+            int move = firstMove[root] + (a.resting ? 0 : m); // It rests whatever it chooses.
+            win[m] = value(move, lower);
+            open[m] = value(move, upper) - win[m];
+        }
+        return new Solution(win, open, size);
+    }
+
+    /**
+     * Sweeps the bounds of the first count states of order, last first, until they stop changing, time is up or
+     * sweeps sweeps are done.
+     *
+     * @param count    - How many states of order to sweep.
+     * @param sweeps   - The most sweeps to do.
+     * @param deadline - When to stop, after at least one sweep.
+     */
+    private void iterate(int count, int sweeps, long deadline) {
+        double change;
+        do {
+            change = 0;
+            for (int i = count - 1; i >= 0; i--) {
+                int state = order[i];
+                if (firstMove[state] < 0)
+                    continue;
+                double least = 0, most = 0;
+                for (int m = firstMove[state], end = m + moves(state); m < end; m++) {
+                    least = Math.max(least, value(m, lower));
+                    most = Math.max(most, value(m, upper));
+                }
+                least = Math.min(least, 1);
+                most = Math.min(most, 1);
+                change = Math.max(change, Math.max(least - lower[state], upper[state] - most));
+                lower[state] = least;
+                upper[state] = most;
+            }
+        } while (change > PRECISION / 16 && --sweeps > 0 && System.nanoTime() < deadline);
+    }
+
+    /**
+     * @param move   - An attack of an expanded state, as an index into the move arrays.
+     * @param bounds - lower or upper.
+     * @return The chance of winning by using move, given the bounds of the states it leads to.
+     */
+    private double value(int move, double[] bounds) {
+        double sum = won[move];
+        for (int e = edgesFrom[move]; e < edgesTo[move]; e++)
+            sum += chances[e] * bounds[targets[e]];
+        // Staying put with chance s and trying again: sum + s * sum + s^2 * sum + ...
+        return stays[move] >= 1 ? 0 : sum / (1 - stays[move]);
+    }
+
+    /**
+     * @param state - A state.
+     * @return How much the chance of winning from state is still undecided.
+     */
+    private double open(int state) {
+        return upper[state] - lower[state];
+    }
+
+    /**
+     * @param state - A state.
+     * @return How many attacks state has to choose from: 1 if mon is resting.
+     */
+    private int moves(int state) {
+        return (keys3[state] & MON_RESTING) != 0 ? 1 : mon.attacks.size();
+    }
+
+    /**
+     * Finds the states each attack leads to from state, adding new ones to the table.
+     *
+     * @param state - A state not expanded yet.
+     */
+    private void expand(int state) {
+        long k1 = keys1[state], k2 = keys2[state], k3 = keys3[state];
+        int moves = moves(state);
+        if (moveCount + moves > won.length) {
+            int length = Math.max(won.length * 2, moveCount + moves);
+            edgesFrom = Arrays.copyOf(edgesFrom, length);
+            edgesTo = Arrays.copyOf(edgesTo, length);
+            won = Arrays.copyOf(won, length);
+            stays = Arrays.copyOf(stays, length);
+        }
+        for (int m = 0; m < moves; m++) {
+            play(k1, k2, k3, m);
+            int move = moveCount + m;
+            won[move] = turn.won;
+            stays[move] = 0;
+            edgesFrom[move] = edgeCount;
+            if (edgeCount + turn.size > targets.length) {
+                int length = Math.max(targets.length * 2, edgeCount + turn.size);
+                targets = Arrays.copyOf(targets, length);
+                chances = Arrays.copyOf(chances, length);
+            }
+            for (int i = 0; i < turn.size; i++) {
+                int next = find(turn.keys1[i], turn.keys2[i], turn.keys3[i]);
+                if (next == state)
+                    stays[move] += turn.chances[i];
+                else {
+                    targets[edgeCount] = next;
+                    chances[edgeCount++] = turn.chances[i];
+                }
+            }
+            edgesTo[move] = edgeCount;
+        }
+        firstMove[state] = moveCount;
+        moveCount += moves;
+    }
+
+    /**
+     * @return The state with the given key, added to the table (unexpanded, its chance anywhere from 0 to 1) if new.
+     */
+    private int find(long k1, long k2, long k3) {
+        int mask = slots.length - 1;
+        for (int slot = (int) mix(k1, k2, k3) & mask; ; slot = slot + 1 & mask) {
+            int state = slots[slot] - 1;
+            if (state < 0) {
+                state = size++;
+                slots[slot] = state + 1;
+                keys1[state] = k1;
+                keys2[state] = k2;
+                keys3[state] = k3;
+                firstMove[state] = -1;
+                lower[state] = 0;
+                upper[state] = 1;
+                seen[state] = 0;
+                return state;
+            }
+            if (keys1[state] == k1 && keys2[state] == k2 && keys3[state] == k3)
+                return state;
+        }
+    }
+
+    /**
+     * @param expansions - How many expansions to make room for.
+     * @return Whether the table and the edge arrays have room for that many more expansions.
+     */
+    private boolean room(int expansions) {
+        return size + expansions * HEADROOM <= order.length && edgeCount + expansions * HEADROOM <= MAX_EDGES;
+    }
+
+    /**
+     * Empties the table.
+     */
+    private void clear() {
+        Arrays.fill(slots, 0);
+        size = moveCount = edgeCount = 0;
+    }
+
+    /**
+     * Plays one turn from a state once for every way its rolls can go, filling in turn with the states it leads to,
+     * their chances, and the chance that it wins the battle.
+     *
+     * @param k1   - The state, from pack1().
+     * @param k2   - The state, from pack2().
+     * @param k3   - The state, from pack3().
+     * @param move - The index of the attack mon uses.
+     */
+    private void play(long k1, long k2, long k3, int move) {
+        turn.clear();
+        rng.reset();
+        do {
+            unpack(k1, k2, k3);
+            rng.start();
+            boolean escaped;
+            try {
+                escaped = engine.exchange(a, move, b, MovePolicy.RANDOM);
+            } catch (Exception e) { // Only listeners throw, and the engine has none.
+                throw new IllegalStateException(e);
+            }
+            // A monster leaving, or both fainting, is not a win.
+            if (escaped || a.tempStats[HP] <= 0)
+                continue;
+            if (b.tempStats[HP] <= 0)
+                turn.won += rng.chance;
+            else
+                turn.add(pack1(), pack2(), pack3(), rng.chance);
+        } while (rng.next());
+    }
+
+    /**
+     * @return mon's HP, attack and defense.
+     */
+    private long pack1() {
+        return stats(a.tempStats[HP], a.tempStats[ATK], a.tempStats[DEF]);
+    }
+
+    /**
+     * @return mon's speed, and enemy's HP and attack.
+     */
+    private long pack2() {
+        return stats(a.tempStats[SPE], b.tempStats[HP], b.tempStats[ATK]);
+    }
+
+    /**
+     * @return enemy's defense and speed, whether each is resting, and their held items.
+     */
+    private long pack3() {
+        return stats(b.tempStats[DEF], b.tempStats[SPE], 0) |
+                (a.resting ? MON_RESTING : 0) | (b.resting ? ENEMY_RESTING : 0) |
+                (long) item(a) << (FLAGS + 2) | (long) item(b) << (FLAGS + 2 + ITEM_BITS);
+    }
+
+    /**
+     * Sets the stats, resting flags and held items of the copies to a packed state.
+     */
+    private void unpack(long k1, long k2, long k3) {
+        int[] x = a.tempStats, y = b.tempStats;
+        x[HP] = stat(k1, 0);
+        x[ATK] = stat(k1, 1);
+        x[DEF] = stat(k1, 2);
+        x[SPE] = stat(k2, 0);
+        y[HP] = stat(k2, 1);
+        y[ATK] = stat(k2, 2);
+        y[DEF] = stat(k3, 0);
+        y[SPE] = stat(k3, 1);
+        a.resting = (k3 & MON_RESTING) != 0;
+        b.resting = (k3 & ENEMY_RESTING) != 0;
+        a.holdItem = item((int) (k3 >>> (FLAGS + 2) & ITEM_MASK));
+        b.holdItem = item((int) (k3 >>> (FLAGS + 2 + ITEM_BITS) & ITEM_MASK));
+    }
+
+    private static long stats(int x, int y, int z) {
+        return (x & STAT_MASK) | (y & STAT_MASK) << STAT_BITS | (z & STAT_MASK) << (2 * STAT_BITS);
+    }
+
+    /**
+     * @param key   - Three stats, from stats(int, int, int).
+     * @param index - Which of the three.
+     * @return The stat.
+     */
+    private static int stat(long key, int index) {
+        return (int) (key << (64 - STAT_BITS * (index + 1)) >> (64 - STAT_BITS));
+    }
+
+    private static int item(Monster mon) {
+        return mon.holdItem == null ? 0 : ITEM_INDEX.getOrDefault(mon.holdItem, 0);
+    }
+
+    private static String item(int index) {
+        return index == 0 ? null : ITEM_LIST[index - 1].name;
+    }
+
+    private static long mix(long k1, long k2, long k3) {
+        long h = (k1 * 0x9E3779B97F4A7C15L ^ k2) * 0xC2B2AE3D27D4EB4FL ^ k3;
+        h *= 0x165667B19E3779F9L;
+        return h ^ h >>> 29;
+    }
+
+    /**
+     * @param mon - A monster.
+     * @return A monster with mon's stats and attacks, to play on.
+     */
+    private static Monster copy(Monster mon) {
+        Monster copy = new Monster(mon.name);
+        copy.stats = mon.stats;
+        copy.attacks = mon.attacks;
+        copy.tempStats = mon.tempStats.clone();
+        return copy;
+    }
+
+    private static void copyState(Monster from, Monster to) {
+        System.arraycopy(from.tempStats, 0, to.tempStats, 0, NUM_STATS);
+        to.resting = from.resting;
+        to.holdItem = from.holdItem;
+    }
+
+    /*
+     * What solve(long) found.
+     */
+    static final class Solution {
+
+        // The widest a chance's range can be and still be worth telling the user. A search cut short can leave it
+        // anywhere from 0 to nearly 1, which says nothing about the attack.
+        static final double MAX_OPEN = 0.2;
+
+        // For each of mon's attacks: the chance of winning by using it now and the best attack after, at least win
+        // and at most win + open.
+        final double[] win, open;
+        // The index of the attack surest to win, or of the one that might win most between those as sure.
+        final int best;
+        // The states in the table.
+        final int states;
+
+        private Solution(double[] win, double[] open, int states) {
+            this.win = win;
+            this.open = open;
+            this.states = states;
+            int best = 0;
+            for (int i = 1; i < win.length; i++)
+                if (win[i] > win[best] || win[i] == win[best] && open[i] > open[best])
+                    best = i;
+            this.best = best;
+        }
+
+        /**
+         * @param attack - The index of one of mon's attacks.
+         * @return Whether its chance is known to within MAX_OPEN.
+         */
+        boolean known(int attack) {
+            return open[attack] <= MAX_OPEN;
+        }
+
+        /**
+         * @return Whether best is known to be the best attack: its chance is known, and no attack whose chance is not
+         *         might beat it.
+         */
+        boolean decided() {
+            if (!known(best))
+                return false;
+            for (int i = 0; i < win.length; i++)
+                if (!known(i) && win[i] + open[i] > win[best])
+                    return false;
+            return true;
+        }
+    }
+
+    /*
+     * States to expand, as a binary heap with the likeliest on top.
+     */
+    private static final class Queue {
+
+        private double[] chances = new double[256];
+        private int[] states = new int[256];
+        int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        double topChance() {
+            return chances[0];
+        }
+
+        void push(double chance, int state) {
+            if (size == states.length) {
+                chances = Arrays.copyOf(chances, size * 2);
+                states = Arrays.copyOf(states, size * 2);
+            }
+            int i = size++;
+            for (int parent; i > 0 && chances[parent = (i - 1) / 2] < chance; i = parent) {
+                chances[i] = chances[parent];
+                states[i] = states[parent];
+            }
+            chances[i] = chance;
+            states[i] = state;
+        }
+
+        int pop() {
+            int top = states[0];
+            double chance = chances[--size];
+            int state = states[size], i = 0;
+            for (int child; (child = 2 * i + 1) < size; i = child) {
+                if (child + 1 < size && chances[child + 1] > chances[child])
+                    child++;
+                if (chances[child] <= chance)
+                    break;
+                chances[i] = chances[child];
+                states[i] = states[child];
+            }
+            chances[i] = chance;
+            states[i] = state;
+            return top;
+        }
+    }
+
+    /*
+     * The states one turn can lead to, each with its chance, plus the chance that the turn wins the battle.
+     */
+    private static final class Turn {
+
+        long[] keys1 = new long[16], keys2 = new long[16], keys3 = new long[16];
+        double[] chances = new double[16];
+        int size;
+        double won;
+
+        void clear() {
+            size = 0;
+            won = 0;
+        }
+
+        /**
+         * Adds chance to a state, the same state reached by other rolls being merged.
+         */
+        void add(long k1, long k2, long k3, double chance) {
+            for (int i = 0; i < size; i++)
+                if (keys1[i] == k1 && keys2[i] == k2 && keys3[i] == k3) {
+                    chances[i] += chance;
+                    return;
+                }
+            if (size == chances.length) {
+                keys1 = Arrays.copyOf(keys1, size * 2);
+                keys2 = Arrays.copyOf(keys2, size * 2);
+                keys3 = Arrays.copyOf(keys3, size * 2);
+                chances = Arrays.copyOf(chances, size * 2);
+            }
+            keys1[size] = k1;
+            keys2[size] = k2;
+            keys3[size] = k3;
+            chances[size++] = chance;
+        }
+    }
+
+    /*
+     * An Rng that, instead of rolling, takes each outcome of every roll in turn. A turn is played once per
+     * combination of outcomes: start(), play, then next() until it returns false. Rolls made through chance(int),
+     * nextInt(int) or nextBoolean() are followed, which are the only rolls attacks, items and MovePolicy.RANDOM make.
+     * Anything else (nextLong(), nextDouble()) is an ordinary roll of the Rng, so it is sampled rather than followed.
+     */
+    private static final class Outcomes extends Rng {
+
+        // The rolls of the current combination: the outcome taken, how many outcomes there are, and the percent
+        // chance of the first outcome (or -1 if they are all as likely).
+        private int[] taken = new int[16], outcomes = new int[16], percents = new int[16];
+        private int length, position;
+        // The chance of the current combination.
+        double chance;
+
+        Outcomes() {
+            super(0);
+        }
+
+        /**
+         * Starts over from the first combination.
+         */
+        void reset() {
+            length = 0;
+        }
+
+        /**
+         * Starts playing the current combination.
+         */
+        void start() {
+            position = 0;
+            chance = 1;
+        }
+
+        /**
+         * @return Whether there is another combination, which is now the current one.
+         */
+        boolean next() {
+            while (length > 0 && taken[length - 1] == outcomes[length - 1] - 1)
+                length--;
+            if (length == 0)
+                return false;
+            taken[length - 1]++;
+            return true;
+        }
+
+        /**
+         * @param count   - How many outcomes the roll has.
+         * @param percent - The percent chance of outcome 0 if there are two, or -1 if all are as likely.
+         * @return The outcome this combination takes.
+         */
+        private int roll(int count, int percent) {
+            if (position == length) {
+                if (length == taken.length) {
+                    taken = Arrays.copyOf(taken, length * 2);
+                    outcomes = Arrays.copyOf(outcomes, length * 2);
+                    percents = Arrays.copyOf(percents, length * 2);
+                }
+                taken[length] = 0;
+                outcomes[length] = count;
+                percents[length++] = percent;
+            }
+            int outcome = taken[position++];
+            chance *= percent < 0 ? 1.0 / count : outcome == 0 ? percent / 100.0 : 1 - percent / 100.0;
+            return outcome;
+        }
+
+        @Override
+        boolean chance(int percent) {
+            if (percent <= 0 || percent >= 100)
+                return percent > 0;
+            return roll(2, percent) == 0;
+        }
+
+        @Override
+        int nextInt(int bound) {
+            if (bound <= 0)
+                throw new IllegalArgumentException("bound must be positive");
+            return bound == 1 ? 0 : roll(bound, -1);
+        }
+
+        @Override
+        boolean nextBoolean() {
+            return roll(2, -1) == 0;
+        }
+    }
+}
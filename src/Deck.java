@@ -0,0 +1,61 @@
+/*
+ * Paulkia 2020.
+ * A fixed set of values from which k distinct ones can be dealt at random in O(k) time, without allocating (a
+ * partial Fisher-Yates shuffle). Each deal puts the deck back in order afterwards, also in O(k), so a deal depends only
+ * on the Rng it is given, never on the deals before it, and a seeded game deals the same way every time.
+ * Not thread-safe: each game keeps its own copy().
+ */
+class Deck {
+
+    // The values, in order between deals.
+    private final int[] cards;
+    // Where each card of the current deal was swapped from, so the deal can be undone.
+    private final int[] swaps;
+
+    /**
+     * @param values - The values to deal. Copied.
+     */
+    Deck(int[] values) {
+        cards = values.clone();
+        swaps = new int[cards.length];
+    }
+
+    /**
+     * @return A deck of the same values, for another game.
+     */
+    Deck copy() {
+        return new Deck(cards);
+    }
+
+    /**
+     * Deals min(k, size()) distinct values, each ordering being equally likely.
+     *
+     * @param out - Receives the dealt values in its first entries. Must hold at least min(k, size()) values.
+     * @param k   - How many values to deal.
+     * @param rng - The random object shuffling the deck.
+     * @return The number of values written to out.
+     */
+    int deal(int[] out, int k, Rng rng) {
+        int dealt = Math.min(k, cards.length);
+        for (int i = 0; i < dealt; i++) {
+            int j = swaps[i] = i + rng.nextInt(cards.length - i);
+            int card = cards[j];
+            cards[j] = cards[i];
+            cards[i] = card;
+            out[i] = card;
+        }
+        for (int i = dealt - 1; i >= 0; i--) {
+            int j = swaps[i], card = cards[j];
+            cards[j] = cards[i];
+            cards[i] = card;
+        }
+        return dealt;
+    }
+
+    /**
+     * @return The number of values in the deck.
+     */
+    int size() {
+        return cards.length;
+    }
+}
@@ -2,9 +2,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
-import javax.sound.sampled.*;
-
-import org.apache.commons.io.FileUtils;
 import org.json.simple.*;
 
 /*
@@ -15,12 +12,23 @@ import org.json.simple.*;
 
 class Fakeyverse {
 
+    // The data tables below, read from DATA_DIR at once on separate threads. See GameData.
+    static final GameData DATA = loadData();
     // A map from all item names (Strings) to item properties (Items, specified in DATA_DIR/Item.java)
     static final Map<String, Item> GAME_ITEMS = initItems();
     // A map from all attack names (Strings) to attack properties (Attacks, specified in DATA_DIR/Attack.java)
     static final Map<String, Attack> GAME_ATKS = initAtks();
     // An ArrayList containing all Monster signatures as Monster objects (data specified in DATA_DIR/Fakeydex.json)
     static final List<Monster> GAME_MONS = initMons();
+    // All items in GAME_ITEMS, in the same order. Lets items be referred to by index, e.g. in MonsterPool.
+    static final Item[] ITEM_LIST = GAME_ITEMS.values().toArray(new Item[0]);
+    // Draws an index of ITEM_LIST by drop rate. Index ITEM_LIST.length means no item, if drop rates add up to < 100.
+    static final AliasTable ITEM_DROPS = initItemDrops();
+    // SPAWNS[n] draws one of the first n monsters of GAME_MONS by spawn rate. SPAWNS[0] is null.
+    static final AliasTable[] SPAWNS = initSpawns();
+    // Indices in ITEM_LIST of the items sold in Fakeymarts (those that cost something). Each game deals from its own
+    // copy: see GameContext.shopStock.
+    static final Deck SHOP_STOCK = initShopStock();
 
     static final String[] STAT_TYPE = new String[]{"HP", "attack", "defense", "speed"}, // Stat types in game
             STAT_CHANGE_ADJ = new String[]{"", " sharply", " drastically"}; // Adjectives when stats are boosted
@@ -85,13 +93,15 @@ class Fakeyverse {
             CRIT_MULTIPLIER = 2, // Multiplies DEFAULT_MULTIPLIER by this when a critical hit
             EVADE_CHANCE = 5, // % Chance of partial dodge in battle
             EVADE_MULTIPLIER = 2, // Divides DEFAULT_MULTIPLIER by this when a partial dodge
+            HINT_TIME = 100, // Milliseconds a battle hint may take to solve the battle (see BattleSolver)
     // Trivial global variables
     ENEMY_FOUND = 35, // Chance of finding enemy per for loop iteration when searching for enemies
-            SAVE_DOTS = 3, // Number of dots printed when [ Autosaving... ]
+            SAVE_DOTS = 3, // Number of dots printed before Fakeyceus evolves
             SEARCH_TIME = 5, // Number of times a search is attempted before "No enemies found... > ",
             TEXT_TIME = 6;
 
-    static List<String> OLD_LADY_TEXT = new ArrayList<>(Arrays.asList(
+    // The old lady's tips, in the order she gives them. See GameContext.nextTip().
+    static final List<String> OLD_LADY_TEXT = Collections.unmodifiableList(Arrays.asList(
             "I wouldn't try stealing from the clerk if I were you. You have a " + STEAL_CHANCE + "% chance of successfully stealing,\n" +
                     "but otherwise the guards confiscate all your items and you get kicked out! Believe me, I learned the hard way.",
             "There is a " + JOIN_TEAM + "% chance of an enemy joining your team after you kill it.",
@@ -104,10 +114,27 @@ class Fakeyverse {
                     "Gosh what a horrible year."
     ));
 
-    static final Random RANDOM = new Random(); // Global random object used throughout the game
-    private static final Scanner SCAN = new Scanner(System.in); // Global scanner to interpret user input
+    // Streams the music, and all sound effects, decoded once. Played by the GameContext with sound, if any.
+    static final MusicPlayer MUSIC = MusicPlayer.open(new File(MUSIC_DIR));
+    static final SoundBank SOUNDS = SoundBank.load(new File(SFX_DIR));
+    static final SpriteStore SPRITES = SpriteStore.open(new File(DATA_DIR + "sprites.txt")); // Art of each species.
+    static final SaveWriter SAVES = new SaveWriter(new File(SAVE_DIR)); // Writes save files in the background.
+
 
-    static Clip music, sfx; // Clip objects managing sound throughout the game.
+    /**
+     * Initializes DATA by reading DATA_DIR/ItemData.json, AttackData.json and Fakeydex.json at once.
+     *
+     * @return The files, whose entries the methods below make one at a time.
+     */
+    private static GameData loadData() {
+        try {
+            return GameData.load(DATA_DIR);
+        } catch (IOException io) {
+            io.printStackTrace();
+            System.exit(0);
+            return null;
+        }
+    }
 
     /**
      * Initializes GAME_ITEMS by generating a map that maps items from their String name to their Item data.
@@ -117,16 +144,13 @@ class Fakeyverse {
      */
     private static Map<String, Item> initItems() {
         Map<String, Item> result = new TreeMap<>();
-        String saveData = "";
         try {
-            saveData = FileUtils.readFileToString(new File(DATA_DIR + "ItemData.json"), "UTF-8");
+            for (Item item : DATA.entries(GameData.ITEMS, Item::new, Item::new))
+                result.put(item.name, item);
         } catch (IOException io) {
             io.printStackTrace();
             System.exit(0);
         }
-        List<JSONObject> itemData = (ArrayList<JSONObject>) ((JSONObject) JSONValue.parse(saveData)).get("items");
-        for (JSONObject obj : itemData)
-            result.put(obj.get("name").toString(), new Item(obj));
         return result;
     }
 
@@ -138,16 +162,13 @@ class Fakeyverse {
      */
     private static Map<String, Attack> initAtks() {
         Map<String, Attack> result = new TreeMap<>();
-        String saveData = "";
         try {
-            saveData = FileUtils.readFileToString(new File(DATA_DIR + "AttackData.json"), "UTF-8");
+            for (Attack attack : DATA.entries(GameData.ATTACKS, Attack::new, Attack::new))
+                result.put(attack.name, attack);
         } catch (IOException io) {
             io.printStackTrace();
             System.exit(0);
         }
-        List<JSONObject> atkData = (ArrayList<JSONObject>) ((JSONObject) JSONValue.parse(saveData)).get("attacks");
-        for (JSONObject obj : atkData)
-            result.put(obj.get("name").toString(), new Attack(obj));
         return result;
     }
 
@@ -158,20 +179,61 @@ class Fakeyverse {
      * @return List of Fakeymon, sorted by ID.
      */
     private static List<Monster> initMons() {
-        List<Monster> result = new ArrayList<>();
-        String fakeyDex = "";
         try {
-            fakeyDex = FileUtils.readFileToString(new File(DATA_DIR + "Fakeydex.json"), "UTF-8");
+            return DATA.entries(GameData.MONS, Monster::new, Monster::new);
         } catch (IOException io) {
             io.printStackTrace();
             System.exit(0);
+            return null;
+        }
+    }
+
+    /**
+     * Initializes ITEM_DROPS from the drop rates of the items in ITEM_LIST.
+     *
+     * @return AliasTable with one more index than ITEM_LIST, for dropping no item.
+     */
+    private static AliasTable initItemDrops() {
+        int[] weights = new int[ITEM_LIST.length + 1];
+        int sum = 0;
+        for (int i = 0; i < ITEM_LIST.length; i++) {
+            weights[i] = ITEM_LIST[i].dropRate;
+            sum += weights[i];
+        }
+        weights[ITEM_LIST.length] = Math.max(0, 100 - sum);
+        return new AliasTable(weights);
+    }
+
+    /**
+     * Initializes SPAWNS from the spawn rates of the monsters in GAME_MONS.
+     *
+     * @return Array of AliasTables, one for each possible number of monsters that may be found.
+     */
+    private static AliasTable[] initSpawns() {
+        AliasTable[] result = new AliasTable[GAME_MONS.size()];
+        for (int n = 1; n < result.length; n++) {
+            int[] weights = new int[n];
+            for (int i = 0; i < n; i++)
+                weights[i] = GAME_MONS.get(i).spawnRate;
+            result[n] = new AliasTable(weights);
         }
-        List<JSONObject> monData = (ArrayList<JSONObject>) ((JSONObject) JSONValue.parse(fakeyDex)).get("Fakeydex");
-        for (JSONObject obj : monData)
-            result.add(new Monster(obj));
         return result;
     }
 
+    /**
+     * Initializes SHOP_STOCK from the prices of the items in ITEM_LIST.
+     *
+     * @return Deck of the indices of all items that cost something.
+     */
+    private static Deck initShopStock() {
+        int count = 0;
+        int[] buyable = new int[ITEM_LIST.length];
+        for (int i = 0; i < ITEM_LIST.length; i++)
+            if (ITEM_LIST[i].costs > 0)
+                buyable[count++] = i;
+        return new Deck(Arrays.copyOf(buyable, count));
+    }
+
     // Battle functions
 
     /**
@@ -184,14 +246,23 @@ class Fakeyverse {
      * @return The amount of HP that should be restored.
      */
     static int healMon(int tempHP, int maxHP, String hpRestoreValue) {
-        int hpGain;
         if (!hpRestoreValue.contains("%"))
-            hpGain = Integer.parseInt(hpRestoreValue);
-        else {
-            int percentValue = Integer.parseInt(hpRestoreValue.substring(0, hpRestoreValue.length() - 1));
-            double percentGain = percentValue / 100.0;
-            hpGain = (int) Math.round(maxHP * percentGain);
-        }
+            return healMon(tempHP, maxHP, Integer.parseInt(hpRestoreValue), false);
+        int percentValue = Integer.parseInt(hpRestoreValue.substring(0, hpRestoreValue.length() - 1));
+        return healMon(tempHP, maxHP, percentValue, true);
+    }
+
+    /**
+     * Same as healMon(int, int, String) but with the restore value already parsed.
+     *
+     * @param tempHP  - The current HP stat of the Fakeymon.
+     * @param maxHP   - The max possible HP stat of the Fakeymon.
+     * @param value   - The quantity of HP to restore, or the percent of maxHP to restore if percent is true.
+     * @param percent - Whether value is a percent of maxHP.
+     * @return The amount of HP that should be restored.
+     */
+    static int healMon(int tempHP, int maxHP, int value, boolean percent) {
+        int hpGain = percent ? (int) Math.round(maxHP * (value / 100.0)) : value;
         return tempHP >= maxHP ? 0 : Math.min(hpGain, maxHP - tempHP);
     }
 
@@ -212,178 +283,50 @@ class Fakeyverse {
      * Given an enemy monster, returns the XP gain that a winning monster should receive.
      *
      * @param mon - The defeated enemy whose stats are being read.
+     * @param rng - The random object deciding the bonus XP.
      * @return The amount of XP the winning monster should receive.
      */
-    static int generateXp(Monster mon) {
+    static int generateXp(Monster mon, Rng rng) {
         int defHP = (mon.stats[HP] + mon.stats[DEF]) / 2;
-        return defHP + RANDOM.nextInt(defHP / 2);
+        return defHP + rng.nextInt(defHP / 2);
     }
 
     /**
      * Chooses an item at random in GAME_ITEMS based on item drop rates (lower rate items will be more rare).
      *
+     * @param rng - The random object choosing the item.
      * @return The name of the item that was generated.
      */
-    static String generateItem() {
-        String item = null;
-        int location = RANDOM.nextInt(100);
-        for (Item i : GAME_ITEMS.values()) {
-            location -= i.dropRate;
-            if (location < 0) {
-                item = i.name;
-                break;
-            }
-        }
-        return item;
-    }
-
-    // Misc
-
-    /**
-     * The message displayed when a player attempts to escape from the final battle.
-     *
-     * @throws Exception When there is an issue running the ENTER_SFX Clip (discussed in comments in music(String)),
-     *                   or Thread.sleep throws InterruptedException (from p(String)).
-     */
-    static void escCeus2Msg() throws Exception {
-        p("There's no escaping a god. > ");
-        enter();
+    static String generateItem(Rng rng) {
+        int item = generateItemIndex(rng);
+        return item == -1 ? null : ITEM_LIST[item].name;
     }
 
     /**
-     * Plays a specified song.
+     * Same as generateItem(Rng) but returns the index of the item in ITEM_LIST.
      *
-     * @param songName - The name of the music file to be continuously looped (without the .wav extension).
-     * @throws Exception When the specified wav file is of an unsupported format or the system's audio device cannot
-     *                   be accessed.
+     * @param rng - The random object choosing the item.
+     * @return The index of the item that was generated, or -1 if the drop rates add up to less than 100 and no item
+     * was generated.
      */
-    static void music(String songName) throws Exception {
-        if (music != null) music.stop();
-        AudioInputStream sound = AudioSystem.getAudioInputStream(new File(MUSIC_DIR + songName + ".wav"));
-        music = AudioSystem.getClip();
-        music.open(sound);
-        music.loop(Clip.LOOP_CONTINUOUSLY);
+    static int generateItemIndex(Rng rng) {
+        int item = ITEM_DROPS.sample(rng);
+        return item == ITEM_LIST.length ? -1 : item;
     }
 
     /**
-     * Plays a specified sound effect.
+     * Chooses the species of a wild monster based on spawn rates. The more kills, the more species may be found.
+     * Fakeyceus (the last monster of GAME_MONS) is never chosen.
      *
-     * @param sfxName - The name of the sound effect file to be run (without the .wav extension).
-     * @throws Exception When the specified wav file is of an unsupported format or the system's audio device cannot
-     *                   be accessed.
+     * @param kills - The user's kills so far.
+     * @param rng   - The random object choosing the species.
+     * @return The index of the species in GAME_MONS.
      */
-    static void sfx(String sfxName) throws Exception {
-        AudioInputStream sound = AudioSystem.getAudioInputStream(new File(SFX_DIR + sfxName + ".wav"));
-        sfx = AudioSystem.getClip();
-        sfx.open(sound);
-        sfx.start();
+    static int generateMonIndex(int kills, Rng rng) {
+        return SPAWNS[Math.min(kills + FIRST_MONS, GAME_MONS.size() - 1)].sample(rng);
     }
 
-    /**
-     * Takes in a line of user input using SCAN and returns it (trimmed). Plays the ENTER_SFX sound effect.
-     *
-     * @return The input string, trimmed, from the user.
-     * @throws Exception When ENTER_SFX is unsupported or the system's audio device cannot be accessed.
-     */
-    static String enter() throws Exception {
-        String result = SCAN.nextLine().trim();
-        sfx(ENTER_SFX);
-        return result;
-    }
-
-    /**
-     * Called whenever user input is needed. Takes the first token in a line of user input and returns it.
-     * Asks for the user to confirm input. If the user confirms, the input is returned; else repeatMsg is printed.
-     *
-     * @param repeatMsg - The message that should be repeated to the user if the user provides input that the user
-     *                  is not satisfied with.
-     * @return The first token from the user input.
-     * @throws Exception if Thread.sleep is interrupted (from method p(String)) or there is an issue with running
-     *                   the ENTER_SFX clip
-     */
-    static String input(String repeatMsg) throws Exception {
-        while (true) {
-            String input = enter();
-            Scanner inputScanner = new Scanner(input);
-            if (inputScanner.hasNext()) {
-                String token = inputScanner.next();
-                p("Please confirm that you would like to use the word " + token + ". (yes/no) --> ");
-                if (confirm())
-                    return token;
-                else p(repeatMsg);
-            }
-        }
-    }
-
-    /**
-     * Called whenever user input is needed. Takes the line of user input and returns it.
-     * Asks for the user to confirm input. If the user confirms, the input is returned; else repeatMsg is printed.
-     *
-     * @param repeatMsg - The message that should be repeated to the user if the user provides input that the user
-     *                  is not satisfied with.
-     * @return The user input, trimmed by the enter() method.
-     * @throws Exception under the same conditions as input(String).
-     */
-    static String inputl(String repeatMsg) throws Exception {
-        while (true) {
-            String input = enter();
-            if (!input.isEmpty()) {
-                p("Please confirm that you would like to use the word/phrase " + input + ". (yes/no) --> ");
-                if (confirm())
-                    return input;
-                else p(repeatMsg);
-            }
-        }
-    }
-
-    /**
-     * An infinite loop that only returns a value once the user inputs (ignoring case) Strings "yes" or "no".
-     * Otherwise prints "Invalid input. Please try again. --> ".
-     *
-     * @return Whether the user inputted "yes".
-     * @throws Exception under the same conditions as input(String).
-     */
-    static Boolean confirm() throws Exception {
-        while (true) {
-            String confirm = enter();
-            if (!confirm.isEmpty()) {
-                if (confirm.equalsIgnoreCase("yes"))
-                    return true;
-                else if (confirm.equalsIgnoreCase("no"))
-                    return false;
-                else
-                    p("Invalid input. Please try again. --> ");
-            }
-        }
-    }
-
-    /**
-     * An infinite loop that only ends once the user has provided a valid input integer from ints min to max, inclusive.
-     * If boolean cancel is true, then the character X is also a valid response.
-     *
-     * @param min    - The minimum valid input from the user. This value should always be strictly positive.
-     * @param max    - The maximum valid input from the user.
-     * @param cancel - Whether (ignoring case) X is a valid input from the user.
-     * @return A user integer input from min to max, minus 1. Returns -1 if the user input was 'X' and cancel is true.
-     * @throws Exception for the same reasons as input(String).
-     */
-    static int option(int min, int max, boolean cancel) throws Exception {
-        while (true) {
-            String input = enter();
-            if (input.equalsIgnoreCase("X") && cancel)
-                return -1;
-            if (!input.isEmpty()) {
-                try {
-                    int option = Integer.parseInt(input); // Exception possible if bad user input.
-                    if (option < min || option > max)
-                        throw new Exception();
-                    return option - 1;
-                } catch (Exception e) {
-                    p("Invalid input. Please try again.\n--> ");
-                }
-            }
-        }
-    }
+    // Misc
 
     /**
      * Given a String array and a String key, uses O(N) search to find whether the key (ignoring case) exists in the
@@ -402,6 +345,49 @@ class Fakeyverse {
         return -1;
     }
 
+    /**
+     * Reads str as a decimal int, such as a choice typed by the user. Unlike Integer.parseInt, a bad str is not an
+     * exception: typos are expected here, not exceptional.
+     *
+     * @param str      - The string, such as "3" or "-12". As with Integer.parseInt, no spaces are allowed.
+     * @param fallback - What to return if str is not an int.
+     * @return The int, or fallback if str is empty, has anything but digits after an optional sign, or overflows.
+     */
+    static int parseInt(String str, int fallback) {
+        int length = str.length();
+        boolean negative = length > 0 && str.charAt(0) == '-';
+        int i = negative || length > 0 && str.charAt(0) == '+' ? 1 : 0;
+        if (i == length || length - i > 10)
+            return fallback;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = str.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
+                return fallback;
+            result = result * 10 + digit;
+        }
+        if (negative)
+            result = -result;
+        return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? fallback : (int) result;
+    }
+
+    /**
+     * @param str - A line of input.
+     * @return The first word of str (up to the first whitespace), or null if str is blank. str itself if it is one
+     * word, so most input costs no copy.
+     */
+    static String firstToken(String str) {
+        int start = 0, length = str.length();
+        while (start < length && Character.isWhitespace(str.charAt(start)))
+            start++;
+        if (start == length)
+            return null;
+        int end = start;
+        while (end < length && !Character.isWhitespace(str.charAt(end)))
+            end++;
+        return str.substring(start, end);
+    }
+
     /**
      * Given a JSONObject and a String key, returns the String value resulting from that key.
      *
@@ -461,25 +447,116 @@ class Fakeyverse {
     }
 
     /**
-     * Same as getIntFromJSON but with a Boolean as a value.
+     * Same as getIntArrFromJSON but with an int array as a value. Null elements become 0.
      *
      * @param key        - The key in the key-value pair for the value being searched for.
      * @param jsonObject - The JSON object containing the data being searched for.
      * @return null if the value is not found. Otherwise, it returns the value.
      */
-    static Boolean getBoolFromJSON(String key, JSONObject jsonObject) {
-        Object result = jsonObject.get(key);
-        return result == null ? null : Boolean.parseBoolean(result.toString());
+    static int[] getIntsFromJSON(String key, JSONObject jsonObject) {
+        if (jsonObject.get(key) == null)
+            return null;
+        List<?> list = (List<?>) jsonObject.get(key);
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = list.get(i) == null ? 0 : ((Long) list.get(i)).intValue();
+        return result;
+    }
+
+    /**
+     * Same as getIntsFromJSON but with a long array as a value. Null elements become 0.
+     *
+     * @param key        - The key in the key-value pair for the value being searched for.
+     * @param jsonObject - The JSON object containing the data being searched for.
+     * @return null if the value is not found. Otherwise, it returns the value.
+     */
+    static long[] getLongsFromJSON(String key, JSONObject jsonObject) {
+        if (jsonObject.get(key) == null)
+            return null;
+        List<?> list = (List<?>) jsonObject.get(key);
+        long[] result = new long[list.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = list.get(i) == null ? 0 : (Long) list.get(i);
+        return result;
     }
 
     /**
-     * Pauses the thread for millis milliseconds.
+     * Turns an int array into a List so that it can be saved in a JSONObject.
      *
-     * @param millis - Number of milliseconds for which the program should be paused.
-     * @throws InterruptedException if Thread.sleep(millis) is interrupted.
+     * @param arr - The array being saved.
+     * @return A new List containing the elements of arr.
      */
-    static void pause(int millis) throws InterruptedException {
-        Thread.sleep(millis);
+    static List<Integer> toList(int[] arr) {
+        List<Integer> result = new ArrayList<>(arr.length);
+        for (int value : arr)
+            result.add(value);
+        return result;
+    }
+
+    /**
+     * Same as toList(int[]) but with a long array.
+     *
+     * @param arr - The array being saved.
+     * @return A new List containing the elements of arr.
+     */
+    static List<Long> toList(long[] arr) {
+        List<Long> result = new ArrayList<>(arr.length);
+        for (long value : arr)
+            result.add(value);
+        return result;
+    }
+
+    /**
+     * Adds value to a fingerprint, such as Player.fingerprint(). Two states with the same fingerprint are treated as
+     * the same state, so for a given fingerprint so far, each value gives a different result, which every later value
+     * is mixed into in turn.
+     *
+     * @param hash  - The fingerprint so far.
+     * @param value - The next value being added.
+     * @return The new fingerprint.
+     */
+    static long fingerprint(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Same as fingerprint(long, long) but with an Object, which may be null. A String adds each of its chars and a
+     * Collection each of its elements, after their count, rather than a 32-bit hashCode() that many values share.
+     *
+     * @param hash  - The fingerprint so far.
+     * @param value - The next value being added.
+     * @return The new fingerprint.
+     */
+    static long fingerprint(long hash, Object value) {
+        if (value == null)
+            return fingerprint(hash, 0x5A5A5A5AL);
+        if (value instanceof CharSequence) {
+            CharSequence text = (CharSequence) value;
+            hash = fingerprint(hash, text.length());
+            for (int i = 0; i < text.length(); i++)
+                hash = fingerprint(hash, text.charAt(i));
+            return hash;
+        }
+        if (value instanceof Collection) {
+            hash = fingerprint(hash, ((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value)
+                hash = fingerprint(hash, element);
+            return hash;
+        }
+        return fingerprint(hash, value.hashCode());
+    }
+
+    /**
+     * Same as getIntFromJSON but with a Boolean as a value.
+     *
+     * @param key        - The key in the key-value pair for the value being searched for.
+     * @param jsonObject - The JSON object containing the data being searched for.
+     * @return null if the value is not found. Otherwise, it returns the value.
+     */
+    static Boolean getBoolFromJSON(String key, JSONObject jsonObject) {
+        Object result = jsonObject.get(key);
+        return result == null ? null : Boolean.parseBoolean(result.toString());
     }
 
     /**
@@ -501,19 +578,4 @@ class Fakeyverse {
     static String capitalize(String str) {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
-
-    /**
-     * Prints the given message with TEXT_TIME milliseconds of pause time between each character.
-     *
-     * @param message - The message to be printed to the console.
-     * @throws InterruptedException if Thread.sleep is interrupted when pausing the thread in between characters.
-     */
-    static void p(Object message) throws InterruptedException {
-        String msg = message.toString();
-        for (int i = 0; i < msg.length(); i++) {
-            System.out.print(msg.charAt(i));
-            Thread.sleep(TEXT_TIME);
-        }
-    }
-
 }
@@ -1,9 +1,6 @@
 import java.io.*;
 import java.util.*;
 
-import org.json.simple.*;
-import org.apache.commons.io.FileUtils;
-
 import javax.sound.sampled.Clip;
 
 /*
@@ -12,17 +9,52 @@ import javax.sound.sampled.Clip;
  */
 public class Game extends Fakeyverse {
 
-    private static Player user; //
+    // The game being played: its Player, input, output and sound.
+    final GameContext ctx;
+
+    /**
+     * @param ctx - The game to be played.
+     */
+    Game(GameContext ctx) {
+        this.ctx = ctx;
+    }
+
     // Main processes/scenarios
 
     /**
-     * Main method.
+     * Main method. Plays one game in this console.
      *
      * @param args (main method)
-     * @throws Exception if intro(), newGame(), Fakeyverse.music(String), or gameLoop() throw an exception.
+     * @throws Exception if play() throws an exception.
      */
     public static void main(String[] args) throws Exception {
-        user = null;
+        Metrics.start();
+        GameContext ctx = GameContext.console();
+        new Game(ctx).play();
+        ctx.close();
+        System.exit(0);
+    }
+
+    /**
+     * Plays the game from the title screen until it is over: until quit() is called.
+     *
+     * @throws Exception if intro(), newGame(), music(String), or gameLoop() throw an exception other than GameOver.
+     */
+    void play() throws Exception {
+        try {
+            title();
+        } catch (GameOver over) {
+            // The game ended normally.
+        }
+    }
+
+    /**
+     * The title screen, then the game itself.
+     *
+     * @throws Exception if intro(), newGame(), music(String), or gameLoop() throw an exception.
+     */
+    private void title() throws Exception {
+        ctx.user = null;
         music(MENU_MUSIC);
         p("\n\n\t\t\t███████   █████   ██   ██  ███████  ██    ██  ███    ███   ██████   ███    ██ \n" +
                 "\t\t\t██       ██   ██  ██  ██   ██        ██  ██   ████  ████  ██    ██  ████   ██\n" +
@@ -46,7 +78,7 @@ public class Game extends Fakeyverse {
      * @throws Exception if p(String), option(int, int, boolean), confirm(), pause(int), enter(), inputl(String),
      *                   credits(), quit() throw an exception.
      */
-    private static boolean intro() throws Exception {
+    private boolean intro() throws Exception {
         while (true) {
             p(DIVIDER);
             p("Type '1' to start a new game, '2' to open a save file, '3' to view credits, " +
@@ -55,7 +87,7 @@ public class Game extends Fakeyverse {
             if (choice == 0) {
                 p("Are you sure you would like to start a new game? (yes/no) --> ");
                 if (confirm()) {
-                    user = new Player();
+                    ctx.user = new Player();
                     p("Starting new game!\n");
                     pause(SHORT_TIME);
                     break;
@@ -66,14 +98,18 @@ public class Game extends Fakeyverse {
                             "(Write 'cancel option' to cancel.) --> ");
                     String input = inputl("Please type the username of the user you would like to load, " +
                             "or 'cancel option' to cancel. --> ");
-                    File saveFile = new File(SAVE_DIR + input.toLowerCase() + ".json");
+                    File saveFile = SAVES.file(input);
                     if (input.equalsIgnoreCase("cancel option"))
                         break;
-                    else if (saveFile.exists()) {
+                    else if (saveFile.exists() && !ctx.lock(input)) {
+                        p("That user is being played in another game. > ");
+                        enter();
+                    } else if (saveFile.exists()) {
                         try {
-                            loadFile(saveFile); // Possible exception from Player(JSONObject) constructor.
+                            loadFile(saveFile); // Possible exception from SaveCodec.load(File).
                             return true;
                         } catch (Exception e) {
+                            ctx.unlock(input);
                             e.printStackTrace();
                             p("This file data is corrupted. The game is no longer playable.\n" +
                                     "Please choose a different save file or start a new game. >");
@@ -85,7 +121,7 @@ public class Game extends Fakeyverse {
                         enter();
                     }
                 }
-                if (user != null)
+                if (ctx.user != null)
                     break;
             } else if (choice == 2) {
                 credits();
@@ -107,7 +143,7 @@ public class Game extends Fakeyverse {
      * @return True if entire newGame() sequence is completed (creating a new player), false if it is interrupted.
      * @throws Exception if enter(), input(String), p(String), option(int, int, boolean), confirm() throw an exception.
      */
-    private static boolean newGame() throws Exception {
+    private boolean newGame() throws Exception {
         p(DIVIDER
                 + "Whenever you see a '>' character at the end of a statement, please press enter to continue. >");
         enter();
@@ -120,15 +156,20 @@ public class Game extends Fakeyverse {
                 if (input.indexOf(invalid.charAt(i)) != -1)
                     input = "";
             }
-            if (!input.equals("")) {
-                user.name = input;
+            if (input.equals(""))
+                p("That username is invalid. Please choose a valid username. (Cannot contain \\/:*?\"<>|) --> ");
+            else if (!ctx.lock(input))
+                p("That user is being played in another game. Please choose a different username. --> ");
+            else {
+                ctx.user.name = input;
                 break;
-            } else p("That username is invalid. Please choose a valid username. (Cannot contain \\/:*?\"<>|) --> ");
+            }
         }
 
-        if (new File(SAVE_DIR + user.name.toLowerCase() + ".json").exists()) {
+        if (SAVES.file(ctx.user.name).exists()) {
             p("This user already exists. Are you sure you would like to overwrite this save file? (yes/no) --> ");
             if (!confirm()) {
+                ctx.unlock(ctx.user.name);
                 return false;
             }
         }
@@ -136,7 +177,7 @@ public class Game extends Fakeyverse {
         p("You get to begin the game with a starter! What would you like to name it? --> ");
         String starterName = input("Please choose a name for your starter. --> ");
         Monster mon = new Monster(starterName);
-        user.team.add(mon);
+        ctx.user.team.add(mon);
 
         p(DIVIDER +
                 "You get to start " + starterName + " off with a total of " + (START_XP + NUM_STATS * DEFAULT_STAT)
@@ -151,8 +192,8 @@ public class Game extends Fakeyverse {
         boolean dissatisfied = true;
         while (dissatisfied) {
             int tempXp = mon.xp;
-            Integer[] stats = mon.stats;
-            Integer[] tempStats = Arrays.copyOf(stats, stats.length);
+            int[] stats = mon.stats;
+            int[] tempStats = Arrays.copyOf(stats, stats.length);
             int[] statChanges = new int[NUM_STATS];
 
             for (int i = 0; i < NUM_STATS - 1 && tempXp > 0; i++) {
@@ -193,13 +234,11 @@ public class Game extends Fakeyverse {
      * Takes in a file and attempts to load user data from it.
      *
      * @param file - The file object containing user information.
-     * @throws Exception if FileUtils.readFileToString(File, String), p(String), enter() throw an exception.
+     * @throws Exception if SaveCodec.load(File), p(String), enter() throw an exception.
      */
-    private static void loadFile(File file) throws Exception {
-        String saveData = FileUtils.readFileToString(file, "UTF-8");
-        JSONObject userData = (JSONObject) JSONValue.parse(saveData);
-        user = new Player(userData);
-        p("\n\t Welcome back, " + user.name + "! > ");
+    private void loadFile(File file) throws Exception {
+        ctx.user = SaveCodec.load(file);
+        p("\n\t Welcome back, " + ctx.user.name + "! > ");
         enter();
     }
 
@@ -213,7 +252,7 @@ public class Game extends Fakeyverse {
      * @throws Exception if save(), p(String), option(int, int, boolean), battle(), monStatus(), openBag(), confirm(),
      *                   or quit() throw an exception.
      */
-    private static void gameLoop() throws Exception {
+    private void gameLoop() throws Exception {
         while (true) {
             save();
             p(DIVIDER +
@@ -232,21 +271,38 @@ public class Game extends Fakeyverse {
     }
 
     /**
-     * Manages battles against enemy mons. See more in Battle.java.
+     * Manages battles against enemy mons. See more in Battle.java. Each battle is appended to the user's journal (see
+     * BattleJournal), so it can be replayed.
      *
-     * @throws Exception if p(String), pause(int), enter(), or Battle(Player, boolean) throw an exception.
+     * @throws Exception if p(String), pause(int), enter(), or Battle(GameContext, boolean) throw an exception.
      *                   See Battle.java.
      */
-    private static void battle() throws Exception {
-        boolean fakeyceus = FAKEYCEUS_KILLS <= user.kills, enemyFound = fakeyceus;
+    private void battle() throws Exception {
+        boolean fakeyceus = FAKEYCEUS_KILLS <= ctx.user.kills, enemyFound = fakeyceus;
         for (int i = 0; i < SEARCH_TIME && !enemyFound; i++) {
             p("Searching for enemies...\n");
             pause(SHORT_TIME);
-            if (RANDOM.nextInt() < ENEMY_FOUND)
+            if (ctx.user.rng.nextInt() < ENEMY_FOUND)
                 enemyFound = true;
         }
         if (enemyFound) {
-            new Battle(user, fakeyceus);
+            BattleJournal journal = ctx.journal = BattleJournal.record(ctx.user, fakeyceus);
+            Exception ending = null;
+            try {
+                new Battle(ctx, fakeyceus);
+            } catch (Exception e) {
+                ending = e;
+                throw e;
+            } finally {
+                ctx.journal = null;
+                journal.finish(ctx.user, ending);
+                try {
+                    if (journal.complete())
+                        journal.append(SAVES.journal(ctx.user.name));
+                } catch (IOException e) {
+                    p("\n[ The battle could not be journaled: " + e.getMessage() + " ]\n");
+                }
+            }
         } else {
             p("No enemies found... > ");
             enter();
@@ -265,13 +321,13 @@ public class Game extends Fakeyverse {
      * @throws Exception if chooseMon(String, boolean), p(String), option(int, int, boolean), enter(), inputl(String),
      *                   confirm(), printBag() throw an exception.
      */
-    static void monStatus() throws Exception {
-        int monIndex = user.team.size() < 2 ?
+    void monStatus() throws Exception {
+        int monIndex = ctx.user.team.size() < 2 ?
                 0 :
                 chooseMon("Which Fakeymon's status would you like to view?\n", true);
         if (monIndex != -1) {
-            System.out.print((user.team.get(monIndex).print()));
-            Monster mon = user.team.get(monIndex);
+            print(ctx.user.team.get(monIndex).print());
+            Monster mon = ctx.user.team.get(monIndex);
             while (true) {
                 p("Type '1' to put " + mon.name + " at the front of your party, " +
                         "'2' to rename " + mon.name + ", '3' to " +
@@ -279,11 +335,11 @@ public class Game extends Fakeyverse {
                         " item, or 'X' to exit.\n--> ");
                 int action = option(1, 3, true);
                 if (action == 0) {
-                    if (user.team.get(0).equals(mon))
+                    if (ctx.user.team.get(0).equals(mon))
                         p(mon.name + " is already at the front of your party. > ");
                     else {
-                        user.team.remove(mon);
-                        user.team.add(0, mon);
+                        ctx.user.team.remove(mon);
+                        ctx.user.team.add(0, mon);
                         p(mon.name + " is now at the front of your party. > ");
                     }
                     enter();
@@ -299,10 +355,10 @@ public class Game extends Fakeyverse {
                     }
                 } else if (action == 2)
                     if (mon.holdItem != null) {
-                        if (user.bag.size() < user.bagSize) {
+                        if (ctx.user.bag.size() < ctx.user.bagSize) {
                             String item = mon.holdItem;
                             mon.holdItem = null;
-                            user.bag.add(item);
+                            ctx.user.bag.add(item);
                             p("Took the " + item + " from " + mon.name + ". > ");
                             enter();
                         } else {
@@ -312,26 +368,26 @@ public class Game extends Fakeyverse {
                                 printBag();
                                 p("Which item would you like to give " + mon.name + " instead of the " + mon.holdItem +
                                         "?\n('X' to cancel.) --> ");
-                                int option = option(1, user.bagSize, true);
+                                int option = option(1, ctx.user.bagSize, true);
                                 if (option != -1) {
                                     String heldItem = mon.holdItem;
-                                    mon.holdItem = user.bag.remove(option);
-                                    user.bag.add(heldItem);
+                                    mon.holdItem = ctx.user.bag.remove(option);
+                                    ctx.user.bag.add(heldItem);
                                     p("Took the " + heldItem + " from " + mon.name + " and handed it a(n) " +
                                             mon.holdItem + ". > ");
                                     enter();
                                 }
                             }
                         }
-                    } else if (user.bag.size() == 0) {
+                    } else if (ctx.user.bag.size() == 0) {
                         p("You have no items. > ");
                         enter();
                     } else {
                         printBag();
                         p("Which item would you like to give " + mon.name + "? ('X' to cancel.) --> ");
-                        int option = option(1, user.bagSize, true);
+                        int option = option(1, ctx.user.bagSize, true);
                         if (option != -1) {
-                            mon.holdItem = user.bag.remove(option);
+                            mon.holdItem = ctx.user.bag.remove(option);
                             p("Handed the " + mon.holdItem + " to " + mon.name + ". > ");
                             enter();
                         }
@@ -352,39 +408,39 @@ public class Game extends Fakeyverse {
      * @throws Exception if p(String), enter(), printBag(), option(int, int, boolean), chooseMon(String, boolean),
      *                   Item.use(Player) throw an exception.
      */
-    private static void openBag() throws Exception {
-        if (user.bag.size() == 0) {
+    private void openBag() throws Exception {
+        if (ctx.user.bag.size() == 0) {
             p("You have no items. > ");
             enter();
         } else while (true) {
             printBag();
             p("Type the index of the item you would like to select, or type 'X' to cancel. --> ");
-            int index = option(1, user.bagSize, true);
+            int index = option(1, ctx.user.bagSize, true);
             if (index != -1) {
-                if (index >= user.bag.size()) {
+                if (index >= ctx.user.bag.size()) {
                     p("This slot is empty. > ");
                     enter();
                 } else {
-                    Item item = GAME_ITEMS.get(user.bag.get(index));
+                    Item item = GAME_ITEMS.get(ctx.user.bag.get(index));
                     p("Would you like to '1' use the item, '2' give it to a mon, or '3' trash the item?\n" +
                             "('X' to cancel.) --> ");
                     int choice = option(1, 3, true);
                     if (choice == 0 && usable(item)) {
                         if (item.use % 2 == 1) {
                             int mon = chooseMon("On which mon would you like to use this item?\n", true);
-                            if (mon != -1 && item.use(user, user.team.get(mon), true))
-                                user.bag.remove(item.name);
-                        } else if (item.use(user))
-                            user.bag.remove(item.name);
+                            if (mon != -1 && item.use(ctx, ctx.user.team.get(mon), true))
+                                ctx.user.bag.remove(item.name);
+                        } else if (item.use(ctx))
+                            ctx.user.bag.remove(item.name);
                     } else if (choice == 0) {
                         p("This item cannot be used here. > ");
                         enter();
                     } else if (choice == 1) {
                         int mon = chooseMon("Which mon would you like to hand this item to?\n", true);
                         if (mon != -1) {
-                            Monster monster = user.team.get(mon);
+                            Monster monster = ctx.user.team.get(mon);
                             if (monster.holdItem == null) {
-                                user.bag.remove(item.name);
+                                ctx.user.bag.remove(item.name);
                                 monster.holdItem = item.name;
                                 p("Handed the " + item.name + " to " + monster.name + ". > ");
                                 enter();
@@ -393,16 +449,16 @@ public class Game extends Fakeyverse {
                                         ". Would you like to swap these items? (yes/no) --> ");
                                 if (confirm()) {
                                     String monItem = monster.holdItem;
-                                    user.bag.remove(item.name);
+                                    ctx.user.bag.remove(item.name);
                                     monster.holdItem = item.name;
-                                    user.bag.add(monItem);
+                                    ctx.user.bag.add(monItem);
                                 }
                             }
                         }
                     } else if (choice == 2) {
                         p("Are you sure you want to trash the " + item.name + "? (yes/no) --> ");
                         if (confirm()) {
-                            p("Tossed the " + user.bag.remove(item.name) + ". > ");
+                            p("Tossed the " + ctx.user.bag.remove(item.name) + ". > ");
                             enter();
                         }
                     }
@@ -417,7 +473,7 @@ public class Game extends Fakeyverse {
      * @param item - The item which we are evaluating.
      * @return False if the item is null or the item can only be used in battle. True otherwise.
      */
-    private static boolean usable(Item item) {
+    private boolean usable(Item item) {
         return item != null && item.use != 3 && item.use != 4;
     }
 
@@ -425,16 +481,16 @@ public class Game extends Fakeyverse {
      * Prints out the user's bag in a clear, human-readable way, and provides indices for the player to select items
      * if desired.
      *
-     * @throws Exception if p(String) throws an exception, or Thread.sleep(long) throws an InterruptedException.
+     * @throws Exception if p(String) throws an exception.
      */
-    static void printBag() throws Exception {
-        p("- - Bag: - -\nBalance: $" + user.money + "\n");
-        for (int i = 0; i < user.bagSize; i++) {
-            if (i >= user.bag.size())
-                System.out.print(i + 1 + ")\t[ empty ]\n");
+    void printBag() throws Exception {
+        p("- - Bag: - -\nBalance: $" + ctx.user.money + "\n");
+        for (int i = 0; i < ctx.user.bagSize; i++) {
+            if (i >= ctx.user.bag.size())
+                print(i + 1 + ")\t[ empty ]\n");
             else
-                System.out.print(i + 1 + ")\t" + GAME_ITEMS.get(user.bag.get(i)).print() + "\n");
-            Thread.sleep(TEXT_TIME);
+                print(i + 1 + ")\t" + GAME_ITEMS.get(ctx.user.bag.get(i)).print() + "\n");
+            pause(TEXT_TIME);
         }
     }
 
@@ -445,18 +501,17 @@ public class Game extends Fakeyverse {
      * @param msg    - The message that should be printed to the user before printing the user's team.
      * @param cancel - Whether the user is allowed to cancel choosing a monster via the input 'X'.
      * @return The index of the mon that the user aims to select.
-     * @throws Exception if Thread.sleep(long) throws an InterruptedException, or p(), option(int, int, boolean) throw
-     *                   an exception.
+     * @throws Exception if p(), option(int, int, boolean) throw an exception.
      */
-    static int chooseMon(String msg, boolean cancel) throws Exception {
-        List<Monster> team = user.team;
+    int chooseMon(String msg, boolean cancel) throws Exception {
+        List<Monster> team = ctx.user.team;
         p(msg);
         for (int i = 0; i < team.size(); i++) {
-            Monster otherMon = user.team.get(i);
-            System.out.print("'" + (i + 1) + "' | " + otherMon.name + " (" + otherMon.tempStats[HP] + "/" +
+            Monster otherMon = ctx.user.team.get(i);
+            print("'" + (i + 1) + "' | " + otherMon.name + " (" + otherMon.tempStats[HP] + "/" +
                     otherMon.stats[HP] + " HP, " + otherMon.stats[ATK] + " atk, " +
                     otherMon.stats[DEF] + " def, " + otherMon.stats[SPE] + " speed)\n");
-            Thread.sleep(TEXT_TIME);
+            pause(TEXT_TIME);
         }
         if (cancel)
             p("'X' to cancel.\n--> ");
@@ -467,22 +522,22 @@ public class Game extends Fakeyverse {
     // Misc
 
     /**
-     * Called in each iteration of gameLoop(). Saves user's data to SAVE_DIR + user.name + .json.
-     * Prints [ Autosaving... ]
+     * Called in each iteration of gameLoop(). Queues user's data to be saved to SAVE_DIR + user.name + .json if it
+     * changed since the last save, and prints [ Autosaving... ]. The file is written in the background; see SaveWriter.
      *
-     * @throws Exception if PrintStream(File) throws a FileNotFoundException, p(String), pause(int) throw an exception.
+     * @throws Exception if p(String) throws an exception.
      */
-    private static void save() throws Exception {
-        PrintStream saveStream = new PrintStream(new File(SAVE_DIR +
-                user.name.toLowerCase() + ".json"));
-        saveStream.print(user.toJSON());
-
-        p("\n[ Autosaving");
-        for (int i = 0; i < SAVE_DOTS; i++) {
-            System.out.print(".");
-            pause(SHORT_TIME);
+    private void save() throws Exception {
+        long start = System.nanoTime();
+        try {
+            if (!SAVES.save(ctx.user))
+                return;
+        } catch (IOException e) {
+            p("\n[ The last autosave failed: " + e.getMessage() + " ]");
+        } finally {
+            Metrics.SAVE_TIME.observeNanos(System.nanoTime() - start);
         }
-        p(" ]\n");
+        p("\n[ Autosaving... ]\n");
     }
 
     /**
@@ -490,7 +545,7 @@ public class Game extends Fakeyverse {
      *
      * @throws Exception if p(String) throws an exception.
      */
-    private static void credits() throws Exception {
+    private void credits() throws Exception {
         String[] credits = ("- - - - - - - - - - - - - - - [ Credits ] - - - - - - - - - - - - - - - -\n" +
                 "| Developer\t\t//\tPaulkia https://github.com/paulkia\t|\n" +
                 "| Assist. Design\t//\tMax\t\t\t\t\t|\n" +
@@ -509,8 +564,8 @@ public class Game extends Fakeyverse {
                 "|\t\t\t//\tS. Lemmings\t\t\t\t|\n" +
                 "- - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -\n").split("\n");
         for (int i = 0; i < credits.length; i++) {
-            System.out.println(credits[i]);
-            Thread.sleep(TEXT_TIME);
+            print(credits[i] + NL);
+            pause(TEXT_TIME);
         }
     }
 
@@ -519,13 +574,102 @@ public class Game extends Fakeyverse {
      *
      * @throws Exception if p(String), pause(int), credits(), enter() throw an exception.
      */
-    static void quit() throws Exception {
+    void quit() throws Exception {
         p("Thank you for playing Fakeymon.\n");
         pause(SHORT_TIME);
         credits();
         p("> ");
         enter();
-        System.exit(0);
+        throw new GameOver("quit");
+    }
+
+    // Input and output, all through ctx. See GameContext for what each does.
+
+    /**
+     * @param message - Typed out to the player.
+     */
+    void p(Object message) {
+        ctx.p(message);
+    }
+
+    /**
+     * @param message - Printed to the player all at once.
+     */
+    void print(Object message) {
+        ctx.print(message);
+    }
+
+    /**
+     * @param millis - Number of milliseconds for which the text should be paused.
+     */
+    void pause(int millis) {
+        ctx.pause(millis);
+    }
+
+    /**
+     * @param songName - The song to loop, or null to stop the music.
+     */
+    void music(String songName) {
+        ctx.music(songName);
+    }
+
+    /**
+     * @param sfxName - The sound effect to play.
+     */
+    void sfx(String sfxName) {
+        ctx.sfx(sfxName);
+    }
+
+    /**
+     * @return A line of input, trimmed.
+     * @throws Exception When input cannot be read.
+     */
+    String enter() throws Exception {
+        return ctx.enter();
+    }
+
+    /**
+     * @param repeatMsg - Printed if the player does not confirm.
+     * @return The first word of a confirmed line of input.
+     * @throws Exception When input cannot be read.
+     */
+    String input(String repeatMsg) throws Exception {
+        return ctx.input(repeatMsg);
+    }
+
+    /**
+     * @param repeatMsg - Printed if the player does not confirm.
+     * @return A confirmed line of input.
+     * @throws Exception When input cannot be read.
+     */
+    String inputl(String repeatMsg) throws Exception {
+        return ctx.inputl(repeatMsg);
+    }
+
+    /**
+     * @return Whether the player answered yes.
+     * @throws Exception When input cannot be read.
+     */
+    Boolean confirm() throws Exception {
+        return ctx.confirm();
+    }
+
+    /**
+     * @param min    - The minimum valid input.
+     * @param max    - The maximum valid input.
+     * @param cancel - Whether X is a valid input.
+     * @return The input minus 1, or -1 for X.
+     * @throws Exception When input cannot be read.
+     */
+    int option(int min, int max, boolean cancel) throws Exception {
+        return ctx.option(min, max, cancel);
+    }
+
+    /**
+     * @throws Exception When input cannot be read.
+     */
+    void escCeus2Msg() throws Exception {
+        ctx.escCeus2Msg();
     }
 
 }
@@ -0,0 +1,371 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.NoSuchElementException;
+
+/*
+ * Paulkia 2020.
+ * Everything that belongs to one game rather than to the program: its Player, where its input comes from and its
+ * text goes, whether it plays sound, its Rng for cosmetic choices and how far the old lady has got through her tips.
+ * Game, Battle, Attack and Item take it wherever they print or read, so many games (or headless simulations) can run
+ * in one JVM, sharing only the data tables of Fakeyverse, which are never changed.
+ */
+class GameContext extends Fakeyverse {
+
+    // The player of this game. Null until a game is started or loaded.
+    Player user;
+    // Random object for anything not tied to the Player, such as cosmetic message choices. Gameplay rolls use the
+    // Player's own Rng (Player.rng) or one split from it, so they can be saved and replayed.
+    final Rng random;
+
+    // The lines typed by the player; draws all of the game's text. Both null if headless.
+    private final InputQueue in;
+    private final Renderer renderer;
+    // Whether this game plays MUSIC and SOUNDS. Only one game per JVM can: there is one audio device.
+    private final boolean sound;
+    // Index in OLD_LADY_TEXT of the old lady's next tip.
+    private int tip;
+    // This game's copy of SHOP_STOCK, which Fakeymarts deal their stock from. A Deck is not thread-safe.
+    final Deck shopStock = SHOP_STOCK.copy();
+    // Records the player's answers during a battle, or gives them back when a headless game replays one. Null
+    // outside battles.
+    BattleJournal journal;
+
+    /**
+     * @param in    - Where the input comes from.
+     * @param out   - Where the text goes.
+     * @param mode  - Whether text is typed out or printed at once. See Renderer.
+     * @param sound - Whether this game plays music and sound effects.
+     */
+    GameContext(InputStream in, PrintStream out, Renderer.Mode mode, boolean sound) {
+        this(in, new Renderer(mode, TEXT_TIME, out), sound);
+    }
+
+    /**
+     * @param in       - Where the input comes from.
+     * @param renderer - Draws the text.
+     * @param sound    - Whether this game plays music and sound effects.
+     */
+    GameContext(InputStream in, Renderer renderer, boolean sound) {
+        this(InputQueue.of(in), renderer, sound);
+    }
+
+    /**
+     * @param in       - The lines typed by the player, fed by whatever receives them (such as SocketPump).
+     * @param renderer - Draws the text.
+     * @param sound    - Whether this game plays music and sound effects.
+     */
+    GameContext(InputQueue in, Renderer renderer, boolean sound) {
+        this.in = in;
+        this.renderer = renderer;
+        this.sound = sound;
+        random = new Rng();
+    }
+
+    /**
+     * Constructor for headless games, such as simulations and benchmarks.
+     *
+     * @param random - The random object for cosmetic choices.
+     */
+    private GameContext(Rng random) {
+        this.in = null;
+        this.renderer = null;
+        this.sound = false;
+        this.random = random;
+    }
+
+    /**
+     * @return The game played in this console: System.in and System.out, with sound.
+     */
+    static GameContext console() {
+        return new GameContext(System.in, System.out, Renderer.defaultMode(), true);
+    }
+
+    /**
+     * @param random - The random object for cosmetic choices.
+     * @return A game with no input, output or sound: p(), enter(), sfx(), music() and pause() do nothing.
+     */
+    static GameContext headless(Rng random) {
+        return new GameContext(random);
+    }
+
+    /**
+     * @return Whether this game has no input or output.
+     */
+    boolean headless() {
+        return renderer == null;
+    }
+
+    /**
+     * Locks the save file of name for this game. See SaveWriter.lock(String, Object).
+     *
+     * @param name - A Player's name.
+     * @return Whether this game now holds the lock, false if another game is playing this save.
+     * @throws IOException if the lock file cannot be created.
+     */
+    boolean lock(String name) throws IOException {
+        return SAVES.lock(name, this);
+    }
+
+    /**
+     * Releases the lock this game holds on the save file of name, if it holds it. See SaveWriter.unlock(String,
+     * Object).
+     *
+     * @param name - A Player's name.
+     */
+    void unlock(String name) {
+        SAVES.unlock(name, this);
+    }
+
+    /**
+     * Ends this game: draws what is left of its text, stops its renderer and releases its save files once their queued
+     * saves are written.
+     */
+    void close() {
+        if (renderer != null) {
+            try {
+                renderer.sync();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            renderer.close();
+        }
+        SAVES.unlock(this);
+    }
+
+    /**
+     * @return The old lady's next tip. She goes through OLD_LADY_TEXT in order, then starts over.
+     */
+    String nextTip() {
+        String result = OLD_LADY_TEXT.get(tip);
+        tip = (tip + 1) % OLD_LADY_TEXT.size();
+        return result;
+    }
+
+    /**
+     * The message displayed when a player attempts to escape from the final battle.
+     *
+     * @throws Exception When there is an issue reading input (from enter()).
+     */
+    void escCeus2Msg() throws Exception {
+        p("There's no escaping a god. > ");
+        enter();
+    }
+
+    /**
+     * Switches to a specified song, once the text printed so far has been drawn. The song loops until the next
+     * switch, and picks up where it left off if it was interrupted before.
+     *
+     * @param songName - The name of the music file to be continuously looped (without the .wav extension), or null
+     *                 to stop the music.
+     */
+    void music(String songName) {
+        if (!sound) return;
+        renderer.then(() -> MUSIC.play(songName));
+    }
+
+    /**
+     * Plays a specified sound effect, once the text printed so far has been drawn.
+     *
+     * @param sfxName - The name of the sound effect file to be run (without the .wav extension).
+     */
+    void sfx(String sfxName) {
+        if (!sound) return;
+        renderer.sound(() -> SOUNDS.play(sfxName));
+    }
+
+    /**
+     * Takes in a line of user input and returns it (trimmed). Plays the ENTER_SFX sound effect.
+     * If text was still being typed out, the line instead finishes drawing it at once; an empty line is then
+     * only taken as "skip", and the next line is read.
+     *
+     * @return The input string, trimmed, from the user. Always empty when headless.
+     * @throws Exception When input cannot be read: NoSuchElementException if the input ended.
+     */
+    String enter() throws Exception {
+        if (headless()) {
+            if (replaying())
+                journal.enter();
+            return "";
+        }
+        String result = line();
+        if (journal != null)
+            journal.entered();
+        return result;
+    }
+
+    /**
+     * Called whenever user input is needed. Takes the first token in a line of user input and returns it.
+     * Asks for the user to confirm input. If the user confirms, the input is returned; else repeatMsg is printed.
+     *
+     * @param repeatMsg - The message that should be repeated to the user if the user provides input that the user
+     *                  is not satisfied with.
+     * @return The first token from the user input.
+     * @throws Exception When input cannot be read (from enter()).
+     */
+    String input(String repeatMsg) throws Exception {
+        if (replaying())
+            return journal.text();
+        while (true) {
+            String token = firstToken(line());
+            if (token != null) {
+                p("Please confirm that you would like to use the word " + token + ". (yes/no) --> ");
+                if (yesOrNo())
+                    return journal == null ? token : journal.text(token);
+                else p(repeatMsg);
+            }
+        }
+    }
+
+    /**
+     * Called whenever user input is needed. Takes the line of user input and returns it.
+     * Asks for the user to confirm input. If the user confirms, the input is returned; else repeatMsg is printed.
+     *
+     * @param repeatMsg - The message that should be repeated to the user if the user provides input that the user
+     *                  is not satisfied with.
+     * @return The user input, trimmed by the enter() method.
+     * @throws Exception under the same conditions as input(String).
+     */
+    String inputl(String repeatMsg) throws Exception {
+        if (replaying())
+            return journal.text();
+        while (true) {
+            String input = line();
+            if (!input.isEmpty()) {
+                p("Please confirm that you would like to use the word/phrase " + input + ". (yes/no) --> ");
+                if (yesOrNo())
+                    return journal == null ? input : journal.text(input);
+                else p(repeatMsg);
+            }
+        }
+    }
+
+    /**
+     * An infinite loop that only returns a value once the user inputs (ignoring case) Strings "yes" or "no".
+     * Otherwise prints "Invalid input. Please try again. --> ".
+     *
+     * @return Whether the user inputted "yes".
+     * @throws Exception under the same conditions as input(String).
+     */
+    Boolean confirm() throws Exception {
+        if (replaying())
+            return journal.confirm();
+        boolean confirm = yesOrNo();
+        return journal == null ? confirm : journal.confirm(confirm);
+    }
+
+    /**
+     * An infinite loop that only ends once the user has provided a valid input integer from ints min to max, inclusive.
+     * If boolean cancel is true, then the character X is also a valid response.
+     *
+     * @param min    - The minimum valid input from the user. This value should always be strictly positive.
+     * @param max    - The maximum valid input from the user.
+     * @param cancel - Whether (ignoring case) X is a valid input from the user.
+     * @return A user integer input from min to max, minus 1. Returns -1 if the user input was 'X' and cancel is true.
+     * @throws Exception for the same reasons as input(String).
+     */
+    int option(int min, int max, boolean cancel) throws Exception {
+        if (replaying())
+            return journal.option();
+        while (true) {
+            String input = line();
+            if (input.equalsIgnoreCase("X") && cancel)
+                return journal == null ? -1 : journal.option(-1);
+            if (!input.isEmpty()) {
+                int option = parseInt(input, min - 1);
+                if (option >= min && option <= max)
+                    return journal == null ? option - 1 : journal.option(option - 1);
+                p("Invalid input. Please try again.\n--> ");
+            }
+        }
+    }
+
+    /**
+     * @return Whether a battle is being replayed, so its answers come from the journal.
+     */
+    private boolean replaying() {
+        return journal != null && journal.replaying();
+    }
+
+    /**
+     * Reads the next line for enter() and the other questions, which record only their answer in the journal.
+     *
+     * @return The input string, trimmed, from the user.
+     * @throws Exception When input cannot be read: NoSuchElementException if the input ended.
+     */
+    private String line() throws Exception {
+        if (headless()) return "";
+        while (true) {
+            String line;
+            try {
+                line = in.take();
+            } catch (InterruptedException e) {
+                if (journal != null)
+                    journal.ended();
+                throw e;
+            }
+            if (line == null) {
+                if (journal != null)
+                    journal.ended();
+                throw new NoSuchElementException("The input ended.");
+            }
+            String result = line.trim();
+            boolean skipped = renderer.busy();
+            renderer.skip();
+            if (!skipped || !result.isEmpty()) {
+                sfx(ENTER_SFX);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the user inputted "yes", as confirm(), without recording the answer.
+     * @throws Exception under the same conditions as input(String).
+     */
+    private boolean yesOrNo() throws Exception {
+        while (true) {
+            String confirm = line();
+            if (!confirm.isEmpty()) {
+                if (confirm.equalsIgnoreCase("yes"))
+                    return true;
+                else if (confirm.equalsIgnoreCase("no"))
+                    return false;
+                else
+                    p("Invalid input. Please try again. --> ");
+            }
+        }
+    }
+
+    /**
+     * Pauses the text for millis milliseconds: anything printed afterwards appears that much later. The game itself
+     * carries on without waiting.
+     *
+     * @param millis - Number of milliseconds for which the text should be paused.
+     */
+    void pause(int millis) {
+        if (headless()) return;
+        renderer.pause(millis);
+    }
+
+    /**
+     * Types out the given message with TEXT_TIME milliseconds between each character, after any text still being
+     * typed. Returns at once; the renderer draws the message on its own thread.
+     *
+     * @param message - The message to be printed to the console.
+     */
+    void p(Object message) {
+        if (headless()) return;
+        renderer.type(message.toString());
+    }
+
+    /**
+     * Prints the given message all at once (e.g. ascii art and lists), after any text still being typed.
+     *
+     * @param message - The message to be printed to the console.
+     */
+    void print(Object message) {
+        if (headless()) return;
+        renderer.print(message.toString());
+    }
+}
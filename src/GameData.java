@@ -0,0 +1,417 @@
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/*
+ * Paulkia 2020.
+ * Reads the game's data tables (items, attacks and the Fakeydex) for Fakeyverse. The three files are read at once on
+ * separate threads, then Fakeyverse makes their entries into Items, Attacks and Monsters with entries(...), straight
+ * from the bytes with a JsonReader, one entry at a time. That has to happen on the thread loading Fakeyverse, since
+ * a thread touching a Fakeyverse subclass would wait for Fakeyverse to finish loading, which waits for this. For the
+ * same reason this class does not extend Fakeyverse.
+ * With -Dfakeymon.snapshot=true, the tables are also saved to SNAPSHOT in a binary form that loads without parsing
+ * any JSON. The next start loads the snapshot instead, as long as the hash of each JSON file still matches the one
+ * saved with it (its length and CRC-32C, which are far quicker to check than to parse the file). With
+ * -Dfakeymon.timings=true, how long each table took is printed once all three are made.
+ */
+class GameData {
+
+    // Files of the tables, in DATA_DIR, and the key of the list of entries in each.
+    static final String[] FILES = {"ItemData.json", "AttackData.json", "Fakeydex.json"},
+            KEYS = {"items", "attacks", "Fakeydex"};
+    static final int ITEMS = 0, ATTACKS = 1, MONS = 2;
+    // Snapshot of the tables, in DATA_DIR.
+    static final String SNAPSHOT = "tables.snapshot";
+
+    private static final byte[] MAGIC = {'F', 'K', 'D', 'S'};
+    private static final int VERSION = 1;
+    // Value types in a snapshot.
+    private static final int NULL = 0, FALSE = 1, TRUE = 2, LONG = 3, DOUBLE = 4, STRING = 5, ARRAY = 6, OBJECT = 7;
+
+    // The contents of each file, indexed by ITEMS, ATTACKS and MONS, or null once its entries are made.
+    private final CompletableFuture<byte[]>[] files;
+    // The entries of each table if they came from the snapshot, null otherwise.
+    private final List<JSONObject>[] snapshot;
+    // Nanoseconds each table took to make (and decode from the snapshot), then the total including reading the files.
+    private final long[] nanos;
+    // When load(String) started, and how many tables have been made since.
+    private final long start;
+    private int made;
+
+    private GameData(CompletableFuture<byte[]>[] files, List<JSONObject>[] snapshot, long[] nanos, long start) {
+        this.files = files;
+        this.snapshot = snapshot;
+        this.nanos = nanos;
+        this.start = start;
+    }
+
+    /*
+     * Makes one entry of a table, such as Item(JsonReader).
+     */
+    interface Reader<T> {
+        /**
+         * @param in - Reader at the start of the entry's object.
+         * @return The entry.
+         * @throws IOException if the entry is malformed.
+         */
+        T read(JsonReader in) throws IOException;
+    }
+
+    /**
+     * Makes the entries of table and forgets the file, so it can be garbage collected.
+     *
+     * @param table    - ITEMS, ATTACKS or MONS.
+     * @param reader   - Makes an entry from the file, such as Item(JsonReader).
+     * @param fromTree - Makes an entry from the snapshot, such as Item(JSONObject).
+     * @return The entries, in the order of the file.
+     * @throws IOException if the file cannot be read, or is malformed (the message says where).
+     */
+    <T> List<T> entries(int table, Reader<T> reader, Function<JSONObject, T> fromTree) throws IOException {
+        long begin = System.nanoTime();
+        List<T> result = new ArrayList<>();
+        if (snapshot != null) {
+            for (JSONObject entry : snapshot[table])
+                result.add(fromTree.apply(entry));
+            snapshot[table] = null;
+        } else {
+            JsonReader in = new JsonReader(join(files[table]), FILES[table]);
+            boolean found = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals(KEYS[table])) {
+                    in.skipValue();
+                    continue;
+                }
+                found = true;
+                in.beginArray();
+                while (in.hasNext())
+                    result.add(reader.read(in));
+                in.endArray();
+            }
+            in.endObject();
+            if (!found)
+                throw in.error("no list of " + KEYS[table]);
+        }
+        files[table] = null;
+        nanos[table] += System.nanoTime() - begin;
+        Metrics.DATA_LOAD_TIME[table].setNanos(nanos[table]);
+        if (++made == FILES.length) {
+            nanos[made] = System.nanoTime() - start;
+            Metrics.DATA_LOAD_TIME[made].setNanos(nanos[made]);
+            if (Boolean.getBoolean("fakeymon.timings"))
+                System.err.println(timings());
+        }
+        return result;
+    }
+
+    /**
+     * @return How long each table took, e.g. 'Loaded items in 3 ms, attacks in 2 ms, Fakeydex in 9 ms (9 ms total)'.
+     */
+    String timings() {
+        StringBuilder result = new StringBuilder("Loaded");
+        for (int i = 0; i < FILES.length; i++)
+            result.append(i == 0 ? " " : ", ").append(KEYS[i]).append(" in ").append(millis(nanos[i]));
+        result.append(snapshot != null ? " from the snapshot" : "").append(" (").append(millis(nanos[FILES.length]))
+                .append(" total)");
+        return result.toString();
+    }
+
+    /**
+     * @param nanos - A duration in nanoseconds.
+     * @return The duration in milliseconds, such as '2.5 ms'.
+     */
+    private static String millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0 + " ms";
+    }
+
+    /**
+     * Starts reading every file at once, and reads the snapshot if it is enabled and up to date.
+     *
+     * @param dir - DATA_DIR.
+     * @return The tables, to be made with entries(...).
+     * @throws IOException if the snapshot is enabled and a file cannot be read.
+     */
+    static GameData load(String dir) throws IOException {
+        long start = System.nanoTime();
+        int count = FILES.length;
+        // An array of a generic type can only be created raw; every element is set just below.
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<byte[]>[] files = new CompletableFuture[count];
+        for (int i = 0; i < count; i++) {
+            File file = new File(dir + FILES[i]);
+            files[i] = CompletableFuture.supplyAsync(() -> read(file));
+        }
+
+        long[] nanos = new long[count + 1];
+        List<JSONObject>[] snapshot = null;
+        if (Boolean.getBoolean("fakeymon.snapshot")) {
+            byte[][] contents = new byte[count][];
+            long[] hashes = new long[count];
+            for (int i = 0; i < count; i++)
+                hashes[i] = hash(contents[i] = join(files[i]));
+            snapshot = readSnapshot(new File(dir + SNAPSHOT), hashes, nanos);
+            if (snapshot == null)
+                writeSnapshot(new File(dir + SNAPSHOT), hashes, contents);
+        }
+        return new GameData(files, snapshot, nanos, start);
+    }
+
+    /**
+     * @param file - A file.
+     * @return Its contents.
+     * @throws UncheckedIOException if file cannot be read.
+     */
+    private static byte[] read(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for future, throwing what it threw.
+     *
+     * @param future - A future from load(String).
+     * @return Its value.
+     * @throws IOException if it threw an IOException.
+     */
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * @param bytes - The contents of FILES[table].
+     * @param table - ITEMS, ATTACKS or MONS.
+     * @return The list under KEYS[table], as json-simple would have parsed it.
+     * @throws IOException if bytes are not such JSON.
+     */
+    private static List<?> parse(byte[] bytes, int table) throws IOException {
+        Object json = new JsonReader(bytes, FILES[table]).readValue();
+        Object entries = json instanceof JSONObject ? ((JSONObject) json).get(KEYS[table]) : null;
+        if (!(entries instanceof List))
+            throw new IOException(FILES[table] + " has no list of " + KEYS[table]);
+        return (List<?>) entries;
+    }
+
+    /**
+     * @param bytes - The contents of a file.
+     * @return Their length in the high 32 bits and their CRC-32C in the low 32 bits.
+     */
+    private static long hash(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (long) bytes.length << 32 | crc.getValue();
+    }
+
+    /**
+     * Reads the tables from a snapshot, decoding them at once on separate threads.
+     *
+     * @param file   - The snapshot.
+     * @param hashes - The hash of each JSON file now.
+     * @param nanos  - Filled in with the time each table took to decode.
+     * @return The tables, or null if there is no snapshot or it was made from other JSON files.
+     */
+    private static List<JSONObject>[] readSnapshot(File file, long[] hashes, long[] nanos) {
+        if (!file.exists())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION || in.readInt() != hashes.length)
+                return null;
+            byte[][] sections = new byte[hashes.length][];
+            for (int i = 0; i < hashes.length; i++) {
+                if (in.readLong() != hashes[i])
+                    return null;
+                int length = in.readInt();
+                if (length < 0 || length > file.length())
+                    return null;
+                sections[i] = new byte[length];
+                in.readFully(sections[i]);
+            }
+            // An array of a generic type can only be created raw; every element is set just below.
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            CompletableFuture<List<JSONObject>>[] decoded = new CompletableFuture[hashes.length];
+            for (int i = 0; i < hashes.length; i++) {
+                int table = i;
+                decoded[i] = CompletableFuture.supplyAsync(() -> {
+                    long begin = System.nanoTime();
+                    try (DataInputStream section = new DataInputStream(new ByteArrayInputStream(sections[table]))) {
+                        // Each table was written from a JSONArray of JSONObjects, so only the array itself is checked.
+                        @SuppressWarnings("unchecked")
+                        List<JSONObject> entries = (List<JSONObject>) readValue(section);
+                        nanos[table] = System.nanoTime() - begin;
+                        return entries;
+                    } catch (IOException | ClassCastException e) {
+                        throw new UncheckedIOException(new IOException("Corrupted snapshot", e));
+                    }
+                });
+            }
+            // An array of a generic type can only be created raw; every element is set just below.
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<JSONObject>[] tables = new List[hashes.length];
+            for (int i = 0; i < hashes.length; i++)
+                tables[i] = join(decoded[i]);
+            return tables;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parses the JSON files and saves them to a snapshot on a background thread, writing a temporary file and renaming
+     * it, so that a game starting meanwhile never reads half a snapshot. Failing to write it only means the next start
+     * parses JSON.
+     *
+     * @param file     - The snapshot.
+     * @param hashes   - The hash of each JSON file.
+     * @param contents - The contents of each JSON file.
+     */
+    private static void writeSnapshot(File file, long[] hashes, byte[][] contents) {
+        Thread thread = new Thread(() -> {
+            Path temp = new File(file.getPath() + ".tmp").toPath();
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(temp.toFile())))) {
+                    out.write(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(contents.length);
+                    for (int i = 0; i < contents.length; i++) {
+                        ByteArrayOutputStream section = new ByteArrayOutputStream();
+                        writeValue(new DataOutputStream(section), parse(contents[i], i));
+                        out.writeLong(hashes[i]);
+                        out.writeInt(section.size());
+                        section.writeTo(out);
+                    }
+                }
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("Could not write " + file + ": " + e.getMessage());
+            }
+        }, "snapshot");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param out   - Where value is written.
+     * @param value - A value as json-simple parses it: a JSONObject, List, String, Long, Double, Boolean or null.
+     * @throws IOException if out throws an IOException, or value is of another type.
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(ARRAY);
+            out.writeInt(list.size());
+            for (Object element : list)
+                writeValue(out, element);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(OBJECT);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(out, entry.getKey().toString());
+                writeValue(out, entry.getValue());
+            }
+        } else throw new IOException("Cannot snapshot a " + value.getClass().getName());
+    }
+
+    /**
+     * @param in - A value written by writeValue(DataOutputStream, Object).
+     * @return The value, as json-simple would have parsed it.
+     * @throws IOException if in is corrupted.
+     */
+    @SuppressWarnings("unchecked") // json-simple's JSONArray and JSONObject are raw collections.
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case STRING:
+                return readString(in);
+            case ARRAY:
+                int length = in.readInt();
+                JSONArray array = new JSONArray();
+                array.ensureCapacity(length);
+                for (int i = 0; i < length; i++)
+                    array.add(readValue(in));
+                return array;
+            case OBJECT:
+                int size = in.readInt();
+                JSONObject object = new JSONObject();
+                for (int i = 0; i < size; i++)
+                    object.put(readString(in), readValue(in));
+                return object;
+            default:
+                throw new IOException("Corrupted snapshot: value type " + type);
+        }
+    }
+
+    /**
+     * Writes value as its UTF-8 length, then its UTF-8 bytes (DataOutputStream.writeUTF is limited to 64 KB).
+     *
+     * @param out   - Where value is written.
+     * @param value - Any string.
+     * @throws IOException if out throws an IOException.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param in - A string written by writeString(DataOutputStream, String).
+     * @return The string.
+     * @throws IOException if in is corrupted.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
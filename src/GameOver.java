@@ -0,0 +1,16 @@
+/*
+ * Paulkia 2020.
+ * Thrown by Game.quit() when a game ends: the player quit, lost their last Fakeymon or slew Fakeyceus. Game.play()
+ * catches it and returns, so ending one game never ends the program or the other games in it.
+ */
+class GameOver extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param reason - Why the game ended, such as 'quit'.
+     */
+    GameOver(String reason) {
+        super(reason);
+    }
+}
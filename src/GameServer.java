@@ -0,0 +1,162 @@
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Paulkia 2020.
+ * Serves the game over TCP, so many players share one JVM (and one copy of GAME_ITEMS, GAME_ATKS and GAME_MONS)
+ * instead of each starting their own. Connect with any line-based client, such as telnet or nc.
+ * Each connection is one game on its own virtual thread, with its own GameContext. One SocketPump thread reads every
+ * socket and queues each player's lines; a session waiting for a line, or for its text to be typed out, parks instead
+ * of holding a platform thread, so thousands of mostly idle sessions cost little more than their buffers. Sessions
+ * have no sound: there is one audio device, on the server.
+ */
+class GameServer {
+
+    // The port used when none is given.
+    static final int DEFAULT_PORT = 4000;
+
+    private final ServerSocketChannel server;
+    // Reads every session's socket.
+    private final SocketPump pump = new SocketPump();
+    // Number of sessions so far, and of sessions still playing.
+    private final AtomicInteger sessions = new AtomicInteger(), playing = new AtomicInteger();
+    // Makes the thread of each session.
+    private final ThreadFactory threads = Thread.ofVirtual().name("session-", 1).factory();
+    // Whether sessions type their text out, or print it at once with -Dfakeymon.text=instant.
+    private final Renderer.Mode mode;
+
+    /**
+     * @param port - The port to listen on.
+     * @param host - The address to listen on. Only this machine can connect if it is the loopback address.
+     * @throws IOException if the port cannot be bound.
+     */
+    GameServer(int port, InetAddress host) throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(host, port), 256);
+        mode = "instant".equalsIgnoreCase(System.getProperty("fakeymon.text")) ?
+                Renderer.Mode.INSTANT : Renderer.Mode.TYPEWRITER;
+    }
+
+    /**
+     * Main method. Loads the data tables once, then serves games until the program is stopped.
+     *
+     * @param args - The port (DEFAULT_PORT if none), then the address to listen on (the loopback address if none).
+     * @throws IOException if the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress host = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        Metrics.start();
+        // Loads the data tables now, rather than in the first session.
+        System.out.println("Loaded " + Fakeyverse.GAME_MONS.size() + " Fakeymon, " + Fakeyverse.GAME_ATKS.size() +
+                " attacks and " + Fakeyverse.GAME_ITEMS.size() + " items.");
+        GameServer server = new GameServer(port, host);
+        System.out.println("Serving Fakeymon on " + host.getHostAddress() + ":" +
+                ((InetSocketAddress) server.server.getLocalAddress()).getPort() + ".");
+        server.serve();
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, starting a session for each.
+     *
+     * @throws IOException if accepting fails.
+     */
+    void serve() throws IOException {
+        while (true) {
+            SocketChannel socket = server.accept();
+            int id = sessions.incrementAndGet();
+            threads.newThread(() -> session(id, socket)).start();
+        }
+    }
+
+    /**
+     * Plays one game with socket, then closes it.
+     *
+     * @param id     - The number of the session, for the log.
+     * @param socket - The connection to the player.
+     */
+    private void session(int id, SocketChannel socket) {
+        System.out.println("Session " + id + " started from " + remote(socket) + " (" + playing.incrementAndGet() +
+                " playing).");
+        GameContext ctx = null;
+        try {
+            socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SocketPump.Connection connection = pump.register(socket);
+            PrintStream out = new PrintStream(new TelnetOutputStream(new BufferedOutputStream(connection)),
+                    false, StandardCharsets.UTF_8);
+            Renderer renderer = new Renderer(mode, Fakeyverse.TEXT_TIME, out,
+                    Thread.ofVirtual().name("renderer-" + id).factory());
+            ctx = new GameContext(connection.input, renderer, false);
+            new Game(ctx).play();
+        } catch (NoSuchElementException e) {
+            // The player disconnected: the input ended.
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (ctx != null)
+                ctx.close();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The session is over either way.
+            }
+            System.out.println("Session " + id + " ended (" + playing.decrementAndGet() + " playing).");
+        }
+    }
+
+    /**
+     * @param socket - A connected socket.
+     * @return The address of the player, for the log.
+     */
+    private static String remote(SocketChannel socket) {
+        try {
+            return String.valueOf(socket.getRemoteAddress());
+        } catch (IOException e) {
+            return "a closed socket";
+        }
+    }
+
+    /*
+     * Writes each '\n' as "\r\n", which telnet clients need to return to the start of the line.
+     */
+    private static class TelnetOutputStream extends FilterOutputStream {
+
+        /**
+         * @param out - The socket's output.
+         */
+        TelnetOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n')
+                out.write('\r');
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    out.write(b, start, i - start);
+                    out.write('\r');
+                    start = i;
+                }
+            }
+            out.write(b, start, off + len - start);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Paulkia 2020.
+ * The lines typed by one player, queued as they arrive. Whatever receives the player's bytes (a reader thread over an
+ * InputStream, or SocketPump for many sockets at once) feeds them in; the game takes one line at a time, waiting (on a
+ * virtual thread, parking) until one arrives. Bytes are gathered into lines in one reused buffer, so a keystroke
+ * costs no allocation, and a whole line one String. Once MAX_LINES are waiting, the feeder stops reading until the
+ * game catches up, so a player typing far ahead holds back their own input rather than filling the memory.
+ */
+class InputQueue {
+
+    // Longest line kept, in bytes. The rest of a longer line is dropped.
+    static final int MAX_LINE = 1024;
+    // Lines waiting at which the feeder should stop reading. See full().
+    static final int MAX_LINES = 64;
+
+    private final ArrayDeque<String> lines = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled whenever a line arrives or the input ends, and whenever a line is taken.
+    private final Condition ready = lock.newCondition(), taken = lock.newCondition();
+    // Called after each line is taken, so a feeder that stopped reading (see full()) can start again. May be null.
+    private final Runnable resume;
+    // Whether the input ended: once lines is empty, take() returns null.
+    private boolean closed;
+    // The bytes of the line being received. Only touched by the thread feeding this queue.
+    private final byte[] line = new byte[MAX_LINE];
+    private int length;
+
+    /**
+     * Constructor for a queue fed by a thread that can wait: see awaitRoom().
+     */
+    InputQueue() {
+        this(null);
+    }
+
+    /**
+     * @param resume - Called after each line is taken, by the thread taking it, so a feeder that stopped reading
+     *               because the queue was full() can start again.
+     */
+    InputQueue(Runnable resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * @param in - A stream of lines, such as System.in.
+     * @return A queue fed by a new daemon thread reading in, until in ends.
+     */
+    static InputQueue of(InputStream in) {
+        InputQueue queue = new InputQueue();
+        Thread thread = new Thread(() -> queue.read(in), "input");
+        thread.setDaemon(true);
+        thread.start();
+        return queue;
+    }
+
+    /**
+     * Adds bytes received from the player: each complete line is queued, without its '\r' or '\n'; the rest is kept
+     * until the end of its line arrives.
+     *
+     * @param bytes - The bytes, from position to limit. They are all consumed.
+     */
+    void feed(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            byte b = bytes.get();
+            if (b == '\n') {
+                int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+                offer(new String(line, 0, end, StandardCharsets.UTF_8));
+                length = 0;
+            } else if (length < MAX_LINE)
+                line[length++] = b;
+        }
+    }
+
+    /**
+     * Queues a line, unless the input ended.
+     *
+     * @param text - The line.
+     */
+    void offer(String text) {
+        lock.lock();
+        try {
+            if (!closed) {
+                lines.add(text);
+                ready.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether MAX_LINES or more lines are waiting, so the feeder should stop reading until one is taken.
+     */
+    boolean full() {
+        lock.lock();
+        try {
+            return lines.size() >= MAX_LINES;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the queue is no longer full().
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void awaitRoom() throws InterruptedException {
+        lock.lock();
+        try {
+            while (lines.size() >= MAX_LINES && !closed)
+                taken.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the input. Lines already queued can still be taken; a partial last line is queued too. Only called by the
+     * feeder.
+     */
+    void close() {
+        if (length > 0) {
+            offer(new String(line, 0, length, StandardCharsets.UTF_8));
+            length = 0;
+        }
+        lock.lock();
+        try {
+            closed = true;
+            ready.signalAll();
+            taken.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the next line.
+     *
+     * @return The line, or null if the input ended.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    String take() throws InterruptedException {
+        String result;
+        lock.lock();
+        try {
+            while (lines.isEmpty() && !closed)
+                ready.await();
+            result = lines.poll();
+            taken.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (result != null && resume != null)
+            resume.run();
+        return result;
+    }
+
+    /**
+     * Feeds this queue from in until it ends, then closes it.
+     *
+     * @param in - The stream.
+     */
+    private void read(InputStream in) {
+        byte[] buffer = new byte[MAX_LINE];
+        ByteBuffer bytes = ByteBuffer.wrap(buffer);
+        try {
+            for (int count; (count = in.read(buffer)) != -1; ) {
+                bytes.clear().limit(count);
+                feed(bytes);
+                awaitRoom();
+            }
+        } catch (IOException | InterruptedException e) {
+            // The input is over either way.
+        }
+        close();
+    }
+}
@@ -1,5 +1,7 @@
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
+
 /*
  * Paulkia 2020.
  * Item object. All Player instances have a List<Item> representing their bag.
@@ -7,7 +9,7 @@ import org.json.simple.JSONObject;
 class Item extends Fakeyverse implements Saveable, Comparable<Item> {
 
     /*
-     * Type = the effect of the item. Interpreted by program in use(Player, Monster, Monster)
+     * Type = the effect of the item. Resolved to an ItemEffect when the item is loaded (see ItemEffects).
      * Desc = description.
      * Value1 = first calculation in case the item modifies numerical values. String because percent % items exist.
      * Value2 = second calculation in case the item modifies numerical values. String because percent % items exist.
@@ -29,9 +31,21 @@ class Item extends Fakeyverse implements Saveable, Comparable<Item> {
      */
     int ID, use, sellsFor, costs, dropRate;
 
+    /*
+     * Amount1 / amount2 = value1 / value2 as numbers, without the %. Parsed once when the item is loaded.
+     * 0 if the value is missing.
+     */
+    int amount1, amount2;
+
+    // Whether value1 / value2 are percents.
+    boolean percent1, percent2;
+
     // Whether the item can have an effect if it is held.
     boolean holdItem;
 
+    // What the item does when used or held, chosen by type.
+    ItemEffect effect;
+
     /**
      * Constructor when loading item data from DATA_DIR/ItemData.json.
      *
@@ -51,100 +65,205 @@ class Item extends Fakeyverse implements Saveable, Comparable<Item> {
         dropRate = getIntFromJSON("dropRate", item);
 
         holdItem = getBoolFromJSON("holdItem", item);
+
+        resolve(getStrFromJSON("handler", item));
+    }
+
+    /**
+     * Same as Item(JSONObject), but reads the item straight from DATA_DIR/ItemData.json. A field that is missing is 0
+     * (or null, or false).
+     *
+     * @param in - Reader at the start of the object of this item.
+     * @throws IOException if the object is malformed or has no name.
+     */
+    Item(JsonReader in) throws IOException {
+        String handler = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    name = in.nextString();
+                    break;
+                case "type":
+                    type = in.nextString();
+                    break;
+                case "desc":
+                    desc = in.nextString();
+                    break;
+                case "value1":
+                    value1 = in.nextString();
+                    break;
+                case "value2":
+                    value2 = in.nextString();
+                    break;
+                case "handler":
+                    handler = in.nextString();
+                    break;
+                case "ID":
+                    ID = in.nextInt();
+                    break;
+                case "use":
+                    use = in.nextInt();
+                    break;
+                case "sellsFor":
+                    sellsFor = in.nextInt();
+                    break;
+                case "costs":
+                    costs = in.nextInt();
+                    break;
+                case "dropRate":
+                    dropRate = in.nextInt();
+                    break;
+                case "holdItem":
+                    holdItem = Boolean.TRUE.equals(in.nextBoolean());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (name == null)
+            throw in.error("item has no name");
+        resolve(handler);
+    }
+
+    /**
+     * Parses value1 and value2 into percent1, amount1, percent2 and amount2, and chooses effect.
+     * Called once when the item is loaded.
+     *
+     * @param handler - The item's handler, if its type has more than one.
+     */
+    private void resolve(String handler) {
+        percent1 = isPercent(value1);
+        amount1 = parseAmount(value1);
+        percent2 = isPercent(value2);
+        amount2 = parseAmount(value2);
+
+        effect = ItemEffects.forType(type, handler);
+    }
+
+    /**
+     * @param value - value1 or value2.
+     * @return Whether value is a percent, such as '50%'.
+     */
+    private static boolean isPercent(String value) {
+        return value != null && value.endsWith("%");
+    }
+
+    /**
+     * @param value - value1 or value2, such as '20' or '50%'.
+     * @return value as a number, without the %, or 0 if value is null or not a number.
+     */
+    private static int parseAmount(String value) {
+        if (value == null)
+            return 0;
+        try {
+            return Integer.parseInt(isPercent(value) ? value.substring(0, value.length() - 1) : value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     /**
      * Executes the item's use on the user or user's general situation. Not related to monsters.
      *
-     * @param user - the Player object using the item.
+     * @param ctx - The game whose user is using the item.
      * @return Whether the item was used.
-     * @throws Exception - if use(Player, Monster, boolean) throws an exception.
+     * @throws Exception - if use(GameContext, Monster, boolean) throws an exception.
      */
-    public boolean use(Player user) throws Exception {
-        return use(user, null, null);
+    public boolean use(GameContext ctx) throws Exception {
+        return use(ctx, null, null);
     }
 
     /**
      * Executes the item's use on the Monster mon. friend provides whether mon is on the user's team or if it is
      * an enemy.
      *
-     * @param user   - The Player.
+     * @param ctx    - The game whose user is using the item.
      * @param mon    - The Monster that this item is being used on.
      * @param friend - Whether mon is on the user's team or if it is an enemy mon.
      * @return Whether the item was successfully used.
-     * @throws Exception if use(Player, Monster, Monster) throws an exception.
+     * @throws Exception if use(GameContext, Monster, Monster) throws an exception.
      */
-    public boolean use(Player user, Monster mon, boolean friend) throws Exception {
-        return friend ? use(user, mon, null) : use(user, null, mon);
+    public boolean use(GameContext ctx, Monster mon, boolean friend) throws Exception {
+        return friend ? use(ctx, mon, null) : use(ctx, null, mon);
     }
 
     /**
-     * Executes the item's use on user, mon, and/or enemy.
-     * If type = heal and mon's HP is not full: heals mon.
-     * If type = xheal: heals mon's temporary HP to higher than max HP.
-     * If type = bag and value1 > user.bagSize: increases bagSize to value1
-     * If type = dam: lowers enemy's hp
-     * If type = esc and user.finalBattle = false: escapes user from battle.
-     * Else prints 'This item cannot be used at the moment. > '
-     * @param user  - The Player, if item is general purpose (such as Smoke Bomb).
+     * Executes the item's use on ctx.user, mon, and/or enemy, and prints what happened.
+     * See apply(Player, Monster, Monster, Rng, Outcome) for the effect of each item type.
+     * @param ctx   - The game whose user is using the item, if item is general purpose (such as Smoke Bomb).
      * @param mon   - The Player's monster, if item is being used on mon.
      * @param enemy - The enemy if in battle, if item is being used on enemy.
      * @return Whether the item was used.
-     * @throws Exception if sfx(String), music(String), p(String), enter(), escCeus2Msg() throw an exception.
-     */
-    public boolean use(Player user, Monster mon, Monster enemy) throws Exception {
-        boolean used = false;
-        if (type.equalsIgnoreCase("heal")) {
-            if (mon.tempStats[HP] < mon.stats[HP]) {
-                mon.tempStats[HP] += healMon(mon.tempStats[HP], mon.stats[HP], value1);
-                used = true;
-                sfx(HEAL_SFX);
-                p(mon.name + "'s HP rose from the " + name + "! > ");
-            } else
-                p(mon.name + "'s HP is already full. > ");
-            enter();
-        } else if (type.equalsIgnoreCase("xheal")) { // xheal
-            String hpRestoreValue = value1;
-            int percentValue = Integer.parseInt(hpRestoreValue.substring(0, hpRestoreValue.length() - 1));
-            double percentGain = ((double) percentValue) / 100;
-            mon.tempStats[HP] = (int) Math.round(mon.stats[HP] * percentGain);
-            used = true;
-            p(mon.name + "'s HP rose from the " + name + "! > ");
-            enter();
-        } else if (type.equalsIgnoreCase("bag") && user.bagSize < Integer.parseInt(value1)) {
-            user.bagSize = Integer.parseInt(value1);
-            used = true;
-            p("Your bag has increased in size, and can now hold up to " + user.bagSize + " items! > ");
-            enter();
-        } else if (type.equalsIgnoreCase("bag")) {
-            p("This item would increase your bag size to allow for " + Integer.parseInt(value1) + " items,\n" +
-                    "but your bag can already hold " + user.bagSize + " items. > ");
-            enter();
-        } else if (type.equalsIgnoreCase("dam")) {
-            int damageValue = Integer.parseInt(value1);
-            if (value2 != null && RANDOM.nextInt(100) < Integer.parseInt(value2)) {
-                damageValue *= CRIT_MULTIPLIER;
-                p("A critical hit! > ");
-                enter();
-            }
-            enemy.tempStats[HP] -= damageValue;
-            used = true;
-            sfx(DAMAGE_SFX);
-            p(enemy.name + " took " + damageValue + " damage from the " + name + "! > ");
-            enter();
-        } else if (type.equalsIgnoreCase("esc")) {
-            if (!user.finalBattle) {
-                used = true;
-                sfx(ESC_SFX);
-                p("Got away safely! > ");
-                enter();
-                music(SCENARIO_MUSIC);
-            } else escCeus2Msg();
-        } else {
-            p("This item cannot be used at the moment. > ");
-            enter();
-        }
-        return used;
+     * @throws Exception if announce(GameContext, Monster, Monster, Outcome) throws an exception.
+     */
+    public boolean use(GameContext ctx, Monster mon, Monster enemy) throws Exception {
+        return use(ctx, mon, enemy, new Outcome());
+    }
+
+    /**
+     * Same as use(GameContext, Monster, Monster), but leaves what happened in outcome (for instance Outcome.ESCAPED).
+     * Rolls are made with ctx.user.rng, or ctx.random if there is no user.
+     * @param ctx     - The game whose user is using the item, if item is general purpose (such as Smoke Bomb).
+     * @param mon     - The Player's monster, if item is being used on mon.
+     * @param enemy   - The enemy if in battle, if item is being used on enemy.
+     * @param outcome - Cleared and filled in with the result of using this item.
+     * @return Whether the item was used.
+     * @throws Exception if announce(GameContext, Monster, Monster, Outcome) throws an exception.
+     */
+    public boolean use(GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+        Player user = ctx.user;
+        apply(user, mon, enemy, user == null ? ctx.random : user.rng, outcome);
+        announce(ctx, mon, enemy, outcome);
+        return outcome.has(Outcome.USED);
+    }
+
+    /**
+     * Applies the item's effect on user, mon, and/or enemy without printing anything.
+     * The effect is the ItemEffect of this item's type; see ItemEffects for the built-in types.
+     * Items whose type has no effect do nothing.
+     * @param user    - The Player, if item is general purpose (such as Smoke Bomb). May be null for held items.
+     * @param mon     - The Player's monster, if item is being used on mon.
+     * @param enemy   - The enemy if in battle, if item is being used on enemy.
+     * @param rng     - The random object deciding critical hits.
+     * @param outcome - Cleared and filled in with the result of using this item.
+     */
+    void apply(Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+        outcome.reset();
+        effect.apply(this, user, mon, enemy, rng, outcome);
+    }
+
+    /**
+     * Prints what happened when this item was applied, playing the matching sound effects.
+     * Prints 'This item cannot be used at the moment. > ' if the item had no effect.
+     * @param ctx     - The game it is printed to, whose user used the item.
+     * @param mon     - The monster the item was used on, if any.
+     * @param enemy   - The enemy the item was used on, if any.
+     * @param outcome - The outcome written by apply(Player, Monster, Monster, Rng, Outcome).
+     * @throws Exception if the item's ItemEffect throws an exception.
+     */
+    void announce(GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+        effect.announce(this, ctx, mon, enemy, outcome);
+    }
+
+    /**
+     * Applies the per-turn effect of this item held by mon. Hold-heal items without value2 (such as Whistle-hoo) heal
+     * value1 every turn; the others heal a random percent between -value1 and value2, which may hurt mon.
+     * @param mon - The monster holding this item.
+     * @param rng - The random object deciding the heal percent.
+     * @return The change in mon's HP, or 0 if this item has no effect while held.
+     */
+    int holdHeal(Monster mon, Rng rng) {
+        return effect.holdHeal(this, mon, rng);
+    }
+
+    /**
+     * Returns whether this item can be used in battle, i.e. whether 0 < use < 5.
+     * @return whether this item is usable in battle.
+     */
+    boolean battleUsable() {
+        return 0 < use && use < 5;
     }
 
     /**
@@ -0,0 +1,43 @@
+/*
+ * Paulkia 2020.
+ * What an item does, for one item type of ItemData.json ("heal", "dam", ...). Every Item is given the ItemEffect of
+ * its type once, when it is loaded (see ItemEffects), so using an item never looks at its type or parses its values.
+ */
+interface ItemEffect {
+
+    /**
+     * Applies the effect of item on user, mon and/or enemy without printing anything.
+     *
+     * @param item    - The item being used. Its values are already parsed into amount1/percent1 and amount2/percent2.
+     * @param user    - The Player, if the item is general purpose. May be null for held items.
+     * @param mon     - The monster the item is being used on, if any.
+     * @param enemy   - The enemy the item is being used on, if any.
+     * @param rng     - The random object of the battle.
+     * @param outcome - Already cleared; filled in with what happened. Set Outcome.USED if the item is used up.
+     */
+    void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome);
+
+    /**
+     * Prints what happened when item was applied, playing the matching sound effects.
+     *
+     * @param item    - The item that was used.
+     * @param ctx     - The game it is printed to, whose user used the item.
+     * @param mon     - The monster the item was used on, if any.
+     * @param enemy   - The enemy the item was used on, if any.
+     * @param outcome - The outcome written by apply(...).
+     * @throws Exception if the message cannot be printed or the sound cannot be played.
+     */
+    void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception;
+
+    /**
+     * The effect of item at the end of every turn in which mon holds it and is not struggling.
+     *
+     * @param item - The held item.
+     * @param mon  - The monster holding item.
+     * @param rng  - The random object of the battle.
+     * @return The change in mon's HP, already applied to mon.
+     */
+    default int holdHeal(Item item, Monster mon, Rng rng) {
+        return 0;
+    }
+}
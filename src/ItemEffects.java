@@ -0,0 +1,185 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Paulkia 2020.
+ * The ItemEffect of every item type, looked up once per item when ItemData.json is loaded.
+ * New types can be added with register(String, ItemEffect), or by naming a class that implements ItemEffect in the
+ * item's "handler" field in ItemData.json. Types without an effect (such as "cash") cannot be used.
+ */
+class ItemEffects extends Fakeyverse {
+
+    // Item type (lowercase) -> effect.
+    private static final Map<String, ItemEffect> EFFECTS = new ConcurrentHashMap<>();
+
+    // If type = heal and mon's HP is not full: heals mon by value1.
+    static final ItemEffect HEAL = new ItemEffect() {
+        public void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+            if (mon.tempStats[HP] < mon.stats[HP]) {
+                outcome.amount = healMon(mon.tempStats[HP], mon.stats[HP], item.amount1, item.percent1);
+                mon.tempStats[HP] += outcome.amount;
+                outcome.flags |= Outcome.USED;
+            } else
+                outcome.flags |= Outcome.FULL;
+        }
+
+        public void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+            if (outcome.has(Outcome.USED)) {
+                ctx.sfx(HEAL_SFX);
+                ctx.p(mon.name + "'s HP rose from the " + item.name + "! > ");
+            } else
+                ctx.p(mon.name + "'s HP is already full. > ");
+            ctx.enter();
+        }
+    };
+
+    // If type = xheal: sets mon's temporary HP to value1 percent of its HP, which may be higher than its HP.
+    static final ItemEffect XHEAL = new ItemEffect() {
+        public void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+            double percentGain = ((double) item.amount1) / 100;
+            mon.tempStats[HP] = (int) Math.round(mon.stats[HP] * percentGain);
+            outcome.flags |= Outcome.USED;
+        }
+
+        public void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+            ctx.p(mon.name + "'s HP rose from the " + item.name + "! > ");
+            ctx.enter();
+        }
+    };
+
+    // If type = bag and value1 > user.bagSize: increases bagSize to value1.
+    static final ItemEffect BAG = new ItemEffect() {
+        public void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+            outcome.amount = item.amount1;
+            if (user.bagSize < item.amount1) {
+                user.bagSize = item.amount1;
+                outcome.flags |= Outcome.USED;
+            } else
+                outcome.flags |= Outcome.FULL;
+        }
+
+        public void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+            if (outcome.has(Outcome.USED))
+                ctx.p("Your bag has increased in size, and can now hold up to " + ctx.user.bagSize + " items! > ");
+            else
+                ctx.p("This item would increase your bag size to allow for " + outcome.amount + " items,\n" +
+                        "but your bag can already hold " + ctx.user.bagSize + " items. > ");
+            ctx.enter();
+        }
+    };
+
+    // If type = dam: lowers enemy's HP by value1, doubled on a critical hit (value2 percent chance, if given).
+    static final ItemEffect DAM = new ItemEffect() {
+        public void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+            int damageValue = item.amount1;
+            if (item.value2 != null && rng.chance(item.amount2)) {
+                damageValue *= CRIT_MULTIPLIER;
+                outcome.flags |= Outcome.CRIT;
+            }
+            enemy.tempStats[HP] -= damageValue;
+            outcome.amount = damageValue;
+            outcome.flags |= Outcome.USED | Outcome.DAMAGED;
+        }
+
+        public void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+            if (outcome.has(Outcome.CRIT)) {
+                ctx.p("A critical hit! > ");
+                ctx.enter();
+            }
+            ctx.sfx(DAMAGE_SFX);
+            ctx.p(enemy.name + " took " + outcome.amount + " damage from the " + item.name + "! > ");
+            ctx.enter();
+        }
+    };
+
+    // If type = esc and user.finalBattle = false: escapes user from battle.
+    static final ItemEffect ESC = new ItemEffect() {
+        public void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+            if (user == null || !user.finalBattle)
+                outcome.flags |= Outcome.USED | Outcome.ESCAPED;
+            else
+                outcome.flags |= Outcome.BLOCKED;
+        }
+
+        public void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+            if (outcome.has(Outcome.ESCAPED)) {
+                ctx.sfx(ESC_SFX);
+                ctx.p("Got away safely! > ");
+                ctx.enter();
+                ctx.music(SCENARIO_MUSIC);
+            } else ctx.escCeus2Msg();
+        }
+    };
+
+    // Types with no effect when used, including hold-heal, whose effect is in holdHeal.
+    static final ItemEffect NONE = new ItemEffect() {
+        public void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+        }
+
+        public void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+            ctx.p("This item cannot be used at the moment. > ");
+            ctx.enter();
+        }
+    };
+
+    // If type = hold-heal: every turn, heals value1, or a random percent between -value1 and value2 if value2 is set.
+    static final ItemEffect HOLD_HEAL = new ItemEffect() {
+        public void apply(Item item, Player user, Monster mon, Monster enemy, Rng rng, Outcome outcome) {
+        }
+
+        public void announce(Item item, GameContext ctx, Monster mon, Monster enemy, Outcome outcome) throws Exception {
+            NONE.announce(item, ctx, mon, enemy, outcome);
+        }
+
+        public int holdHeal(Item item, Monster mon, Rng rng) {
+            int healValue;
+            if (item.value2 == null)
+                healValue = healMon(mon.tempStats[HP], mon.stats[HP], item.amount1, item.percent1);
+            else
+                healValue = healMon(mon.tempStats[HP], mon.stats[HP],
+                        rng.nextInt(item.amount1 + item.amount2) - item.amount1, true);
+            mon.tempStats[HP] += healValue;
+            return healValue;
+        }
+    };
+
+    static {
+        register("heal", HEAL);
+        register("xheal", XHEAL);
+        register("bag", BAG);
+        register("dam", DAM);
+        register("esc", ESC);
+        register("hold-heal", HOLD_HEAL);
+    }
+
+    /**
+     * Registers the effect of an item type. Items of that type loaded afterwards use this effect.
+     *
+     * @param type   - The item type, as in the "type" field of ItemData.json. Case is ignored.
+     * @param effect - The effect of items of that type.
+     */
+    static void register(String type, ItemEffect effect) {
+        EFFECTS.put(type.toLowerCase(), effect);
+    }
+
+    /**
+     * Returns the effect of an item. If handler is given, it is the name of a class implementing ItemEffect with a
+     * no-argument constructor; it is loaded and registered for type the first time it is seen.
+     *
+     * @param type    - The item's type.
+     * @param handler - The item's "handler" field, or null.
+     * @return The effect of the item, or NONE if its type has no effect.
+     */
+    static ItemEffect forType(String type, String handler) {
+        if (type == null)
+            return NONE;
+        if (handler != null && !EFFECTS.containsKey(type.toLowerCase())) {
+            try {
+                register(type, (ItemEffect) Class.forName(handler).getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException("Item type " + type + " has an invalid handler " + handler, e);
+            }
+        }
+        return EFFECTS.getOrDefault(type.toLowerCase(), NONE);
+    }
+}
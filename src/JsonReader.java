@@ -0,0 +1,590 @@
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Paulkia 2020.
+ * Reads JSON one token at a time, so a data file can be made into Items, Attacks and Monsters entry by entry without
+ * parsing it into JSONObjects first (see Item(JsonReader)). Values are read the way Fakeyverse's getStrFromJSON and
+ * getIntFromJSON read them from a JSONObject. A mistake in the file is reported with where it is, e.g.
+ *      ItemData.json:52:20 ($.items[4].costs): expected a number but found "cheap"
+ */
+class JsonReader {
+
+    // Tokens returned by peek().
+    static final int BEGIN_OBJECT = 1, END_OBJECT = 2, BEGIN_ARRAY = 3, END_ARRAY = 4, NAME = 5, STRING = 6,
+            NUMBER = 7, BOOLEAN = 8, NULL = 9, END_DOCUMENT = 10;
+    private static final String[] TOKENS = {"", "'{'", "'}'", "'['", "']'", "a name", "a string", "a number",
+            "true or false", "null", "the end of the file"};
+
+    // What is open at each depth, and how far it has been read.
+    private static final int EMPTY_ARRAY = 1, NONEMPTY_ARRAY = 2, EMPTY_OBJECT = 3, NONEMPTY_OBJECT = 4,
+            AFTER_NAME = 5, EMPTY_DOCUMENT = 6, NONEMPTY_DOCUMENT = 7;
+
+    private final byte[] data;
+    // Name of the file being read, for errors.
+    private final String source;
+    private int position;
+    // Where the token returned by peek() starts, and that token, or 0 if peek() has not been called since the last one.
+    private int tokenStart, peeked;
+
+    // scopes[depth - 1] is what is open at the deepest level. names and indices hold the path, for errors.
+    private int[] scopes = new int[16];
+    private String[] names = new String[16];
+    private int[] indices = new int[16];
+    private int depth;
+
+    /**
+     * @param data   - A JSON document, in UTF-8.
+     * @param source - Where data comes from, such as its file's name. Starts every error message.
+     */
+    JsonReader(byte[] data, String source) {
+        this.data = data;
+        this.source = source;
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * @return The next token (BEGIN_OBJECT, NAME, STRING...) without reading it.
+     * @throws IOException if the JSON is malformed here.
+     */
+    int peek() throws IOException {
+        if (peeked != 0)
+            return peeked;
+        int scope = scopes[depth - 1];
+        skipWhitespace();
+        tokenStart = position;
+        if (position >= data.length && scope != NONEMPTY_DOCUMENT)
+            throw error("unexpected end of the file");
+        if (scope == EMPTY_ARRAY || scope == NONEMPTY_ARRAY) {
+            if (at(']'))
+                return peeked = END_ARRAY;
+            if (scope == NONEMPTY_ARRAY) {
+                expect(',');
+                indices[depth - 1]++;
+            }
+            scopes[depth - 1] = NONEMPTY_ARRAY;
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            if (at('}'))
+                return peeked = END_OBJECT;
+            if (scope == NONEMPTY_OBJECT)
+                expect(',');
+            if (!at('"'))
+                throw error("expected a name in quotes");
+            return peeked = NAME;
+        } else if (scope == AFTER_NAME) {
+            expect(':');
+            scopes[depth - 1] = NONEMPTY_OBJECT;
+        } else if (scope == NONEMPTY_DOCUMENT) {
+            if (position < data.length)
+                throw error("expected the end of the file");
+            return peeked = END_DOCUMENT;
+        } else scopes[depth - 1] = NONEMPTY_DOCUMENT;
+
+        if (position >= data.length)
+            throw error("unexpected end of the file");
+        byte b = data[position];
+        if (b == '{')
+            return peeked = BEGIN_OBJECT;
+        if (b == '[')
+            return peeked = BEGIN_ARRAY;
+        if (b == '"')
+            return peeked = STRING;
+        if (b == '-' || '0' <= b && b <= '9')
+            return peeked = NUMBER;
+        if (b == 't' || b == 'f')
+            return peeked = BOOLEAN;
+        if (b == 'n')
+            return peeked = NULL;
+        throw error("expected a value");
+    }
+
+    /**
+     * @return Whether the current object or array has another field or element.
+     * @throws IOException if the JSON is malformed here.
+     */
+    boolean hasNext() throws IOException {
+        int token = peek();
+        return token != END_OBJECT && token != END_ARRAY && token != END_DOCUMENT;
+    }
+
+    /**
+     * @throws IOException if the next token is not '{'.
+     */
+    void beginObject() throws IOException {
+        consume(BEGIN_OBJECT);
+        position++;
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * @throws IOException if the next token is not '}'.
+     */
+    void endObject() throws IOException {
+        consume(END_OBJECT);
+        position++;
+        depth--;
+    }
+
+    /**
+     * @throws IOException if the next token is not '['.
+     */
+    void beginArray() throws IOException {
+        consume(BEGIN_ARRAY);
+        position++;
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * @throws IOException if the next token is not ']'.
+     */
+    void endArray() throws IOException {
+        consume(END_ARRAY);
+        position++;
+        depth--;
+    }
+
+    /**
+     * @return The name of the next field of the current object. Its value is read next.
+     * @throws IOException if the next token is not a name.
+     */
+    String nextName() throws IOException {
+        consume(NAME);
+        String name = readString();
+        names[depth - 1] = name;
+        scopes[depth - 1] = AFTER_NAME;
+        return name;
+    }
+
+    /**
+     * Same as getStrFromJSON: a number or true/false is read as its text.
+     * @return The next value as a String, or null if it is null.
+     * @throws IOException if the next value is an object or array.
+     */
+    String nextString() throws IOException {
+        int token = peek();
+        if (token == STRING) {
+            peeked = 0;
+            return readString();
+        }
+        if (token == NULL) {
+            readLiteral("null");
+            return null;
+        }
+        if (token == NUMBER || token == BOOLEAN) {
+            peeked = 0;
+            int start = position;
+            position = literalEnd();
+            return new String(data, start, position - start, StandardCharsets.US_ASCII);
+        }
+        throw unexpected("a string");
+    }
+
+    /**
+     * @return The next value as an Integer, or null if it is null.
+     * @throws IOException if the next value is not an integer that fits in an int, nor null.
+     */
+    Integer nextInteger() throws IOException {
+        int token = peek();
+        if (token == NULL) {
+            readLiteral("null");
+            return null;
+        }
+        if (token != NUMBER)
+            throw unexpected("a number");
+        int end = literalEnd();
+        long value = 0;
+        boolean negative = data[position] == '-';
+        int digits = 0;
+        for (int i = negative ? position + 1 : position; i < end; i++, digits++) {
+            byte b = data[i];
+            if (b < '0' || b > '9' || digits > 10)
+                throw error("expected an integer but found " + new String(data, position, end - position,
+                        StandardCharsets.US_ASCII));
+            value = value * 10 + b - '0';
+        }
+        value = negative ? -value : value;
+        if (digits == 0 || value != (int) value)
+            throw error("expected an int but found " + new String(data, position, end - position,
+                    StandardCharsets.US_ASCII));
+        peeked = 0;
+        position = end;
+        return (int) value;
+    }
+
+    /**
+     * @return The next value as an int.
+     * @throws IOException if the next value is not an integer that fits in an int.
+     */
+    int nextInt() throws IOException {
+        if (peek() == NULL)
+            throw unexpected("a number");
+        return nextInteger();
+    }
+
+    /**
+     * Same as getBoolFromJSON: a string is true if it is "true".
+     * @return The next value as a Boolean, or null if it is null.
+     * @throws IOException if the next value is an object, array or number.
+     */
+    Boolean nextBoolean() throws IOException {
+        int token = peek();
+        if (token == STRING)
+            return Boolean.parseBoolean(nextString());
+        if (token == NULL) {
+            readLiteral("null");
+            return null;
+        }
+        if (token != BOOLEAN)
+            throw unexpected("true or false");
+        if (data[position] == 't') {
+            readLiteral("true");
+            return true;
+        }
+        readLiteral("false");
+        return false;
+    }
+
+    /**
+     * @return The next value, an array of strings read by nextString(), or null if it is null.
+     * @throws IOException if the next value is not such an array, nor null.
+     */
+    String[] nextStrings() throws IOException {
+        if (peek() == NULL) {
+            readLiteral("null");
+            return null;
+        }
+        String[] result = new String[8];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == result.length)
+                result = Arrays.copyOf(result, count * 2);
+            result[count++] = nextString();
+        }
+        endArray();
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return The next value, an array of Integers read by nextInteger(), or null if it is null.
+     * @throws IOException if the next value is not such an array, nor null.
+     */
+    Integer[] nextIntegers() throws IOException {
+        if (peek() == NULL) {
+            readLiteral("null");
+            return null;
+        }
+        Integer[] result = new Integer[8];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == result.length)
+                result = Arrays.copyOf(result, count * 2);
+            result[count++] = nextInteger();
+        }
+        endArray();
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Same as getIntsFromJSON: null elements are read as 0.
+     * @return The next value, an array of ints, or null if it is null.
+     * @throws IOException if the next value is not such an array, nor null.
+     */
+    int[] nextInts() throws IOException {
+        if (peek() == NULL) {
+            readLiteral("null");
+            return null;
+        }
+        int[] result = new int[8];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == result.length)
+                result = Arrays.copyOf(result, count * 2);
+            Integer value = nextInteger();
+            result[count++] = value == null ? 0 : value;
+        }
+        endArray();
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Skips the next value, including everything in it if it is an object or array.
+     * @throws IOException if the JSON is malformed.
+     */
+    void skipValue() throws IOException {
+        int open = 0;
+        do {
+            int token = peek();
+            if (token == BEGIN_OBJECT) {
+                beginObject();
+                open++;
+            } else if (token == BEGIN_ARRAY) {
+                beginArray();
+                open++;
+            } else if (token == END_OBJECT) {
+                endObject();
+                open--;
+            } else if (token == END_ARRAY) {
+                endArray();
+                open--;
+            } else if (token == NAME) {
+                nextName();
+            } else if (token == STRING) {
+                nextString();
+            } else if (token == END_DOCUMENT) {
+                throw unexpected("a value");
+            } else {
+                peeked = 0;
+                position = literalEnd();
+            }
+        } while (open > 0);
+    }
+
+    /**
+     * Reads the next value as json-simple's JSONValue.parse(String) would: JSONObjects, JSONArrays, Strings, Longs,
+     * Doubles, Booleans and nulls.
+     * @return The next value.
+     * @throws IOException if the JSON is malformed.
+     */
+    @SuppressWarnings("unchecked") // json-simple's JSONArray and JSONObject are raw collections.
+    Object readValue() throws IOException {
+        int token = peek();
+        if (token == BEGIN_OBJECT) {
+            JSONObject object = new JSONObject();
+            beginObject();
+            while (hasNext()) {
+                String name = nextName();
+                object.put(name, readValue());
+            }
+            endObject();
+            return object;
+        }
+        if (token == BEGIN_ARRAY) {
+            JSONArray array = new JSONArray();
+            beginArray();
+            while (hasNext())
+                array.add(readValue());
+            endArray();
+            return array;
+        }
+        if (token == NUMBER) {
+            String number = nextString();
+            try {
+                return number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0
+                        ? (Object) Long.valueOf(number) : (Object) Double.valueOf(number);
+            } catch (NumberFormatException e) {
+                throw error("bad number " + number);
+            }
+        }
+        if (token == BOOLEAN)
+            return nextBoolean();
+        if (token == STRING || token == NULL)
+            return nextString();
+        throw unexpected("a value");
+    }
+
+    /**
+     * @param message - What is wrong.
+     * @return An IOException saying message, and where in the file the last token read or peeked is.
+     */
+    IOException error(String message) {
+        int line = 1, lineStart = 0;
+        for (int i = 0; i < tokenStart && i < data.length; i++) {
+            if (data[i] == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return new IOException(source + ":" + line + ":" + (tokenStart - lineStart + 1) + " (" + path() + "): "
+                + message);
+    }
+
+    /**
+     * @return Where the reader is, such as $.items[4].costs.
+     */
+    String path() {
+        StringBuilder result = new StringBuilder("$");
+        for (int i = 0; i < depth; i++) {
+            int scope = scopes[i];
+            if (scope == NONEMPTY_ARRAY)
+                result.append('[').append(indices[i]).append(']');
+            else if ((scope == AFTER_NAME || scope == NONEMPTY_OBJECT) && names[i] != null)
+                result.append('.').append(names[i]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param expected - What should have been next.
+     * @return An IOException saying what was found instead.
+     * @throws IOException if the JSON is malformed here.
+     */
+    private IOException unexpected(String expected) throws IOException {
+        int token = peek();
+        String found = TOKENS[token];
+        if (token == STRING) {
+            int start = position;
+            found = '"' + readString() + '"';
+            position = start;
+        }
+        return error("expected " + expected + " but found " + found);
+    }
+
+    /**
+     * Makes sure the next token is token, and marks it read.
+     * @param token - The token expected.
+     * @throws IOException if the next token is another.
+     */
+    private void consume(int token) throws IOException {
+        if (peek() != token)
+            throw unexpected(TOKENS[token]);
+        peeked = 0;
+    }
+
+    /**
+     * @param scope - What was just opened.
+     */
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+            names = Arrays.copyOf(names, depth * 2);
+            indices = Arrays.copyOf(indices, depth * 2);
+        }
+        scopes[depth] = scope;
+        names[depth] = null;
+        indices[depth] = 0;
+        depth++;
+    }
+
+    private void skipWhitespace() {
+        while (position < data.length) {
+            byte b = data[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+                return;
+            position++;
+        }
+    }
+
+    /**
+     * @param b - An ASCII character.
+     * @return Whether the next byte is b.
+     */
+    private boolean at(char b) {
+        return position < data.length && data[position] == b;
+    }
+
+    /**
+     * Skips the next byte, which must be b, and the whitespace after it.
+     * @param b - An ASCII character.
+     * @throws IOException if the next byte is not b.
+     */
+    private void expect(char b) throws IOException {
+        if (!at(b)) {
+            tokenStart = position;
+            throw error("expected '" + b + "'");
+        }
+        position++;
+        skipWhitespace();
+        tokenStart = position;
+    }
+
+    /**
+     * @return Where the number or literal (true, false, null) at position ends.
+     */
+    private int literalEnd() {
+        int end = position;
+        while (end < data.length) {
+            byte b = data[end];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t')
+                break;
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Reads the literal at position, which must be word.
+     * @param word - true, false or null.
+     * @throws IOException if the literal is another.
+     */
+    private void readLiteral(String word) throws IOException {
+        int end = literalEnd();
+        if (end - position != word.length()
+                || !word.equals(new String(data, position, end - position, StandardCharsets.US_ASCII)))
+            throw error("expected " + word + " but found "
+                    + new String(data, position, end - position, StandardCharsets.UTF_8));
+        peeked = 0;
+        position = end;
+    }
+
+    /**
+     * Reads the string starting at position, which is its opening quote.
+     * @return The string, unescaped.
+     * @throws IOException if it is not terminated or has a bad escape.
+     */
+    private String readString() throws IOException {
+        int start = ++position;
+        StringBuilder escaped = null;
+        while (position < data.length) {
+            byte b = data[position];
+            if (b == '"') {
+                String tail = new String(data, start, position - start, StandardCharsets.UTF_8);
+                position++;
+                return escaped == null ? tail : escaped.append(tail).toString();
+            }
+            if (b != '\\') {
+                position++;
+                continue;
+            }
+            if (escaped == null)
+                escaped = new StringBuilder();
+            escaped.append(new String(data, start, position - start, StandardCharsets.UTF_8));
+            if (++position >= data.length)
+                break;
+            char c = (char) data[position++];
+            switch (c) {
+                case 'b':
+                    escaped.append('\b');
+                    break;
+                case 'f':
+                    escaped.append('\f');
+                    break;
+                case 'n':
+                    escaped.append('\n');
+                    break;
+                case 'r':
+                    escaped.append('\r');
+                    break;
+                case 't':
+                    escaped.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > data.length)
+                        throw error("bad escape in string");
+                    try {
+                        escaped.append((char) Integer.parseInt(
+                                new String(data, position, 4, StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("bad escape in string");
+                    }
+                    position += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    escaped.append(c);
+                    break;
+                default:
+                    throw error("bad escape \\" + c + " in string");
+            }
+            start = position;
+        }
+        throw error("string is never closed");
+    }
+}
@@ -0,0 +1,365 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/*
+ * Paulkia 2020.
+ * Writes JSON as UTF-8 straight to an OutputStream, field by field, without building JSONObjects or Strings first.
+ * Used by Saveable.writeJSON(JsonWriter) to save a Player. Writes exactly what json-simple writes for the same values
+ * (same escapes, no spaces), so a save is byte for byte the same as toJSON().toString(). json-simple writes the keys
+ * of a JSONObject in HashMap order, so writeJSON(JsonWriter) methods list their fields in that order.
+ */
+class JsonWriter {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final byte[] NULL = "null".getBytes(), TRUE = "true".getBytes(), FALSE = "false".getBytes();
+
+    private final OutputStream out;
+    // Bit i is set if the object or array at depth i has no element yet, i.e. the next one needs no comma.
+    private long empty;
+    // Number of objects and arrays open. At most 63.
+    private int depth;
+    // Set by name(String): the next value needs no comma.
+    private boolean named;
+    // Digits of the number being written, backwards.
+    private final byte[] digits = new byte[20];
+
+    /**
+     * @param out - Where the JSON is written. Buffer it: this writes a few bytes at a time.
+     */
+    JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts an object, as a value or an element.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Starts an array, as a value or an element.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Starts a field of the current object. Its value is written next.
+     * @param key - The field's name.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter name(String key) throws IOException {
+        element();
+        string(key);
+        out.write(':');
+        named = true;
+        return this;
+    }
+
+    /**
+     * @param key   - The field's name.
+     * @param value - The field's value, or null.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter field(String key, String value) throws IOException {
+        name(key);
+        element();
+        if (value == null)
+            out.write(NULL);
+        else string(value);
+        return this;
+    }
+
+    /**
+     * @param key   - The field's name.
+     * @param value - The field's value, or null.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter field(String key, Integer value) throws IOException {
+        name(key);
+        element();
+        if (value == null)
+            out.write(NULL);
+        else number(value);
+        return this;
+    }
+
+    /**
+     * @param key   - The field's name.
+     * @param value - The field's value.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter field(String key, int value) throws IOException {
+        name(key);
+        element();
+        number(value);
+        return this;
+    }
+
+    /**
+     * @param key   - The field's name.
+     * @param value - The field's value, or null.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter field(String key, Boolean value) throws IOException {
+        name(key);
+        element();
+        out.write(value == null ? NULL : value ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * @param key    - The field's name.
+     * @param values - The field's value, an array of numbers.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter field(String key, int[] values) throws IOException {
+        name(key);
+        beginArray();
+        for (int value : values) {
+            element();
+            number(value);
+        }
+        return endArray();
+    }
+
+    /**
+     * @param key    - The field's name.
+     * @param values - The field's value, an array of numbers.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter field(String key, long[] values) throws IOException {
+        name(key);
+        beginArray();
+        for (long value : values) {
+            element();
+            number(value);
+        }
+        return endArray();
+    }
+
+    /**
+     * @param key    - The field's name.
+     * @param values - The field's value, an array of strings.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter field(String key, List<String> values) throws IOException {
+        name(key);
+        beginArray();
+        for (String value : values) {
+            element();
+            if (value == null)
+                out.write(NULL);
+            else string(value);
+        }
+        return endArray();
+    }
+
+    /**
+     * @param key    - The field's name.
+     * @param values - The field's value, an array of objects.
+     * @return this.
+     * @throws IOException if out or writeJSON(JsonWriter) throws an IOException.
+     */
+    JsonWriter objects(String key, List<? extends Saveable> values) throws IOException {
+        name(key);
+        beginArray();
+        for (Saveable value : values)
+            value.writeJSON(this);
+        return endArray();
+    }
+
+    /**
+     * Writes JSON that was already made, such as toJSON().toString(), as a value or an element.
+     * @param json - Valid JSON.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    JsonWriter raw(String json) throws IOException {
+        element();
+        utf8(json);
+        return this;
+    }
+
+    /**
+     * @param bracket - '{' or '['.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    private JsonWriter open(char bracket) throws IOException {
+        element();
+        out.write(bracket);
+        depth++;
+        empty |= 1L << depth;
+        return this;
+    }
+
+    /**
+     * @param bracket - '}' or ']'.
+     * @return this.
+     * @throws IOException if out throws an IOException.
+     */
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        out.write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the comma before an element or field, unless it is the first one or the value of a field.
+     * @throws IOException if out throws an IOException.
+     */
+    private void element() throws IOException {
+        long bit = 1L << depth;
+        if (named)
+            named = false;
+        else if ((empty & bit) != 0)
+            empty &= ~bit;
+        else if (depth > 0)
+            out.write(',');
+    }
+
+    /**
+     * @param value - A number.
+     * @throws IOException if out throws an IOException.
+     */
+    private void number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            utf8(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            out.write('-');
+            value = -value;
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        out.write(digits, i, digits.length - i);
+    }
+
+    /**
+     * Writes value in quotes, escaped as json-simple's JSONValue.escape(String) does.
+     * @param value - Any string.
+     * @throws IOException if out throws an IOException.
+     */
+    private void string(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    escape('"');
+                    break;
+                case '\\':
+                    escape('\\');
+                    break;
+                case '\b':
+                    escape('b');
+                    break;
+                case '\f':
+                    escape('f');
+                    break;
+                case '\n':
+                    escape('n');
+                    break;
+                case '\r':
+                    escape('r');
+                    break;
+                case '\t':
+                    escape('t');
+                    break;
+                case '/':
+                    escape('/');
+                    break;
+                default:
+                    if (ch <= 0x1F || ch >= 0x7F && ch <= 0x9F || ch >= 0x2000 && ch <= 0x20FF) {
+                        escape('u');
+                        for (int shift = 12; shift >= 0; shift -= 4)
+                            out.write(HEX[ch >> shift & 0xF]);
+                    } else i = utf8(value, i);
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * @param ch - Written after a backslash.
+     * @throws IOException if out throws an IOException.
+     */
+    private void escape(char ch) throws IOException {
+        out.write('\\');
+        out.write(ch);
+    }
+
+    /**
+     * @param text - Written as UTF-8, unescaped.
+     * @throws IOException if out throws an IOException.
+     */
+    private void utf8(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++)
+            i = utf8(text, i);
+    }
+
+    /**
+     * Writes the character at index i of text as UTF-8. Surrogate pairs are written as one character; a lone
+     * surrogate is written as '?', like String.getBytes(UTF_8).
+     * @param text - A string.
+     * @param i    - An index in text.
+     * @return The index of the last char written, i + 1 for a surrogate pair, i otherwise.
+     * @throws IOException if out throws an IOException.
+     */
+    private int utf8(String text, int i) throws IOException {
+        char ch = text.charAt(i);
+        if (ch < 0x80) {
+            out.write(ch);
+        } else if (ch < 0x800) {
+            out.write(0xC0 | ch >> 6);
+            out.write(0x80 | ch & 0x3F);
+        } else if (!Character.isSurrogate(ch)) {
+            out.write(0xE0 | ch >> 12);
+            out.write(0x80 | ch >> 6 & 0x3F);
+            out.write(0x80 | ch & 0x3F);
+        } else if (Character.isHighSurrogate(ch) && i + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(i + 1))) {
+            int code = Character.toCodePoint(ch, text.charAt(++i));
+            out.write(0xF0 | code >> 18);
+            out.write(0x80 | code >> 12 & 0x3F);
+            out.write(0x80 | code >> 6 & 0x3F);
+            out.write(0x80 | code & 0x3F);
+        } else out.write('?');
+        return i;
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Paulkia 2020.
+ * Balances the Fakeydex without playtesting: for every pair of species in GAME_MONS and every kill count in a range,
+ * fights many headless battles with BattleEngine (the real Attack and held item rules, both sides choosing attacks as
+ * wild Fakeymon do) between the two species scaled as in Monster(Monster, int, Rng). Runs on a ForkJoinPool over all
+ * cores. Prints each tier's win-rate matrix and writes every matchup, with a 95% confidence interval on its win rate
+ * and the distribution of how many turns its knockouts took, to a CSV file. Run from the repository root, e.g.:
+ *      java MatchupAnalyzer --battles 10000 --kills 0-19 matchups.csv
+ * Battles still going after --max-turns (DEFAULT_MAX_TURNS) are draws, like escapes. Stalemates between two walls
+ * that cannot hurt each other otherwise take most of the time, and barely any knockout takes this long.
+ * Results depend only on the seed, not on the number of threads.
+ */
+class MatchupAnalyzer extends Fakeyverse {
+
+    // Knockouts are counted by turn up to this many turns; longer ones share the last bucket.
+    static final int TURN_BUCKETS = 32;
+    // Turns after which a battle is a draw, unless given. See the class comment.
+    static final int DEFAULT_MAX_TURNS = 100;
+    // z of a 95% confidence interval.
+    static final double Z95 = 1.959964;
+    // Roughly how many battles a fork-join task fights before it stops splitting.
+    private static final int BATTLES_PER_TASK = 1 << 16;
+
+    // The kill counts analysed, the number of battles per matchup, and their turn limit.
+    private final int[] kills;
+    private final int battles, maxTurns;
+    private final long seed;
+    // templates[tier][species]: the species scaled for kills[tier]. Its stats and attacks are shared, never changed.
+    private final Monster[][] templates;
+    private final int species;
+
+    // Per matchup, by cell(tier, a, b): wins of a, wins of b, battles that ended in an escape or maxTurns, the sum of
+    // the turns of all knockouts, and knockouts by turn (turnCounts[cell * TURN_BUCKETS + t - 1]
+    // for t turns, up to TURN_BUCKETS).
+    final int[] winsA, winsB, draws;
+    final long[] turnSum;
+    private final int[] turnCounts;
+
+    /**
+     * @param kills    - The kill counts to analyse, one tier each.
+     * @param battles  - Battles per matchup and tier.
+     * @param maxTurns - Turns after which a battle is a draw.
+     * @param seed     - Decides every battle.
+     */
+    MatchupAnalyzer(int[] kills, int battles, int maxTurns, long seed) {
+        this.kills = kills.clone();
+        this.battles = battles;
+        this.maxTurns = maxTurns;
+        this.seed = seed;
+        species = GAME_MONS.size();
+        templates = new Monster[kills.length][species];
+        Rng rng = new Rng(seed);
+        for (int tier = 0; tier < kills.length; tier++)
+            for (int s = 0; s < species; s++)
+                templates[tier][s] = new Monster(GAME_MONS.get(s), kills[tier], rng);
+        int cells = kills.length * species * species;
+        winsA = new int[cells];
+        winsB = new int[cells];
+        draws = new int[cells];
+        turnSum = new long[cells];
+        turnCounts = new int[cells * TURN_BUCKETS];
+    }
+
+    /**
+     * @param args - [--battles N] [--kills 0-19 or 0,5,10] [--max-turns T] [--seed S] [--threads T] [output.csv]
+     * @throws IOException if the CSV file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int battles = 10000, maxTurns = DEFAULT_MAX_TURNS, threads = Runtime.getRuntime().availableProcessors();
+        int[] kills = range(0, FAKEYCEUS_KILLS);
+        long seed = System.nanoTime();
+        File out = new File("matchups.csv");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--battles":
+                    battles = Integer.parseInt(args[++i]);
+                    break;
+                case "--kills":
+                    kills = parseKills(args[++i]);
+                    break;
+                case "--max-turns":
+                    maxTurns = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    out = new File(args[i]);
+            }
+        }
+        MatchupAnalyzer analyzer = new MatchupAnalyzer(kills, battles, maxTurns, seed);
+        long start = System.nanoTime();
+        analyzer.run(new ForkJoinPool(threads));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        analyzer.printMatrices(System.out);
+        analyzer.writeCsv(out);
+        long total = (long) analyzer.winsA.length * battles;
+        System.out.printf("%,d battles in %.1f s (%,.0f per second) on %d threads, seed %d. Wrote %s.%n",
+                total, seconds, total / seconds, threads, seed, out);
+    }
+
+    /**
+     * Fights every battle, filling in the results.
+     *
+     * @param pool - The pool to fight them on.
+     */
+    void run(ForkJoinPool pool) {
+        int perTask = Math.max(1, BATTLES_PER_TASK / Math.max(1, battles));
+        pool.invoke(new Cells(0, winsA.length, perTask));
+    }
+
+    /*
+     * Fights the battles of matchups from to to, splitting in half until there are at most perTask of them.
+     */
+    private class Cells extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final int from, to, perTask;
+
+        Cells(int from, int to, int perTask) {
+            this.from = from;
+            this.to = to;
+            this.perTask = perTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > perTask) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Cells(from, middle, perTask), new Cells(middle, to, perTask));
+                return;
+            }
+            Fighter fighter = new Fighter();
+            for (int cell = from; cell < to; cell++)
+                fighter.fight(cell);
+        }
+    }
+
+    /*
+     * What one task needs to fight battles without allocating: two monsters, reloaded from templates before every
+     * battle, and a result to fill in.
+     */
+    private class Fighter {
+        final Monster mine = new Monster(""), theirs = new Monster("");
+        final BattleResult result = new BattleResult();
+
+        /**
+         * Fights the battles of one matchup and records them. The species of the row (a) is the first monster in
+         * half of the battles and the second in the other half, so neither gets the speed ties.
+         *
+         * @param cell - The matchup, see cell(int, int, int).
+         */
+        void fight(int cell) {
+            int tier = cell / (species * species), a = cell / species % species, b = cell % species;
+            Rng rng = new Rng(seed + (cell + 1) * 0x9E3779B97F4A7C15L);
+            BattleEngine engine = new BattleEngine(rng, maxTurns);
+            int base = cell * TURN_BUCKETS;
+            for (int i = 0; i < battles; i++) {
+                load(mine, templates[tier][a], rng);
+                load(theirs, templates[tier][b], rng);
+                boolean first = (i & 1) == 0;
+                if (first)
+                    engine.fight(mine, theirs, MovePolicy.RANDOM, MovePolicy.RANDOM, result);
+                else engine.fight(theirs, mine, MovePolicy.RANDOM, MovePolicy.RANDOM, result);
+                if (result.winner == BattleResult.NONE) {
+                    draws[cell]++;
+                    continue;
+                }
+                if ((result.winner == BattleResult.A) == first)
+                    winsA[cell]++;
+                else winsB[cell]++;
+                turnSum[cell] += result.turns;
+                turnCounts[base + Math.min(result.turns, TURN_BUCKETS) - 1]++;
+            }
+        }
+
+        /**
+         * Makes mon a fresh wild monster of template's species and tier, rolling its held item as
+         * Monster(Monster, int, Rng) does.
+         *
+         * @param mon      - The monster to reload.
+         * @param template - The species, scaled.
+         * @param rng      - The random object choosing the held item.
+         */
+        private void load(Monster mon, Monster template, Rng rng) {
+            mon.name = template.name;
+            mon.ID = template.ID;
+            mon.stats = template.stats;
+            mon.attacks = template.attacks;
+            System.arraycopy(template.stats, 0, mon.tempStats, 0, NUM_STATS);
+            mon.holdItem = rng.nextInt(100) < HOLD_ITEM_PROBABILITY ? generateItem(rng) : null;
+            mon.resting = false;
+        }
+    }
+
+    /**
+     * @param tier - Index in kills.
+     * @param a    - Index in GAME_MONS of the row species.
+     * @param b    - Index in GAME_MONS of the column species.
+     * @return The index of the matchup in the result arrays.
+     */
+    int cell(int tier, int a, int b) {
+        return (tier * species + a) * species + b;
+    }
+
+    /**
+     * @param cell - A matchup.
+     * @return The win rate of a, with draws counted as battles not won.
+     */
+    double winRate(int cell) {
+        return (double) winsA[cell] / battles;
+    }
+
+    /**
+     * The Wilson score interval of a binomial proportion, which unlike p +- z * stderr stays within [0, 1] and holds
+     * up near 0% and 100%, where lopsided matchups are.
+     *
+     * @param successes - Number of successes.
+     * @param trials    - Number of trials.
+     * @param z         - The z of the confidence level, such as Z95.
+     * @return {low, high}.
+     */
+    static double[] wilson(int successes, int trials, double z) {
+        if (trials == 0)
+            return new double[]{0, 1};
+        double p = (double) successes / trials, z2 = z * z;
+        double center = (p + z2 / (2.0 * trials)) / (1 + z2 / trials);
+        double margin = z / (1 + z2 / trials) * Math.sqrt(p * (1 - p) / trials + z2 / (4.0 * trials * trials));
+        return new double[]{Math.max(0, center - margin), Math.min(1, center + margin)};
+    }
+
+    /**
+     * @param cell     - A matchup.
+     * @param quantile - From 0 to 1, such as 0.5 for the median.
+     * @return The number of turns by which that share of the matchup's knockouts had happened (TURN_BUCKETS if later),
+     * or 0 if it had none.
+     */
+    int turnQuantile(int cell, double quantile) {
+        int knockouts = winsA[cell] + winsB[cell];
+        if (knockouts == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(quantile * knockouts)), seen = 0;
+        for (int t = 0; t < TURN_BUCKETS; t++) {
+            seen += turnCounts[cell * TURN_BUCKETS + t];
+            if (seen >= target)
+                return t + 1;
+        }
+        return TURN_BUCKETS;
+    }
+
+    /**
+     * Prints, for each tier, the win rate in percent of each row species against each column species, and its
+     * average against the whole Fakeydex.
+     *
+     * @param out - Where to print.
+     */
+    void printMatrices(PrintStream out) {
+        for (int tier = 0; tier < kills.length; tier++) {
+            out.println(DIVIDER + "Win % of row vs column at " + kills[tier] + " kills:");
+            StringBuilder line = new StringBuilder(String.format("%-12s", ""));
+            for (int b = 0; b < species; b++)
+                line.append(String.format("%5.5s", GAME_MONS.get(b).name));
+            out.println(line.append("   avg"));
+            for (int a = 0; a < species; a++) {
+                line.setLength(0);
+                line.append(String.format("%-12.12s", GAME_MONS.get(a).name));
+                double sum = 0;
+                for (int b = 0; b < species; b++) {
+                    double rate = winRate(cell(tier, a, b));
+                    sum += rate;
+                    line.append(String.format("%5d", Math.round(rate * 100)));
+                }
+                out.println(line.append(String.format("%6.1f", sum / species * 100)));
+            }
+        }
+    }
+
+    /**
+     * Writes one row per matchup: kills, the two species, battles, wins, draws, the win rate and its 95% interval,
+     * the mean and 10th/50th/90th percentile turns of its knockouts, and knockouts by turn (1 to TURN_BUCKETS or more,
+     * separated by spaces).
+     *
+     * @param file - The CSV file. Overwritten.
+     * @throws IOException if it cannot be written.
+     */
+    void writeCsv(File file) throws IOException {
+        try (PrintStream out = new PrintStream(file, "UTF-8")) {
+            out.println("kills,species,opponent,battles,wins,losses,draws,win_rate,win_low,win_high," +
+                    "mean_turns,turns_p10,turns_p50,turns_p90,turn_histogram");
+            StringBuilder row = new StringBuilder();
+            for (int tier = 0; tier < kills.length; tier++)
+                for (int a = 0; a < species; a++)
+                    for (int b = 0; b < species; b++) {
+                        int cell = cell(tier, a, b), knockouts = winsA[cell] + winsB[cell];
+                        double[] interval = wilson(winsA[cell], battles, Z95);
+                        row.setLength(0);
+                        row.append(kills[tier]).append(',').append(GAME_MONS.get(a).name).append(',')
+                                .append(GAME_MONS.get(b).name).append(',').append(battles).append(',')
+                                .append(winsA[cell]).append(',').append(winsB[cell]).append(',')
+                                .append(draws[cell]).append(',')
+                                .append(String.format("%.4f,%.4f,%.4f,%.2f,", winRate(cell), interval[0],
+                                        interval[1], knockouts == 0 ? 0.0 : (double) turnSum[cell] / knockouts))
+                                .append(turnQuantile(cell, 0.1)).append(',').append(turnQuantile(cell, 0.5))
+                                .append(',').append(turnQuantile(cell, 0.9)).append(',');
+                        for (int t = 0; t < TURN_BUCKETS; t++)
+                            row.append(t == 0 ? "" : " ").append(turnCounts[cell * TURN_BUCKETS + t]);
+                        out.println(row);
+                    }
+        }
+    }
+
+    /**
+     * @param spec - Kill counts, as a range such as 0-19 or a list such as 0,5,10.
+     * @return The kill counts.
+     */
+    static int[] parseKills(String spec) {
+        int dash = spec.indexOf('-');
+        if (dash > 0)
+            return range(Integer.parseInt(spec.substring(0, dash)), Integer.parseInt(spec.substring(dash + 1)));
+        List<Integer> list = new ArrayList<>();
+        for (String kill : spec.split(","))
+            list.add(Integer.parseInt(kill.trim()));
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @param from - The first int.
+     * @param to   - The last int.
+     * @return The ints from from to to, inclusive.
+     */
+    private static int[] range(int from, int to) {
+        int[] result = new int[Math.max(0, to - from + 1)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = from + i;
+        return result;
+    }
+}
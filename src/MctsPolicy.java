@@ -0,0 +1,323 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Paulkia 2020.
+ * A MovePolicy that thinks before it attacks: Monte Carlo tree search over the next turns of the battle, played out
+ * with BattleEngine itself, so every playout follows the real damage, accuracy, crits, resting and held items. The
+ * tree alternates the enemy's choice and the user's, each side taking the attack that has won it the most so far
+ * (UCT), and each playout fights on from there at random. The enemy then uses the attack it tried most.
+ * Each worker grows a tree of its own from a split of a copy of the battle's Rng, on a shared pool of daemon threads,
+ * and their counts are added up at the end (root parallelization); the battle's own rolls are left untouched. A search
+ * stops after its time budget or its playouts; a budget of playouts only makes the same choice every time for the
+ * same Rng, so seeded games replay.
+ * Enemies of each tier think for as long as -Dfakeymon.ai.<tier>=<milliseconds> says, 0 being the old random
+ * choice; see WILD, FAKEYCEUS and FAKEYCEUS2. The defaults stay well under a tenth of a second, which goes unnoticed
+ * among the pauses of a battle.
+ */
+class MctsPolicy extends Fakeyverse implements MovePolicy {
+
+    // Turns a playout fights before calling the battle a draw.
+    static final int PLAYOUT_TURNS = 40;
+    // Most nodes in a worker's tree. Once it is full, the search goes on playing out from its leaves.
+    static final int MAX_NODES = 1 << 14;
+    // How much UCT favours attacks tried less often over those that won more.
+    static final double EXPLORATION = 1.4;
+    // Threads searching at once, one per core.
+    static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    // The policy of each tier of enemy.
+    static final MovePolicy WILD = forTier("wild", 0),
+            FAKEYCEUS = forTier("fakeyceus", 40),
+            FAKEYCEUS2 = forTier("fakeyceus2", 80);
+
+    // The threads every search runs on, started with the first search.
+    private static ExecutorService pool;
+    // Each pool thread's tree and copies of the monsters, reused from search to search.
+    private static final ThreadLocal<Worker> WORKERS = ThreadLocal.withInitial(Worker::new);
+
+    // Milliseconds each choice may take, or 0; playouts each choice may take, or 0; threads it runs on.
+    final long millis;
+    final int playouts, threads;
+
+    /**
+     * @param millis   - Roughly how long each choice may take, in milliseconds, or 0 for no limit.
+     * @param playouts - How many playouts each choice may take, or 0 for no limit.
+     * @param threads  - How many threads to search on, at most THREADS.
+     * @throws IllegalArgumentException if there is neither a time limit nor a playout limit, or threads < 1.
+     */
+    MctsPolicy(long millis, int playouts, int threads) {
+        if (millis <= 0 && playouts <= 0)
+            throw new IllegalArgumentException("A search needs a time or playout budget");
+        if (threads < 1)
+            throw new IllegalArgumentException("A search needs at least one thread");
+        this.millis = Math.max(millis, 0);
+        this.playouts = Math.max(playouts, 0);
+        this.threads = Math.min(threads, THREADS);
+    }
+
+    /**
+     * @param tier          - The tier of enemy, as in -Dfakeymon.ai.tier.
+     * @param defaultMillis - Its budget if the property is not set.
+     * @return A search on all cores with the tier's time budget, or RANDOM if that is 0.
+     */
+    static MovePolicy forTier(String tier, int defaultMillis) {
+        int millis = Integer.getInteger("fakeymon.ai." + tier, defaultMillis);
+        return millis <= 0 ? RANDOM : new MctsPolicy(millis, 0, THREADS);
+    }
+
+    @Override
+    public int choose(Monster self, Monster foe, Rng rng) {
+        if (self.attacks.size() == 1 || self.resting) // Nothing to think about.
+            return 0;
+        long deadline = millis == 0 ? Long.MAX_VALUE : System.nanoTime() + millis * 1_000_000;
+        List<Future<Worker.Tally>> searches = new ArrayList<>();
+        Rng seeds = new Rng(rng.state()); // So a BattleJournal replays the battle's rolls without searching again.
+        for (int i = 0; i < threads; i++) {
+            Rng split = seeds.split();
+            int share = playouts == 0 ? 0 : Math.max(1, (playouts + i) / threads);
+            searches.add(pool().submit(() -> WORKERS.get().search(self, foe, split, deadline, share)));
+        }
+        long[] visits = new long[self.attacks.size()];
+        double[] wins = new double[visits.length];
+        try {
+            for (Future<Worker.Tally> search : searches) {
+                Worker.Tally tally = search.get();
+                for (int i = 0; i < visits.length; i++) {
+                    visits[i] += tally.visits[i];
+                    wins[i] += tally.wins[i];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        int best = 0;
+        for (int i = 1; i < visits.length; i++)
+            if (visits[i] > visits[best] || visits[i] == visits[best] && wins[i] > wins[best])
+                best = i;
+        return best;
+    }
+
+    /**
+     * @return The pool of search threads, started if need be.
+     */
+    private static synchronized ExecutorService pool() {
+        if (pool == null)
+            pool = Executors.newFixedThreadPool(THREADS, task -> {
+                Thread thread = new Thread(task, "mcts");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return pool;
+    }
+
+    /*
+     * One thread's search: its tree, kept as arrays of nodes, and copies of the monsters to play on. Nodes at even
+     * depths are the enemy's to choose from, at odd depths the user's; a node's wins are counted for the side that
+     * chose it.
+     */
+    private static final class Worker {
+
+        // Each node's first child (or -1 until expanded), how many children it has, how often it was played and how
+        // often that won for the side that chose it (draws counting half).
+        private final int[] firstChild = new int[MAX_NODES], childCount = new int[MAX_NODES];
+        private final int[] visits = new int[MAX_NODES];
+        private final double[] wins = new double[MAX_NODES];
+        private int size;
+        // The nodes of the current playout, root first.
+        private int[] path = new int[64];
+        // Copies of the enemy (self) and the user's mon (foe).
+        private final Monster self = new Monster(""), foe = new Monster("");
+        private final BattleResult result = new BattleResult();
+        // Plays the enemy's chosen attack when the engine asks for it.
+        private final Fixed enemyMove = new Fixed();
+
+        /*
+         * The root's children after a search, one per attack of the enemy.
+         */
+        static final class Tally {
+            final int[] visits;
+            final double[] wins;
+
+            Tally(int[] visits, double[] wins) {
+                this.visits = visits;
+                this.wins = wins;
+            }
+        }
+
+        /**
+         * Searches until deadline or until playouts playouts are done.
+         *
+         * @param enemy    - The monster choosing an attack. Not modified.
+         * @param mon      - Its foe, the user's mon. Not modified.
+         * @param rng      - The Rng of this search.
+         * @param deadline - When to stop, by System.nanoTime(); at least one playout is done.
+         * @param playouts - How many playouts to do, or 0 for as many as time allows.
+         * @return How often each of enemy's attacks was tried, and won.
+         */
+        Tally search(Monster enemy, Monster mon, Rng rng, long deadline, int playouts) {
+            BattleEngine engine = new BattleEngine(rng, PLAYOUT_TURNS);
+            self.name = enemy.name;
+            self.stats = enemy.stats;
+            self.attacks = enemy.attacks;
+            foe.name = mon.name;
+            foe.stats = mon.stats;
+            foe.attacks = mon.attacks;
+            size = 1;
+            firstChild[0] = -1;
+            visits[0] = 0;
+            wins[0] = 0;
+            for (int n = 1; ; n++) {
+                playout(enemy, mon, engine);
+                if (n == playouts || (n & 15) == 0 && System.nanoTime() > deadline)
+                    break;
+            }
+            int count = childCount[0];
+            int[] rootVisits = new int[count];
+            double[] rootWins = new double[count];
+            for (int i = 0; i < count; i++) {
+                rootVisits[i] = visits[firstChild[0] + i];
+                rootWins[i] = wins[firstChild[0] + i];
+            }
+            return new Tally(rootVisits, rootWins);
+        }
+
+        /**
+         * Goes down the tree from the root, choosing by UCT and playing each turn, adds a level below the last node
+         * reached, fights the rest of the battle at random and counts the result along the way.
+         *
+         * @param enemy  - The enemy as the search started.
+         * @param mon    - The user's mon as the search started.
+         * @param engine - Plays the turns.
+         */
+        private void playout(Monster enemy, Monster mon, BattleEngine engine) {
+            copyState(enemy, self);
+            copyState(mon, foe);
+            int length = 0, node = 0, depth = 0;
+            boolean over = false;
+            path[length++] = node;
+            while (!over) {
+                if (firstChild[node] < 0) {
+                    int count = (depth % 2 == 0 ? self : foe).attacks.size();
+                    if (size + count > MAX_NODES)
+                        break;
+                    expand(node, count);
+                }
+                int child = select(node);
+                if (length == path.length)
+                    path = Arrays.copyOf(path, length * 2);
+                path[length++] = child;
+                int choice = child - firstChild[node];
+                if (depth % 2 == 0)
+                    enemyMove.move = choice;
+                else
+                    over = turn(engine, choice);
+                depth++;
+                boolean unseen = visits[child] == 0;
+                node = child;
+                if (unseen)
+                    break;
+            }
+            double value; // For the enemy.
+            if (!over && depth % 2 == 1) // The enemy chose, the user did not yet: finish the turn at random.
+                over = turn(engine, engine.rng.nextInt(foe.attacks.size()));
+            if (over)
+                value = value(self, foe, null);
+            else {
+                engine.fight(foe, self, RANDOM, RANDOM, result);
+                value = value(self, foe, result);
+            }
+            for (int i = 0; i < length; i++) {
+                int n = path[i];
+                visits[n]++;
+                // Children of even depths (odd i) are the enemy's choices.
+                wins[n] += i % 2 == 1 ? value : 1 - value;
+            }
+        }
+
+        /**
+         * Plays one turn, the enemy using enemyMove.
+         *
+         * @param engine - The engine.
+         * @param move   - The attack the user's mon uses.
+         * @return Whether the battle is over.
+         */
+        private boolean turn(BattleEngine engine, int move) {
+            try {
+                return engine.exchange(foe, move, self, enemyMove) ||
+                        self.tempStats[HP] <= 0 || foe.tempStats[HP] <= 0;
+            } catch (Exception e) { // Only listeners throw, and the engine has none.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * @param enemy  - The enemy after a playout.
+         * @param mon    - The user's mon after it.
+         * @param result - The result of the random fight that ended it, or null if the tree ended it.
+         * @return 1 if the enemy won, 0 if it lost, 1/2 otherwise (a draw, or a monster leaving).
+         */
+        private static double value(Monster enemy, Monster mon, BattleResult result) {
+            if (result != null && result.escaped)
+                return 0.5;
+            boolean enemyDead = enemy.tempStats[HP] <= 0, monDead = mon.tempStats[HP] <= 0;
+            return enemyDead == monDead ? 0.5 : monDead ? 1 : 0;
+        }
+
+        private void expand(int node, int count) {
+            firstChild[node] = size;
+            childCount[node] = count;
+            for (int i = size; i < size + count; i++) {
+                firstChild[i] = -1;
+                visits[i] = 0;
+                wins[i] = 0;
+            }
+            size += count;
+        }
+
+        /**
+         * @param node - An expanded node.
+         * @return The child to play: the first never played, or else the one with the best UCT score.
+         */
+        private int select(int node) {
+            int first = firstChild[node], best = first;
+            double bestScore = Double.NEGATIVE_INFINITY, log = Math.log(Math.max(visits[node], 1));
+            for (int child = first; child < first + childCount[node]; child++) {
+                if (visits[child] == 0)
+                    return child;
+                double score = wins[child] / visits[child] + EXPLORATION * Math.sqrt(log / visits[child]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        private static void copyState(Monster from, Monster to) {
+            System.arraycopy(from.tempStats, 0, to.tempStats, 0, NUM_STATS);
+            to.resting = from.resting;
+            to.holdItem = from.holdItem;
+        }
+    }
+
+    /*
+     * A MovePolicy that always uses the same attack, set before each turn.
+     */
+    private static final class Fixed implements MovePolicy {
+        int move;
+
+        @Override
+        public int choose(Monster self, Monster foe, Rng rng) {
+            return move;
+        }
+    }
+}
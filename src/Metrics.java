@@ -0,0 +1,451 @@
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Paulkia 2020.
+ * What a running game spends its time on: counters, gauges and histograms, kept in LongAdders and DoubleAdders so
+ * recording takes no lock and allocates nothing, and can stay on while people play. Every metric is declared here,
+ * so each is exported (at 0) from the start, and updated where it happens: battles in Battle, attacks and damage in
+ * BattleNarrator (so only battles the user plays are counted, not the simulations of MctsPolicy and BattleSolver),
+ * saves in Game and SaveWriter, audio in SoundBank and MusicPlayer, and the data tables in GameData.
+ * start() publishes them all through JMX, as the attributes of the MBean fakeymon:type=Metrics, and, with
+ * -Dfakeymon.metrics=<file>, writes them to file in the Prometheus text format every -Dfakeymon.metrics.seconds
+ * seconds (15 by default) and when the program exits.
+ */
+final class Metrics {
+
+    // Seconds between dumps to the file, by default.
+    static final int DUMP_SECONDS = 15;
+    // Bucket bounds for durations, in seconds; turns; and sizes, in bytes.
+    private static final double[] SECONDS = {0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5},
+            TURNS = {1, 2, 3, 5, 8, 13, 21, 34, 55},
+            BYTES = {256, 1024, 4096, 16384, 65536};
+
+    // Every metric, grouped by name in the order they were declared.
+    private static final Map<String, List<Metric>> REGISTRY = new LinkedHashMap<>();
+
+    // Battle.
+    static final Counter BATTLES = counter("fakeymon_battles_total", "Battles started.", ""),
+            ESCAPES = counter("fakeymon_escapes_total", "Battles the user ran or escaped from.", ""),
+            USER_DEATHS = counter("fakeymon_deaths_total", "Monsters that died in battle.", "side=\"user\""),
+            ENEMY_DEATHS = counter("fakeymon_deaths_total", "Monsters that died in battle.", "side=\"enemy\"");
+    static final Histogram BATTLE_TURNS = histogram("fakeymon_battle_turns",
+            "Turns the enemy got to act in each battle.", "", TURNS);
+    // BattleNarrator.
+    static final Counter USER_DAMAGE = counter("fakeymon_damage_dealt_total",
+            "HP taken by attacks and held items in battle.", "side=\"user\""),
+            ENEMY_DAMAGE = counter("fakeymon_damage_dealt_total",
+                    "HP taken by attacks and held items in battle.", "side=\"enemy\""),
+            HITS = counter("fakeymon_attack_hits_total", "Attacks that landed in battle.", ""),
+            MISSES = counter("fakeymon_attack_misses_total", "Attacks that missed in battle.", ""),
+            CRITS = counter("fakeymon_attack_crits_total", "Critical hits in battle.", ""),
+            EVADES = counter("fakeymon_attack_evades_total", "Attacks partially evaded in battle.", "");
+    // Game and SaveWriter.
+    static final Histogram SAVE_TIME = histogram("fakeymon_save_seconds",
+            "Time the game waited for each autosave to be made and queued.", "", SECONDS),
+            SAVE_WRITE_TIME = histogram("fakeymon_save_write_seconds",
+                    "Time each save file took to write and sync.", "", SECONDS),
+            SAVE_BYTES = histogram("fakeymon_save_bytes", "Size of each save written.", "", BYTES);
+    // SoundBank and MusicPlayer.
+    static final Histogram SOUND_LOAD_TIME = histogram("fakeymon_sound_load_seconds",
+            "Time each sound effect took to decode.", "", SECONDS),
+            MUSIC_OPEN_TIME = histogram("fakeymon_music_open_seconds",
+                    "Time each music track took to open.", "", SECONDS);
+    // GameData, in the order of GameData.FILES, then the total.
+    static final Gauge[] DATA_LOAD_TIME = {
+            gauge("fakeymon_data_load_seconds", "Time the data tables took to make.", "table=\"items\""),
+            gauge("fakeymon_data_load_seconds", "Time the data tables took to make.", "table=\"attacks\""),
+            gauge("fakeymon_data_load_seconds", "Time the data tables took to make.", "table=\"fakeydex\""),
+            gauge("fakeymon_data_load_seconds", "Time the data tables took to make.", "table=\"total\"")};
+
+    // Dumps the metrics to the file; null until start().
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    /*
+     * One metric: a name, a help text and labels shared by the metrics of that name, and its value.
+     */
+    abstract static class Metric {
+        final String name, help, labels;
+
+        Metric(String name, String help, String labels) {
+            this.name = name;
+            this.help = help;
+            this.labels = labels;
+        }
+
+        /**
+         * @return The Prometheus type: counter, gauge or histogram.
+         */
+        abstract String type();
+
+        /**
+         * Appends this metric's lines, in the Prometheus text format.
+         *
+         * @param out - Receives the lines.
+         */
+        abstract void write(StringBuilder out);
+
+        /**
+         * Adds this metric's JMX attributes and their values.
+         *
+         * @param out - Receives each attribute's name and value.
+         */
+        abstract void attributes(Map<String, Object> out);
+
+        /**
+         * @param suffix - Added to the name, such as _sum.
+         * @param extra  - A label added to labels, such as le="1", or "".
+         * @return The name and labels of a line, such as name_bucket{side="user",le="1"}.
+         */
+        String series(String suffix, String extra) {
+            String all = labels.isEmpty() ? extra : extra.isEmpty() ? labels : labels + "," + extra;
+            return name + suffix + (all.isEmpty() ? "" : "{" + all + "}");
+        }
+
+        /**
+         * @param suffix - Added to the attribute's name, such as _count.
+         * @return The JMX attribute's name: the name, the label values and suffix, e.g. fakeymon_deaths_total.user.
+         */
+        String attribute(String suffix) {
+            StringBuilder result = new StringBuilder(name);
+            for (String label : labels.isEmpty() ? new String[0] : labels.split(","))
+                result.append('.').append(label, label.indexOf('"') + 1, label.length() - 1);
+            return result.append(suffix).toString();
+        }
+    }
+
+    /*
+     * A count that only goes up.
+     */
+    static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name, String help, String labels) {
+            super(name, help, labels);
+        }
+
+        void inc() {
+            value.increment();
+        }
+
+        /**
+         * @param amount - How much to add. Must not be negative.
+         */
+        void add(long amount) {
+            value.add(amount);
+        }
+
+        long get() {
+            return value.sum();
+        }
+
+        String type() {
+            return "counter";
+        }
+
+        void write(StringBuilder out) {
+            out.append(series("", "")).append(' ').append(get()).append('\n');
+        }
+
+        void attributes(Map<String, Object> out) {
+            out.put(attribute(""), get());
+        }
+    }
+
+    /*
+     * A value that is set, such as how long something took once.
+     */
+    static final class Gauge extends Metric {
+        private volatile double value;
+
+        Gauge(String name, String help, String labels) {
+            super(name, help, labels);
+        }
+
+        void set(double value) {
+            this.value = value;
+        }
+
+        /**
+         * @param nanos - A duration in nanoseconds, set as seconds.
+         */
+        void setNanos(long nanos) {
+            value = nanos / 1e9;
+        }
+
+        double get() {
+            return value;
+        }
+
+        String type() {
+            return "gauge";
+        }
+
+        void write(StringBuilder out) {
+            out.append(series("", "")).append(' ').append(get()).append('\n');
+        }
+
+        void attributes(Map<String, Object> out) {
+            out.put(attribute(""), get());
+        }
+    }
+
+    /*
+     * How many observations fell at or under each of a few bounds, their count and their sum.
+     */
+    static final class Histogram extends Metric {
+        // The upper bound of each bucket; the last bucket, +Inf, has none.
+        private final double[] bounds;
+        // How many observations fell in each bucket (not cumulative), and their sum.
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(String name, String help, String labels, double[] bounds) {
+            super(name, help, labels);
+            this.bounds = bounds;
+            buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        /**
+         * @param value - The observation.
+         */
+        void observe(double value) {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket])
+                bucket++;
+            buckets[bucket].increment();
+            sum.add(value);
+        }
+
+        /**
+         * @param nanos - A duration in nanoseconds, observed as seconds.
+         */
+        void observeNanos(long nanos) {
+            observe(nanos / 1e9);
+        }
+
+        /**
+         * @return How many observations were made.
+         */
+        long count() {
+            long result = 0;
+            for (LongAdder bucket : buckets)
+                result += bucket.sum();
+            return result;
+        }
+
+        String type() {
+            return "histogram";
+        }
+
+        void write(StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < bounds.length ? bound(bounds[i]) : "+Inf";
+                out.append(series("_bucket", "le=\"" + le + "\"")).append(' ').append(cumulative).append('\n');
+            }
+            out.append(series("_sum", "")).append(' ').append(sum.sum()).append('\n');
+            out.append(series("_count", "")).append(' ').append(cumulative).append('\n');
+        }
+
+        void attributes(Map<String, Object> out) {
+            out.put(attribute("_count"), count());
+            out.put(attribute("_sum"), sum.sum());
+        }
+
+        private static String bound(double bound) {
+            return BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    static Counter counter(String name, String help, String labels) {
+        return register(new Counter(name, help, labels));
+    }
+
+    static Gauge gauge(String name, String help, String labels) {
+        return register(new Gauge(name, help, labels));
+    }
+
+    static Histogram histogram(String name, String help, String labels, double[] bounds) {
+        return register(new Histogram(name, help, labels, bounds));
+    }
+
+    private static synchronized <M extends Metric> M register(M metric) {
+        List<Metric> named = REGISTRY.computeIfAbsent(metric.name, name -> new ArrayList<>());
+        if (!named.isEmpty() && !named.get(0).type().equals(metric.type()))
+            throw new IllegalArgumentException(metric.name + " is already a " + named.get(0).type());
+        named.add(metric);
+        return metric;
+    }
+
+    /**
+     * @return Every metric, grouped by name.
+     */
+    private static synchronized List<List<Metric>> all() {
+        List<List<Metric>> result = new ArrayList<>();
+        for (List<Metric> named : REGISTRY.values())
+            result.add(new ArrayList<>(named));
+        return result;
+    }
+
+    /**
+     * @return Every metric in the Prometheus text format.
+     */
+    static String prometheus() {
+        StringBuilder out = new StringBuilder();
+        for (List<Metric> named : all()) {
+            Metric first = named.get(0);
+            out.append("# HELP ").append(first.name).append(' ').append(first.help).append('\n');
+            out.append("# TYPE ").append(first.name).append(' ').append(first.type()).append('\n');
+            for (Metric metric : named)
+                metric.write(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Publishes the metrics through JMX and starts dumping them to -Dfakeymon.metrics, if it is set. Both happen on
+     * a daemon thread, so the game does not wait for the platform MBean server to start. Only the first call does
+     * anything.
+     */
+    static synchronized void start() {
+        if (dumper != null)
+            return;
+        dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.execute(() -> {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(),
+                        new ObjectName("fakeymon:type=Metrics"));
+            } catch (Exception e) {
+                System.err.println("Could not publish the metrics through JMX: " + e);
+            }
+        });
+        String file = System.getProperty("fakeymon.metrics");
+        if (file == null)
+            return;
+        Path path = Paths.get(file);
+        long seconds = Math.max(1, Long.getLong("fakeymon.metrics.seconds", DUMP_SECONDS));
+        dumper.scheduleWithFixedDelay(() -> dump(path), seconds, seconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(path)));
+    }
+
+    /**
+     * Replaces path with the metrics, in the Prometheus text format: writes them to path + ".tmp" and renames it, so
+     * a reader never sees half a dump.
+     *
+     * @param path - The file.
+     */
+    static void dump(Path path) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.write(temp, prometheus().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write the metrics to " + path + ": " + e);
+        }
+    }
+
+    /*
+     * The metrics as the read-only attributes of one MBean: counters and gauges by their name and label values,
+     * histograms as name_count and name_sum.
+     */
+    private static final class Bean implements DynamicMBean {
+
+        /**
+         * @return Every attribute and its current value.
+         */
+        private static Map<String, Object> values() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (List<Metric> named : all())
+                for (Metric metric : named)
+                    metric.attributes(result);
+            return result;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = values().get(attribute);
+            if (value == null)
+                throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Object> values = values();
+            AttributeList result = new AttributeList();
+            for (String attribute : attributes)
+                if (values.containsKey(attribute))
+                    result.add(new Attribute(attribute, values.get(attribute)));
+            return result;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("The metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(action), "The metrics have no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (List<Metric> named : all())
+                for (Metric metric : named) {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    metric.attributes(values);
+                    for (Map.Entry<String, Object> entry : values.entrySet())
+                        attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                                metric.help, true, false, false));
+                }
+            return new MBeanInfo(Metrics.class.getName(), "Fakeymon's runtime metrics.",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
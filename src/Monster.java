@@ -1,5 +1,6 @@
 import org.json.simple.*;
 
+import java.io.IOException;
 import java.util.*;
 
 /*
@@ -8,36 +9,41 @@ import java.util.*;
  */
 class Monster extends Fakeyverse implements Saveable, Comparable<Monster> {
 
-    // ascii: the ascii art of this monster in String format.
+    // ascii: the ascii art of this monster, if the Fakeydex gives it inline. Usually null: see sprite().
     String name, ascii;
     // ID: only relevant for enemies. xp: how much spare xp this monster has that can be distributed.
     Integer ID, xp;
     // The maximum stat of any monster when send into battle.
-    Integer[] stats;
+    int[] stats;
     // The monster's current stats, typically less than or equal to their stats default,
     // completely reset at Fakeycenters.
-    Integer[] tempStats;
+    int[] tempStats;
     List<String> attacks;
     String holdItem;
     // Whether the monster used, in the previous turn, Hyper Impact or any other attack that causes resting for a turn.
     boolean resting;
+    // How often this species is found in the wild compared to the others. Only read from the Fakeydex; defaults to 1.
+    int spawnRate = 1;
 
     /**
      * Constructor for generating random wild Fakeymon.
      *
      * @param profile - The type of monster that this monster should be modeled after.
+     * @param kills   - The user's kills so far; the more kills, the stronger the monster.
+     * @param rng     - The random object choosing the monster's held item.
      */
-    Monster(Monster profile, int kills) {
+    Monster(Monster profile, int kills, Rng rng) {
         def();
 
         name = profile.name;
+        ID = profile.ID;
         ascii = profile.ascii;
         stats = profile.stats.clone();
         attacks = new ArrayList<>(profile.attacks);
 
         xp = kills * ENEMY_XP_RATE + MIN_ENEMY_XP;
-        if (RANDOM.nextInt(100) < HOLD_ITEM_PROBABILITY)
-            holdItem = generateItem();
+        if (rng.nextInt(100) < HOLD_ITEM_PROBABILITY)
+            holdItem = generateItem(rng);
 
         int sum = 0;
         for (int i = 0; i < NUM_STATS; i++)
@@ -73,40 +79,94 @@ class Monster extends Fakeyverse implements Saveable, Comparable<Monster> {
         ID = getIntFromJSON("ID", mon);
         xp = getIntFromJSON("xp", mon);
 
-        stats = getIntArrFromJSON("stats", mon);
-        tempStats = mon.get("tempStats") == null ? stats : getIntArrFromJSON("tempStats", mon);
+        stats = getIntsFromJSON("stats", mon);
+        tempStats = mon.get("tempStats") == null ? stats.clone() : getIntsFromJSON("tempStats", mon);
 
         attacks.addAll((List<String>) mon.get("attacks"));
 
         Object item = mon.get("holdItem");
         holdItem = item == null ? null : (String) item;
+
+        Integer rate = getIntFromJSON("spawnRate", mon);
+        if (rate != null)
+            spawnRate = rate;
     }
 
     /**
-     * Allows this Monster object to attack the defender Monster. Chooses an attack at random.
+     * Same as Monster(JSONObject), but reads the species straight from DATA_DIR/Fakeydex.json.
      *
-     * @param defender - The Monster getting attacked.
-     * @throws Exception if attack(int, Monster) throws an exception.
+     * @param in - Reader at the start of the object of this species.
+     * @throws IOException if the object is malformed, or has no name or stats.
+     */
+    Monster(JsonReader in) throws IOException {
+        def();
+        boolean hasStats = false, hasTempStats = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    name = in.nextString();
+                    break;
+                case "ascii":
+                    ascii = in.nextString();
+                    break;
+                case "ID":
+                    ID = in.nextInteger();
+                    break;
+                case "xp":
+                    xp = in.nextInteger();
+                    break;
+                case "stats":
+                    stats = in.nextInts();
+                    hasStats = stats != null;
+                    break;
+                case "tempStats":
+                    tempStats = in.nextInts();
+                    hasTempStats = tempStats != null;
+                    break;
+                case "attacks":
+                    String[] names = in.nextStrings();
+                    if (names != null)
+                        attacks.addAll(Arrays.asList(names));
+                    break;
+                case "holdItem":
+                    holdItem = in.nextString();
+                    break;
+                case "spawnRate":
+                    Integer rate = in.nextInteger();
+                    if (rate != null)
+                        spawnRate = rate;
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (name == null || !hasStats)
+            throw in.error("species has no " + (name == null ? "name" : "stats"));
+        if (!hasTempStats)
+            tempStats = stats.clone();
+    }
+
+    /**
+     * @return The ascii art of this monster's species, from SPRITES unless the Fakeydex gave it inline, or an empty
+     * String if it has none (such as a starter).
      */
-    void attack(Monster defender) throws Exception {
-        attack(RANDOM.nextInt(attacks.size()), defender);
+    String sprite() {
+        if (ascii != null)
+            return ascii;
+        String sprite = SPRITES.get(ID);
+        return sprite == null ? "" : sprite;
     }
 
     /**
-     * This monster object attacks the defender Monster with its attacks.get(AttackIndex) attack.
+     * Returns whether this monster is "struggling." This returns true iff its temporary HP is at most STRUGGLE_RANGE
+     * percent of its HP, in which case it will use any usable held item.
      *
-     * @param attackIndex - The index of the attack that is being used, from the attacks field.
-     * @param defender    - The monster getting attacked.
-     * @throws Exception if p(String), enter(), or Attack.use(Monster, Monster) throw an exception.
+     * @return Whether this monster is struggling.
      */
-    void attack(int attackIndex, Monster defender) throws Exception {
-        Attack atk = GAME_ATKS.get(attacks.get(attackIndex));
-        if (resting) {
-            p(name + " must recharge! > ");
-            enter();
-            resting = false;
-        } else
-            atk.use(this, defender);
+    boolean struggling() {
+        return ((int) Math.floor((double) tempStats[HP] / stats[HP] * 100)) <= STRUGGLE_RANGE;
     }
 
     /**
@@ -134,6 +194,36 @@ class Monster extends Fakeyverse implements Saveable, Comparable<Monster> {
         resting = false;
     }
 
+    /**
+     * Writes toJSON() without making it. The fields are in the order json-simple writes them, so the JSON is the same.
+     * @param out - Where the JSON is written.
+     * @throws IOException if out throws an IOException.
+     */
+    public void writeJSON(JsonWriter out) throws IOException {
+        out.beginObject()
+                .field("stats", stats)
+                .field("attacks", attacks)
+                .field("name", name)
+                .field("xp", xp)
+                .field("ID", ID)
+                .field("tempStats", tempStats)
+                .field("holdItem", holdItem)
+                .endObject();
+    }
+
+    /**
+     * @return A fingerprint of everything toJSON() saves, which changes whenever this monster does.
+     */
+    long fingerprint() {
+        long hash = fingerprint(fingerprint(fingerprint(0, name), ID), xp);
+        for (int stat : stats)
+            hash = fingerprint(hash, stat);
+        for (int stat : tempStats)
+            hash = fingerprint(hash, stat);
+        hash = fingerprint(hash, attacks);
+        return fingerprint(hash, holdItem);
+    }
+
     /**
      * Turns this Monster object into a JSONObject object.
      * @return this object in terms of its JSONObject equivalent.
@@ -146,8 +236,8 @@ class Monster extends Fakeyverse implements Saveable, Comparable<Monster> {
         result.put("ID", ID);
         result.put("xp", xp);
 
-        result.put("stats", Arrays.asList(stats));
-        result.put("tempStats", Arrays.asList(tempStats));
+        result.put("stats", toList(stats));
+        result.put("tempStats", toList(tempStats));
 
         result.put("attacks", attacks);
 
@@ -216,8 +306,8 @@ class Monster extends Fakeyverse implements Saveable, Comparable<Monster> {
      * All duplicate lines of code found in all constructors to set up objects are written here instead.
      */
     private void def() {
-        stats = new Integer[NUM_STATS];
-        tempStats = new Integer[NUM_STATS];
+        stats = new int[NUM_STATS];
+        tempStats = new int[NUM_STATS];
         attacks = new ArrayList<>();
         Arrays.fill(stats, DEFAULT_STAT);
         Arrays.fill(tempStats, DEFAULT_STAT);
@@ -0,0 +1,197 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * Paulkia 2020.
+ * Holds many monsters at once as parallel int columns instead of Monster objects, for simulations that need millions
+ * of wild monsters. Each monster is a slot index into the columns. Monsters in a pool always know the attacks of
+ * their species; use toMonster(int) to get a regular Monster for the interactive game.
+ */
+class MonsterPool extends Fakeyverse {
+    // Value of heldItem[slot] when the monster holds no item, and of species[slot] when it is unknown.
+    static final int NONE = -1;
+
+    // Base stats of every species, by GAME_MONS index, and their sums. Shared by all pools.
+    private static final int[][] BASE_STATS = new int[GAME_MONS.size()][];
+    private static final int[] BASE_SUM = new int[GAME_MONS.size()];
+
+    static {
+        for (int s = 0; s < BASE_STATS.length; s++) {
+            BASE_STATS[s] = GAME_MONS.get(s).stats.clone();
+            for (int stat : BASE_STATS[s])
+                BASE_SUM[s] += stat;
+        }
+    }
+
+    // stats[HP][slot] etc. The maximum stats of each monster and its current stats.
+    final int[][] stats, tempStats;
+    // Index of each monster's species in GAME_MONS, or NONE.
+    final int[] species;
+    // Index of each monster's held item in ITEM_LIST, or NONE.
+    final int[] heldItem;
+    // Whether each monster must recharge on its next turn.
+    final boolean[] resting;
+    // Number of slots in use; slots 0 to size - 1 hold monsters.
+    private int size;
+
+    /**
+     * Constructor for an empty pool.
+     *
+     * @param capacity - The maximum number of monsters the pool can hold.
+     */
+    MonsterPool(int capacity) {
+        stats = new int[NUM_STATS][capacity];
+        tempStats = new int[NUM_STATS][capacity];
+        species = new int[capacity];
+        heldItem = new int[capacity];
+        resting = new boolean[capacity];
+    }
+
+    /**
+     * @return The number of monsters in the pool.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The maximum number of monsters the pool can hold.
+     */
+    int capacity() {
+        return species.length;
+    }
+
+    /**
+     * Empties the pool. The columns are kept and overwritten by the next monsters added.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Fills the pool with wild monsters, chosen and scaled as in Battle.start() for a user with the given kills.
+     *
+     * @param count - Number of monsters to add.
+     * @param kills - The user's kills, deciding which species may appear and how strong they are.
+     * @param rng   - The random object choosing species and held items.
+     * @return The slot of the first monster added.
+     */
+    int spawnWild(int count, int kills, Rng rng) {
+        if (size + count > capacity())
+            throw new IllegalStateException("MonsterPool is full: " + size + " + " + count + " > " + capacity());
+        int first = size;
+        for (int i = 0; i < count; i++)
+            spawn(size++, generateMonIndex(kills, rng), kills, rng);
+        return first;
+    }
+
+    /**
+     * Adds one wild monster of the given species, scaled as in Monster(Monster, int, Rng).
+     *
+     * @param profile - Index in GAME_MONS of the monster's species.
+     * @param kills   - The user's kills, deciding how strong the monster is.
+     * @param rng     - The random object deciding the held item.
+     * @return The slot of the monster.
+     */
+    int spawn(int profile, int kills, Rng rng) {
+        if (size == capacity())
+            throw new IllegalStateException("MonsterPool is full: " + size);
+        spawn(size, profile, kills, rng);
+        return size++;
+    }
+
+    /**
+     * Writes a new wild monster into the given slot. Mirrors Monster(Monster, int, Rng), including the order in which
+     * it draws from rng, so a pool and the game generate the same monsters from Rngs in the same state.
+     */
+    private void spawn(int slot, int profile, int kills, Rng rng) {
+        int[] base = BASE_STATS[profile];
+        int sum = BASE_SUM[profile];
+        int xp = kills * ENEMY_XP_RATE + MIN_ENEMY_XP;
+        species[slot] = profile;
+        heldItem[slot] = rng.nextInt(100) < HOLD_ITEM_PROBABILITY ? generateItemIndex(rng) : NONE;
+        resting[slot] = false;
+        for (int i = 0; i < NUM_STATS; i++) {
+            int stat = base[i] + (int) Math.round(xp * ((double) base[i]) / sum);
+            stats[i][slot] = stat;
+            tempStats[i][slot] = stat;
+        }
+    }
+
+    /**
+     * Adds an existing monster to the pool. Its attacks are not kept; in the pool it knows its species' attacks.
+     *
+     * @param mon - The monster to add.
+     * @return The slot of the monster.
+     */
+    int add(Monster mon) {
+        if (size == capacity())
+            throw new IllegalStateException("MonsterPool is full: " + size);
+        int slot = size++;
+        species[slot] = speciesOf(mon);
+        heldItem[slot] = mon.holdItem == null ? NONE : itemIndex(mon.holdItem);
+        resting[slot] = mon.resting;
+        for (int i = 0; i < NUM_STATS; i++) {
+            stats[i][slot] = mon.stats[i];
+            tempStats[i][slot] = mon.tempStats[i];
+        }
+        return slot;
+    }
+
+    /**
+     * Creates a regular Monster from a slot, as if it had been generated by Monster(Monster, int, Rng).
+     *
+     * @param slot - The slot of the monster.
+     * @return A new Monster with the slot's stats, held item and its species' name, art and attacks.
+     */
+    Monster toMonster(int slot) {
+        Monster profile = species[slot] == NONE ? null : GAME_MONS.get(species[slot]);
+        Monster mon = new Monster(profile == null ? "" : profile.name);
+        if (profile != null) {
+            mon.ID = profile.ID;
+            mon.ascii = profile.ascii;
+            mon.attacks = new ArrayList<>(profile.attacks);
+        }
+        for (int i = 0; i < NUM_STATS; i++) {
+            mon.stats[i] = stats[i][slot];
+            mon.tempStats[i] = tempStats[i][slot];
+        }
+        mon.holdItem = heldItem[slot] == NONE ? null : ITEM_LIST[heldItem[slot]].name;
+        mon.resting = resting[slot];
+        return mon;
+    }
+
+    /**
+     * Resets the current stats of the first count slots back to their maximum stats, as Monster.resetStats() does.
+     *
+     * @param count - Number of slots to reset, from slot 0.
+     */
+    void resetStats(int count) {
+        for (int i = 0; i < NUM_STATS; i++)
+            System.arraycopy(stats[i], 0, tempStats[i], 0, count);
+        Arrays.fill(resting, 0, count, false);
+    }
+
+    /**
+     * @param mon - Any monster.
+     * @return The index in GAME_MONS of mon's species, found by ID, or NONE.
+     */
+    private static int speciesOf(Monster mon) {
+        if (mon.ID != null)
+            for (int s = 0; s < GAME_MONS.size(); s++)
+                if (mon.ID.equals(GAME_MONS.get(s).ID))
+                    return s;
+        return NONE;
+    }
+
+    /**
+     * @param name - The name of an item.
+     * @return The index of the item in ITEM_LIST, or NONE.
+     */
+    private static int itemIndex(String name) {
+        for (int i = 0; i < ITEM_LIST.length; i++)
+            if (ITEM_LIST[i].name.equals(name))
+                return i;
+        return NONE;
+    }
+}
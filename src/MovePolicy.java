@@ -0,0 +1,19 @@
+/*
+ * Paulkia 2020.
+ * Decides which attack a Monster uses on its turn. Enemies in Battle use RANDOM; simulations may plug in their own.
+ */
+interface MovePolicy {
+
+    // Chooses one of the monster's attacks at random. This is how wild Fakeymon have always fought.
+    MovePolicy RANDOM = (self, foe, rng) -> rng.nextInt(self.attacks.size());
+
+    /**
+     * Chooses the attack that self should use against foe this turn.
+     *
+     * @param self - The monster that is about to attack.
+     * @param foe  - The monster that is about to be attacked.
+     * @param rng  - The random object of the battle, for policies that need one.
+     * @return An index into self.attacks.
+     */
+    int choose(Monster self, Monster foe, Rng rng);
+}
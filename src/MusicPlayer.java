@@ -0,0 +1,282 @@
+import javax.sound.sampled.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Paulkia 2020.
+ * Plays the music. Tracks are streamed from disk through one SourceDataLine by a daemon thread, a chunk at a time,
+ * so memory does not grow with track length and changing scenes never waits on the disk. Tracks loop without a gap,
+ * crossfade into each other over CROSSFADE milliseconds, and resume where they were interrupted (e.g. the Fakeycenter
+ * music after the healing jingle). Tracks are looked up in the directory's audio packs (see AudioPack) before its
+ * .wav files. When there is no audio device (or -Dfakeymon.sound=off), nothing is played.
+ */
+class MusicPlayer implements Runnable {
+
+    // Milliseconds over which one track fades into the next.
+    static final int CROSSFADE = 500;
+    // Frames mixed and written at a time (~40 ms).
+    private static final int CHUNK = 2048;
+    private static final int FADE_FRAMES = (int) (Pcm.FORMAT.getSampleRate() * CROSSFADE / 1000);
+
+    // A player that plays nothing.
+    static final MusicPlayer SILENT = new MusicPlayer(null, List.of(), null);
+
+    // Directory of the tracks, and the audio packs in it.
+    private final File dir;
+    private final List<AudioPack> packs;
+    // Null if silent.
+    private final SourceDataLine line;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Track asked for by play(String) and not yet picked up by the music thread; null means stop.
+    private String request;
+    private boolean pending;
+
+    // Only used by the music thread from here on.
+    // The track fading in (or playing), and the one fading out.
+    private Track current, fading;
+    // Frames of the crossfade done so far.
+    private int faded;
+    // Where interrupted tracks stopped, in frames.
+    private final Map<String, Long> positions = new HashMap<>();
+    // Tracks that failed to open, reported once.
+    private final Set<String> failed = new HashSet<>();
+    private final byte[] out = new byte[CHUNK * Pcm.FRAME_SIZE], in = new byte[CHUNK * Pcm.FRAME_SIZE],
+            old = new byte[CHUNK * Pcm.FRAME_SIZE];
+
+    private MusicPlayer(File dir, List<AudioPack> packs, SourceDataLine line) {
+        this.dir = dir;
+        this.packs = packs;
+        this.line = line;
+    }
+
+    /**
+     * Opens the line and starts the music thread.
+     *
+     * @param dir - The directory of tracks, normally MUSIC_DIR.
+     * @return The player, or SILENT if sound is off or no line can be opened.
+     */
+    static MusicPlayer open(File dir) {
+        if ("off".equalsIgnoreCase(System.getProperty("fakeymon.sound")))
+            return SILENT;
+        try {
+            SourceDataLine line = AudioSystem.getSourceDataLine(Pcm.FORMAT);
+            line.open(Pcm.FORMAT, CHUNK * Pcm.FRAME_SIZE * 4);
+            line.start();
+            MusicPlayer player = new MusicPlayer(dir, AudioPack.openAll(dir), line);
+            Thread thread = new Thread(player, "music");
+            thread.setDaemon(true);
+            thread.start();
+            return player;
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            return SILENT;
+        }
+    }
+
+    /**
+     * Switches to a track, crossfading from the one playing. Returns at once. Playing the track that is already
+     * playing does nothing; a track that was interrupted earlier resumes where it stopped.
+     *
+     * @param name - The name of the track (without extension), or null to fade out.
+     */
+    void play(String name) {
+        if (line == null)
+            return;
+        lock.lock();
+        try {
+            request = name;
+            pending = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether this player plays nothing.
+     */
+    boolean silent() {
+        return line == null;
+    }
+
+    public void run() {
+        while (true) {
+            boolean switching;
+            String name;
+            lock.lock();
+            try {
+                while (!pending && current == null && fading == null)
+                    changed.awaitUninterruptibly();
+                switching = pending;
+                name = request;
+                pending = false;
+            } finally {
+                lock.unlock();
+            }
+            if (switching)
+                switchTo(name); // Outside the lock: opening a file must not hold up play(String).
+            if (current != null || fading != null)
+                line.write(out, 0, mix());
+        }
+    }
+
+    /**
+     * Starts fading from the current track to the named one.
+     *
+     * @param name - The track, or null to fade out.
+     */
+    private void switchTo(String name) {
+        if (current != null && current.name.equals(name))
+            return;
+        if (fading != null)
+            stop(fading);
+        fading = current;
+        faded = 0;
+        current = null;
+        if (name != null) {
+            Long position = positions.remove(name);
+            current = open(name, position == null ? 0 : position);
+        }
+    }
+
+    /**
+     * Reads the next chunk of the current track into out, mixed with the fading track during a crossfade.
+     *
+     * @return The number of bytes in out.
+     */
+    private int mix() {
+        if (fading == null) {
+            current.read(out);
+            return out.length;
+        }
+        if (current != null)
+            current.read(in);
+        fading.read(old);
+        for (int frame = 0; frame < CHUNK; frame++) {
+            double gain = Math.min(1, (faded + frame) / (double) FADE_FRAMES);
+            for (int i = frame * Pcm.FRAME_SIZE; i < (frame + 1) * Pcm.FRAME_SIZE; i += 2) {
+                int next = current == null ? 0 : (short) ((in[i] & 0xFF) | (in[i + 1] << 8));
+                int last = (short) ((old[i] & 0xFF) | (old[i + 1] << 8));
+                int sample = (int) (next * gain + last * (1 - gain));
+                out[i] = (byte) sample;
+                out[i + 1] = (byte) (sample >> 8);
+            }
+        }
+        faded += CHUNK;
+        if (faded >= FADE_FRAMES) {
+            stop(fading);
+            fading = null;
+        }
+        return out.length;
+    }
+
+    /**
+     * Closes a track, remembering where it stopped.
+     *
+     * @param track - The track.
+     */
+    private void stop(Track track) {
+        positions.put(track.name, track.frame);
+        track.close();
+    }
+
+    /**
+     * @param name  - The track.
+     * @param frame - The frame to start from.
+     * @return The opened track, or null (reported once) if it cannot be opened.
+     */
+    private Track open(String name, long frame) {
+        long start = System.nanoTime();
+        try {
+            Track track = new Track(name, frame);
+            Metrics.MUSIC_OPEN_TIME.observeNanos(System.nanoTime() - start);
+            return track;
+        } catch (Exception e) {
+            if (failed.add(name))
+                System.err.println("Could not play music " + name + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * @param name - The track.
+     * @return The track from the first audio pack that has it, or else its .wav file, in FORMAT.
+     * @throws IOException if the file cannot be read.
+     * @throws UnsupportedAudioFileException if the file is not a supported audio file.
+     */
+    private AudioInputStream stream(String name) throws IOException, UnsupportedAudioFileException {
+        for (AudioPack pack : packs)
+            if (pack.has(name))
+                return Pcm.convert(pack.stream(name));
+        return Pcm.open(new File(dir, name + ".wav"));
+    }
+
+    /*
+     * A track being streamed, looping at its end.
+     */
+    private final class Track {
+        final String name;
+        AudioInputStream stream;
+        // Frames from the start of the track to the next one read.
+        long frame;
+
+        Track(String name, long frame) throws IOException, UnsupportedAudioFileException {
+            this.name = name;
+            stream = stream(name);
+            long skip = frame * Pcm.FRAME_SIZE;
+            while (skip > 0) {
+                long skipped = stream.skip(skip);
+                if (skipped <= 0)
+                    break;
+                skip -= skipped;
+                this.frame += skipped / Pcm.FRAME_SIZE;
+            }
+        }
+
+        /**
+         * Fills buffer with the next frames, starting over at the end of the track. Fills the rest with silence if
+         * the track cannot be read.
+         *
+         * @param buffer - Receives the frames.
+         */
+        void read(byte[] buffer) {
+            int n = 0;
+            try {
+                boolean restarted = false;
+                while (n < buffer.length) {
+                    int read = stream.read(buffer, n, buffer.length - n);
+                    if (read > 0) {
+                        n += read;
+                        frame += read / Pcm.FRAME_SIZE;
+                        restarted = false;
+                    } else if (read < 0 && !restarted) {
+                        stream.close();
+                        stream = stream(name);
+                        frame = 0;
+                        restarted = true;
+                    } else break;
+                }
+            } catch (IOException | UnsupportedAudioFileException e) {
+                if (failed.add(name))
+                    System.err.println("Could not play music " + name + ": " + e);
+            }
+            Arrays.fill(buffer, n, buffer.length, (byte) 0);
+        }
+
+        void close() {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Paulkia 2020.
+ * The result of a single attack or item use. Filled in by Attack.use(...) and Item.apply(...) without printing
+ * anything, then read by whoever is narrating or recording the battle. Meant to be reused between calls.
+ */
+class Outcome {
+    static final int
+            HIT = 1, // The attack landed (or the item took effect).
+            MISSED = 1 << 1, // The attack missed.
+            CRIT = 1 << 2, // A critical hit, from an attack or a damaging item.
+            EVADED = 1 << 3, // The defender partially evaded the attack.
+            DAMAGED = 1 << 4, // The defender took damage; see amount.
+            BOOSTED = 1 << 5, // The attacker's stats were changed by a status attack.
+            RESTING = 1 << 6, // The attacker must recharge next turn.
+            USED = 1 << 7, // The item was used up.
+            FULL = 1 << 8, // The item had no effect because the target was already at full HP / bag size.
+            ESCAPED = 1 << 9, // The item got its user out of the battle.
+            BLOCKED = 1 << 10; // The item would have escaped the battle, but this is the final battle.
+
+    // Combination of the flags above.
+    int flags;
+    // Damage dealt, HP restored, or new bag size, depending on the flags.
+    int amount;
+
+    /**
+     * Clears this outcome so it can be filled in again.
+     */
+    void reset() {
+        flags = 0;
+        amount = 0;
+    }
+
+    /**
+     * @param flag - One of the flags above.
+     * @return Whether flag is set in this outcome.
+     */
+    boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+}
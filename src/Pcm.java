@@ -0,0 +1,217 @@
+import javax.sound.sampled.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Paulkia 2020.
+ * The one audio format the game plays (FORMAT), and conversion to it from any PCM format Java Sound can read, so that
+ * every sound can share the same open lines. The conversion streams, so it works for long tracks too.
+ */
+class Pcm {
+
+    // 48 kHz, 16 bit, stereo, signed, little-endian: every game file's rate, at the quality of the best of them.
+    static final AudioFormat FORMAT = new AudioFormat(48000f, 16, 2, true, false);
+    // Bytes per frame of FORMAT.
+    static final int FRAME_SIZE = 4;
+
+    /**
+     * Opens an audio file as a stream of FORMAT.
+     *
+     * @param file - A .wav (or other Java Sound) file.
+     * @return The stream, converted as it is read.
+     * @throws IOException if the file cannot be read.
+     * @throws UnsupportedAudioFileException if the file is not a supported audio file.
+     */
+    static AudioInputStream open(File file) throws IOException, UnsupportedAudioFileException {
+        return convert(AudioSystem.getAudioInputStream(file));
+    }
+
+    /**
+     * Converts an audio stream to FORMAT as it is read.
+     *
+     * @param in - A stream of any format that Java Sound can decode to PCM.
+     * @return in itself if it is already FORMAT, otherwise a converting stream.
+     */
+    static AudioInputStream convert(AudioInputStream in) {
+        return convert(in, FORMAT);
+    }
+
+    /**
+     * Converts an audio stream to 16 bit signed little-endian PCM with at most 2 channels, keeping its sample rate
+     * (e.g. to pack it; see AudioPacker).
+     *
+     * @param in - A stream of any format that Java Sound can decode to PCM.
+     * @return in itself if it is already in that format, otherwise a converting stream.
+     */
+    static AudioInputStream toPcm16(AudioInputStream in) {
+        AudioFormat format = in.getFormat();
+        return convert(in, new AudioFormat(format.getSampleRate(), 16, Math.min(2, format.getChannels()), true, false));
+    }
+
+    /**
+     * Converts an audio stream to target as it is read.
+     *
+     * @param in     - A stream of any format that Java Sound can decode to PCM.
+     * @param target - 16 bit signed little-endian PCM, with 1 or 2 channels.
+     * @return in itself if it is already target, otherwise a converting stream.
+     */
+    private static AudioInputStream convert(AudioInputStream in, AudioFormat target) {
+        AudioFormat format = in.getFormat();
+        if (format.matches(target))
+            return in;
+        AudioFormat.Encoding encoding = format.getEncoding();
+        if (!encoding.equals(AudioFormat.Encoding.PCM_SIGNED) && !encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED)) {
+            in = AudioSystem.getAudioInputStream(AudioFormat.Encoding.PCM_SIGNED, in);
+            format = in.getFormat();
+        }
+        long frames = in.getFrameLength();
+        if (frames != AudioSystem.NOT_SPECIFIED)
+            frames = (long) (frames * (double) target.getSampleRate() / format.getSampleRate());
+        return new AudioInputStream(new Converter(in, format, target), target, frames);
+    }
+
+    /**
+     * Reads a whole file into memory as FORMAT.
+     *
+     * @param file - A .wav (or other Java Sound) file.
+     * @return The frames of file, in FORMAT.
+     * @throws IOException if the file cannot be read.
+     * @throws UnsupportedAudioFileException if the file is not a supported audio file.
+     */
+    static byte[] decode(File file) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream in = open(file)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /*
+     * Turns frames of any PCM format into 16 bit signed little-endian mono or stereo: 8 to 32 bit, signed or unsigned,
+     * either byte order, mono or more channels (only the first two are kept), any sample rate (by picking the nearest
+     * earlier frame).
+     */
+    private static final class Converter extends InputStream {
+        private final InputStream in;
+        private final int bytesPerSample, channels, frameSize, outChannels, outFrameSize;
+        private final boolean signed, bigEndian;
+        // Source frames per output frame.
+        private final double step;
+        // Buffered source bytes, from pos to end.
+        private final byte[] buffer;
+        private int pos, end;
+        // Source frames read so far, and output frames written so far.
+        private long read, written;
+        // The last source frame read, as 16 bit samples.
+        private short left, right;
+        private boolean eof;
+        // One output frame, for callers reading fewer bytes than a frame (such as read()), and how much of it is left.
+        private final byte[] frame;
+        private int frameStart, frameEnd;
+
+        Converter(InputStream in, AudioFormat format, AudioFormat target) {
+            this.in = in;
+            outChannels = target.getChannels();
+            outFrameSize = outChannels * 2;
+            bytesPerSample = (format.getSampleSizeInBits() + 7) / 8;
+            channels = format.getChannels();
+            frameSize = bytesPerSample * channels;
+            signed = format.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED);
+            bigEndian = format.isBigEndian();
+            step = format.getSampleRate() / target.getSampleRate();
+            buffer = new byte[Math.max(frameSize, 4096 / frameSize * frameSize)];
+            frame = new byte[outFrameSize];
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (frameStart == frameEnd) {
+                frameStart = frameEnd = 0;
+                frameEnd = Math.max(0, read(frame, 0, frame.length));
+                if (frameEnd == 0)
+                    return -1;
+            }
+            return frame[frameStart++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = 0;
+            while (frameStart < frameEnd && n < len) // The rest of a frame read() started.
+                b[off + n++] = frame[frameStart++];
+            if (n == 0 && len > 0 && len < outFrameSize) { // Less than a frame: read one, and give out its start.
+                int c;
+                while (n < len && (c = read()) != -1)
+                    b[off + n++] = (byte) c;
+                return n == 0 ? -1 : n;
+            }
+            while (n + outFrameSize <= len && nextFrame()) {
+                b[off + n] = (byte) left;
+                b[off + n + 1] = (byte) (left >> 8);
+                if (outChannels == 2) {
+                    b[off + n + 2] = (byte) right;
+                    b[off + n + 3] = (byte) (right >> 8);
+                }
+                n += outFrameSize;
+            }
+            return n == 0 && len > 0 && eof ? -1 : n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        /**
+         * Reads source frames up to the one the next output frame is taken from.
+         *
+         * @return Whether there is a next output frame.
+         * @throws IOException if the source cannot be read.
+         */
+        private boolean nextFrame() throws IOException {
+            long target = (long) (written * step);
+            while (read <= target) {
+                if (end - pos < frameSize && !fill())
+                    return false;
+                left = sample(pos);
+                right = channels > 1 ? sample(pos + bytesPerSample) : left;
+                pos += frameSize;
+                read++;
+            }
+            written++;
+            return true;
+        }
+
+        /**
+         * Reads more source bytes, keeping any partial frame.
+         *
+         * @return Whether a whole frame is buffered.
+         * @throws IOException if the source cannot be read.
+         */
+        private boolean fill() throws IOException {
+            System.arraycopy(buffer, pos, buffer, 0, end - pos);
+            end -= pos;
+            pos = 0;
+            while (end < frameSize) {
+                int n = in.read(buffer, end, buffer.length - end);
+                if (n < 0) {
+                    eof = true;
+                    return false;
+                }
+                end += n;
+            }
+            return true;
+        }
+
+        /**
+         * @param at - Index in buffer of a sample.
+         * @return The sample, as a signed 16 bit value.
+         */
+        private short sample(int at) {
+            int high = bigEndian ? buffer[at] : buffer[at + bytesPerSample - 1];
+            int low = bytesPerSample == 1 ? 0 : (bigEndian ? buffer[at + 1] : buffer[at + bytesPerSample - 2]) & 0xFF;
+            if (!signed)
+                high = (byte) (high ^ 0x80);
+            return (short) ((high << 8) | low);
+        }
+    }
+}
@@ -1,12 +1,13 @@
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /*
  * Paulkia 2020.
  * Player object that stores all of a user's data. Used to save and load users from json files in
- * SAVE_DIR + user.name + .json.
+ * SAVE_DIR + user.name + .json, or from binary ones in SAVE_DIR + user.name + .sav (see SaveCodec).
  */
 class Player extends Fakeyverse implements Saveable {
     // The user's name. Title of the user's save file.
@@ -25,9 +26,15 @@ class Player extends Fakeyverse implements Saveable {
      * finalBattle = whether the user has already beaten Fakeyceus 1.
      */
     boolean xpShare, finalBattle;
+    // Decides every random event of the user's game. Saved so a game continues with the same random numbers.
+    Rng rng;
+    // Whether this player is saved as a binary .sav file (see SaveCodec) rather than as JSON. Not saved: a loaded game
+    // keeps the format of its file, and a new game uses binary saves if the system property fakeymon.saves is binary.
+    boolean binary;
 
     /**
      * The default constructor. Sets all fields to default values.
+     * The Rng is seeded with the system property fakeymon.seed if it is set, so a new game can be reproduced.
      */
     Player() {
         def();
@@ -35,6 +42,9 @@ class Player extends Fakeyverse implements Saveable {
         bagSize = DEFAULT_BAG;
         money = kills = score = 0;
         xpShare = false;
+        Long seed = Long.getLong("fakeymon.seed");
+        rng = seed == null ? new Rng() : new Rng(seed);
+        binary = "binary".equals(System.getProperty("fakeymon.saves"));
     }
 
     /**
@@ -58,6 +68,9 @@ class Player extends Fakeyverse implements Saveable {
         this.score = getIntFromJSON("score", userData);
 
         this.xpShare = getBoolFromJSON("xpShare", userData);
+
+        long[] state = getLongsFromJSON("rng", userData);
+        rng = state == null ? new Rng() : new Rng(state);
     }
 
     /**
@@ -79,9 +92,46 @@ class Player extends Fakeyverse implements Saveable {
 
         userData.put("xpShare", xpShare);
 
+        userData.put("rng", toList(rng.state()));
+
         return userData;
     }
 
+    /**
+     * Writes toJSON() without making it. The fields are in the order json-simple writes them, so the JSON is the same.
+     * @param out - Where the JSON is written.
+     * @throws IOException if out throws an IOException.
+     */
+    public void writeJSON(JsonWriter out) throws IOException {
+        out.beginObject()
+                .field("kills", kills)
+                .field("score", score)
+                .field("bagSize", bagSize)
+                .field("money", money)
+                .field("name", name)
+                .field("bag", bag)
+                .field("rng", rng.state())
+                .objects("team", team)
+                .field("xpShare", xpShare)
+                .endObject();
+    }
+
+    /**
+     * The autosave compares this to the fingerprint of the last save, so an unchanged Player is never written again.
+     * @return A fingerprint of everything toJSON() saves, which changes whenever this player or their team does.
+     */
+    long fingerprint() {
+        long hash = fingerprint(0, name);
+        for (Monster mon : team)
+            hash = fingerprint(hash, mon.fingerprint());
+        hash = fingerprint(hash, bag);
+        hash = fingerprint(fingerprint(fingerprint(fingerprint(hash, bagSize), money), kills), score);
+        hash = fingerprint(hash, xpShare ? 1 : 2);
+        for (long word : rng.state())
+            hash = fingerprint(hash, word);
+        return hash;
+    }
+
     /**
      * @return toJSON().toString().
      */
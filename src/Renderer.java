@@ -0,0 +1,359 @@
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Paulkia 2020.
+ * Draws the game's text. In TYPEWRITER mode, text is queued and typed out by a scheduler thread one frame (a few
+ * characters) at a time, with pauses and sounds queued in between, so the game thread never waits for an animation.
+ * A line of input skips whatever is still queued (see skip()). INSTANT mode, for piped or non-TTY output, prints
+ * everything at once and ignores pauses. Sounds and actions open files and audio lines, so they always run after lock
+ * is released, never while the game thread could be waiting on it.
+ */
+class Renderer {
+
+    enum Mode {TYPEWRITER, INSTANT}
+
+    // Milliseconds between frames. Each frame writes FRAME / TEXT_TIME characters in one call.
+    static final int FRAME = 30;
+
+    // Kinds of queued segments.
+    private static final int TEXT = 0, RAW = 1, DELAY = 2, SOUND = 3, ACTION = 4;
+
+    /*
+     * Something queued to be drawn or done.
+     * Text is typed out from pos; raw text is printed at once; a delay waits millis from when it is reached;
+     * a sound or action runs task (sounds are dropped when skipping, actions are not).
+     */
+    private static final class Segment {
+        final int kind, millis;
+        final String text;
+        final Runnable task;
+        int pos;
+        long until;
+
+        Segment(int kind, String text, int millis, Runnable task) {
+            this.kind = kind;
+            this.text = text;
+            this.millis = millis;
+            this.task = task;
+        }
+    }
+
+    final Mode mode;
+    // Milliseconds per character when typing.
+    private final int charTime;
+    private final PrintStream out;
+    private final ArrayDeque<Segment> queue = new ArrayDeque<>();
+    // Makes the scheduler thread.
+    private final ThreadFactory threads;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled whenever the queue becomes empty.
+    private final Condition drained = lock.newCondition();
+    // Created on first use, so INSTANT renderers never start a thread.
+    private ScheduledExecutorService scheduler;
+    // Whether a frame is scheduled.
+    private boolean running;
+    // Bumped by skip(), so that a frame scheduled before it (possibly far off, at the end of a pause) is dropped.
+    private int generation;
+    // Sounds and actions taken off the queue but not yet done running.
+    private int tasks;
+
+    /**
+     * @param mode     - TYPEWRITER or INSTANT.
+     * @param charTime - Milliseconds per character when typing, normally TEXT_TIME.
+     * @param out      - Where the text goes, normally System.out.
+     */
+    Renderer(Mode mode, int charTime, PrintStream out) {
+        this(mode, charTime, out, task -> {
+            Thread thread = new Thread(task, "renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param mode     - TYPEWRITER or INSTANT.
+     * @param charTime - Milliseconds per character when typing, normally TEXT_TIME.
+     * @param out      - Where the text goes.
+     * @param threads  - Makes the scheduler thread. A virtual thread parks between frames and during pauses instead of
+     *                 holding a platform thread, which is what lets GameServer type for thousands of sessions.
+     */
+    Renderer(Mode mode, int charTime, PrintStream out, ThreadFactory threads) {
+        this.mode = mode;
+        this.charTime = Math.max(1, charTime);
+        this.out = out;
+        this.threads = threads;
+    }
+
+    /**
+     * Chooses the mode for this run: INSTANT if the system property fakeymon.text is "instant" or if the game is not
+     * attached to a terminal (e.g. its output is piped), TYPEWRITER otherwise.
+     *
+     * @return The Mode.
+     */
+    static Mode defaultMode() {
+        String text = System.getProperty("fakeymon.text");
+        if (text != null)
+            return text.equalsIgnoreCase("instant") ? Mode.INSTANT : Mode.TYPEWRITER;
+        return System.console() == null ? Mode.INSTANT : Mode.TYPEWRITER;
+    }
+
+    /**
+     * Types out text after everything already queued.
+     *
+     * @param text - The text.
+     */
+    void type(String text) {
+        enqueue(new Segment(TEXT, text, 0, null));
+    }
+
+    /**
+     * Prints text all at once, after everything already queued.
+     *
+     * @param text - The text.
+     */
+    void print(String text) {
+        enqueue(new Segment(RAW, text, 0, null));
+    }
+
+    /**
+     * Waits millis milliseconds after everything already queued, before drawing anything queued later.
+     * The caller does not wait. Ignored in INSTANT mode.
+     *
+     * @param millis - Milliseconds.
+     */
+    void pause(int millis) {
+        if (mode == Mode.TYPEWRITER && millis > 0)
+            enqueue(new Segment(DELAY, null, millis, null));
+    }
+
+    /**
+     * Plays a sound once everything already queued has been drawn. Dropped if the animation is skipped first.
+     *
+     * @param sound - Plays the sound.
+     */
+    void sound(Runnable sound) {
+        enqueue(new Segment(SOUND, null, 0, sound));
+    }
+
+    /**
+     * Runs action once everything already queued has been drawn, even if the animation is skipped (e.g. changing
+     * the music).
+     *
+     * @param action - The action.
+     */
+    void then(Runnable action) {
+        enqueue(new Segment(ACTION, null, 0, action));
+    }
+
+    /**
+     * @return Whether anything is still queued.
+     */
+    boolean busy() {
+        lock.lock();
+        try {
+            return !queue.isEmpty() || tasks > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Draws everything still queued at once, dropping pauses and sounds. Called when the user enters a line.
+     * Queued actions are handed to the scheduler thread, after any sound or action it is running already.
+     */
+    void skip() {
+        lock.lock();
+        try {
+            StringBuilder rest = new StringBuilder();
+            List<Runnable> actions = new ArrayList<>();
+            for (Segment segment; (segment = queue.poll()) != null; ) {
+                if (segment.kind == TEXT)
+                    rest.append(segment.text, segment.pos, segment.text.length());
+                else if (segment.kind == RAW)
+                    rest.append(segment.text);
+                else if (segment.kind == ACTION)
+                    actions.add(segment.task);
+            }
+            write(rest);
+            if (!actions.isEmpty()) {
+                tasks++;
+                scheduler.execute(() -> run(() -> actions.forEach(Runnable::run)));
+            }
+            generation++;
+            running = false;
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until everything queued has been drawn, e.g. before the game exits.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void sync() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!queue.isEmpty() || tasks > 0)
+                drained.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the scheduler thread, if any, dropping whatever is still queued. Call sync() first to draw it.
+     */
+    void close() {
+        lock.lock();
+        try {
+            queue.clear();
+            generation++;
+            running = false;
+            tasks = 0;
+            drained.signalAll();
+            if (scheduler != null)
+                scheduler.shutdownNow();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues segment, or in INSTANT mode draws it at once.
+     *
+     * @param segment - The segment.
+     */
+    private void enqueue(Segment segment) {
+        if (mode == Mode.INSTANT && segment.task != null) {
+            segment.task.run();
+            return;
+        }
+        lock.lock();
+        try {
+            if (mode == Mode.INSTANT) {
+                out.print(segment.text);
+                out.flush();
+                return;
+            }
+            queue.add(segment);
+            if (!running) {
+                running = true;
+                if (scheduler == null)
+                    scheduler = Executors.newSingleThreadScheduledExecutor(threads);
+                int current = generation;
+                scheduler.execute(() -> frame(current));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Draws one frame on the scheduler thread: up to FRAME / charTime characters of text and any raw text reached on
+     * the way, stopping early at an unfinished pause or at a sound or action. Then schedules the next frame if anything
+     * is left, and runs the sound or action once lock is released; the next frame waits for it on the same thread.
+     *
+     * @param scheduled - The generation when this frame was scheduled. The frame is dropped if skip() came since.
+     */
+    private void frame(int scheduled) {
+        Runnable task = null;
+        lock.lock();
+        try {
+            if (scheduled != generation)
+                return;
+            StringBuilder chunk = new StringBuilder();
+            int budget = Math.max(1, FRAME / charTime);
+            long wait = FRAME;
+            while (!queue.isEmpty()) {
+                Segment segment = queue.peek();
+                if (segment.kind == TEXT) {
+                    int end = Math.min(segment.text.length(), segment.pos + budget);
+                    chunk.append(segment.text, segment.pos, end);
+                    budget -= end - segment.pos;
+                    segment.pos = end;
+                    if (segment.pos == segment.text.length())
+                        queue.poll();
+                    if (budget == 0)
+                        break;
+                } else if (segment.kind == RAW) {
+                    chunk.append(segment.text);
+                    queue.poll();
+                } else if (segment.kind == DELAY) {
+                    long now = System.currentTimeMillis();
+                    if (segment.until == 0)
+                        segment.until = now + segment.millis;
+                    if (now < segment.until) {
+                        wait = segment.until - now;
+                        break;
+                    }
+                    queue.poll();
+                } else {
+                    queue.poll();
+                    task = segment.task;
+                    tasks++;
+                    wait = 0;
+                    break;
+                }
+            }
+            write(chunk);
+            if (queue.isEmpty()) {
+                running = false;
+                drained.signalAll();
+            } else
+                scheduler.schedule(() -> frame(scheduled), wait, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            running = false;
+            queue.clear();
+            tasks = 0;
+            drained.signalAll();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        if (task != null)
+            run(task);
+    }
+
+    /**
+     * Runs a sound or action taken off the queue, without holding lock, then lets sync() return if nothing is left.
+     *
+     * @param task - The sound or action.
+     */
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            lock.lock();
+            try {
+                if (tasks > 0 && --tasks == 0 && queue.isEmpty())
+                    drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes and clears chunk in one call.
+     *
+     * @param chunk - The text.
+     */
+    private void write(StringBuilder chunk) {
+        if (chunk.length() > 0) {
+            out.print(chunk);
+            out.flush();
+            chunk.setLength(0);
+        }
+    }
+}
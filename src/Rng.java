@@ -0,0 +1,153 @@
+/*
+ * Paulkia 2020.
+ * Random number generator used by the game (xoshiro256**). Unlike java.util.Random it has no shared atomic state,
+ * so each battle or simulation thread can own a stream split from another, and its whole state can be saved with the
+ * Player and restored, so a game can be replayed from a seed. Not thread-safe: split() one per thread instead.
+ */
+class Rng {
+
+    // Size of the state, in longs.
+    static final int STATE_SIZE = 4;
+
+    // Adds entropy to the seeds of Rngs created without one.
+    private static long seedUniquifier = 0x5DEECE66DL;
+
+    // The generator's state. Never all 0.
+    private long s0, s1, s2, s3;
+
+    /**
+     * Creates an Rng with an unpredictable seed.
+     */
+    Rng() {
+        this(nextSeed());
+    }
+
+    /**
+     * Creates an Rng whose numbers are always the same for the same seed.
+     *
+     * @param seed - Any number.
+     */
+    Rng(long seed) {
+        s0 = mix(seed += 0x9E3779B97F4A7C15L);
+        s1 = mix(seed += 0x9E3779B97F4A7C15L);
+        s2 = mix(seed += 0x9E3779B97F4A7C15L);
+        s3 = mix(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Restores an Rng from state(), so it continues where the saved one stopped.
+     *
+     * @param state - STATE_SIZE longs, as returned by state().
+     * @throws IllegalArgumentException if state is not STATE_SIZE longs or is all 0.
+     */
+    Rng(long[] state) {
+        if (state.length != STATE_SIZE || (state[0] | state[1] | state[2] | state[3]) == 0)
+            throw new IllegalArgumentException("Invalid Rng state");
+        s0 = state[0];
+        s1 = state[1];
+        s2 = state[2];
+        s3 = state[3];
+    }
+
+    /**
+     * @return A copy of this generator's state, to be saved and passed to Rng(long[]).
+     */
+    long[] state() {
+        return new long[]{s0, s1, s2, s3};
+    }
+
+    /**
+     * Creates an independent generator seeded from this one, e.g. for another battle or thread. Splitting the same
+     * Rng in the same state always gives the same child.
+     *
+     * @return A new Rng.
+     */
+    Rng split() {
+        return new Rng(nextLong());
+    }
+
+    /**
+     * @return The next random long; all values are equally likely.
+     */
+    long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    /**
+     * @return The next random int; all values are equally likely.
+     */
+    int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * @param bound - The upper bound (exclusive). Must be positive.
+     * @return A random int between 0 and bound - 1, all equally likely.
+     * @throws IllegalArgumentException if bound is not positive.
+     */
+    int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        // Lemire's method: multiply instead of divide, rejecting the few values that would bias the result.
+        long m = (nextLong() >>> 32) * bound;
+        if ((m & 0xFFFFFFFFL) < bound) {
+            long threshold = (1L << 32) % bound;
+            while ((m & 0xFFFFFFFFL) < threshold)
+                m = (nextLong() >>> 32) * bound;
+        }
+        return (int) (m >>> 32);
+    }
+
+    /**
+     * Rolls for something that happens percent percent of the time, such as an attack landing. The same draw as
+     * nextInt(100) < percent, so a game replays the same either way; BattleSolver overrides it to follow both outcomes.
+     *
+     * @param percent - The chance, in percent. At most 0 never happens, 100 or more always does.
+     * @return Whether it happens.
+     */
+    boolean chance(int percent) {
+        return nextInt(100) < percent;
+    }
+
+    /**
+     * @return A random double between 0 (inclusive) and 1 (exclusive).
+     */
+    double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return A random boolean.
+     */
+    boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * SplitMix64's finalizer. Turns consecutive seeds into unrelated states.
+     *
+     * @param z - The value to mix.
+     * @return z, mixed.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return A seed that differs between calls and between runs.
+     */
+    private static synchronized long nextSeed() {
+        seedUniquifier *= 0x106689D45497FDB5L;
+        return seedUniquifier ^ System.nanoTime();
+    }
+}
@@ -0,0 +1,483 @@
+import org.apache.commons.io.FileUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Paulkia 2020.
+ * Binary save files (.sav), an alternative to the JSON ones that is several times smaller and faster to load.
+ * A file is MAGIC, the version that wrote it, a table of every name in the save (the player's, its monsters',
+ * attacks and items), then the Player's fields. Names are written once and referred to by their index in the table,
+ * and numbers are varints, so a small stat takes one byte.
+ * Each field starts with a tag: its number << 3 | its wire type (VARINT or LENGTH, for everything else). A reader
+ * skips the fields it does not know, so a newer version can add fields and still be loaded by an older one. A save
+ * whose VERSION is newer than the reader's, where some field changed meaning, is refused instead.
+ * Run as a program to convert a save between formats, e.g.:
+ *      java SaveCodec data/saves/ash.sav data/saves/ash.json
+ */
+class SaveCodec extends Fakeyverse {
+
+    static final byte[] MAGIC = {'F', 'K', 'S', 'V'};
+    // Bumped when a field changes meaning; a reader then converts fields from older versions.
+    static final int VERSION = 1;
+
+    // Wire types.
+    private static final int VARINT = 0, LENGTH = 2;
+
+    // Player fields.
+    private static final int NAME = 1, BAG_SIZE = 2, MONEY = 3, KILLS = 4, SCORE = 5, XP_SHARE = 6, RNG = 7,
+            BAG = 8, TEAM = 9;
+    // Monster fields.
+    private static final int MON_NAME = 1, MON_ID = 2, MON_XP = 3, STATS = 4, TEMP_STATS = 5, ATTACKS = 6,
+            HOLD_ITEM = 7;
+
+    /**
+     * @param args - input save, output save. The output is JSON if it ends with .json, binary otherwise.
+     * @throws Exception if a save cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: java SaveCodec input.sav|input.json output.sav|output.json");
+            System.exit(1);
+        }
+        Player user = load(new File(args[0]));
+        File out = new File(args[1]);
+        if (out.getName().endsWith(".json")) {
+            try (OutputStream json = new BufferedOutputStream(new FileOutputStream(out))) {
+                user.writeJSON(new JsonWriter(json));
+            }
+        } else FileUtils.writeByteArrayToFile(out, encode(user));
+    }
+
+    /**
+     * Loads a save file in either format. Player.binary tells which one it was.
+     *
+     * @param file - A .sav or .json save.
+     * @return The saved Player.
+     * @throws IOException if file cannot be read or is corrupted.
+     */
+    static Player load(File file) throws IOException {
+        byte[] data = FileUtils.readFileToByteArray(file);
+        if (isBinary(data))
+            return decode(data);
+        Object json = JSONValue.parse(new String(data, StandardCharsets.UTF_8));
+        if (!(json instanceof JSONObject))
+            throw new IOException(file + " is not a save file");
+        return new Player((JSONObject) json);
+    }
+
+    /**
+     * @param data - The contents of a save file.
+     * @return Whether data is a binary save rather than JSON.
+     */
+    static boolean isBinary(byte[] data) {
+        return data.length >= MAGIC.length && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * @param user - The Player being saved.
+     * @return user as a binary save.
+     */
+    static byte[] encode(Player user) {
+        Map<String, Integer> names = new LinkedHashMap<>();
+        Out body = new Out();
+        body.string(NAME, user.name, names);
+        body.field(BAG_SIZE, user.bagSize);
+        body.field(MONEY, user.money);
+        body.field(KILLS, user.kills);
+        body.field(SCORE, user.score);
+        body.field(XP_SHARE, user.xpShare ? 1 : 0);
+        Out rng = new Out();
+        for (long word : user.rng.state())
+            rng.fixed64(word);
+        body.field(RNG, rng);
+        for (String item : user.bag)
+            body.string(BAG, item, names);
+        for (Monster mon : user.team)
+            body.field(TEAM, encode(mon, names));
+
+        Out out = new Out();
+        out.write(MAGIC, 0, MAGIC.length);
+        out.varint(VERSION);
+        out.varint(names.size());
+        for (String name : names.keySet()) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.varint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        body.writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param mon   - A monster on the Player's team.
+     * @param names - The name table so far; names of mon not in it yet are added.
+     * @return mon's fields.
+     */
+    private static Out encode(Monster mon, Map<String, Integer> names) {
+        Out out = new Out();
+        out.string(MON_NAME, mon.name, names);
+        if (mon.ID != null)
+            out.field(MON_ID, mon.ID);
+        if (mon.xp != null)
+            out.field(MON_XP, mon.xp);
+        out.field(STATS, packed(mon.stats));
+        out.field(TEMP_STATS, packed(mon.tempStats));
+        for (String attack : mon.attacks)
+            out.string(ATTACKS, attack, names);
+        if (mon.holdItem != null)
+            out.string(HOLD_ITEM, mon.holdItem, names);
+        return out;
+    }
+
+    /**
+     * @param values - Stats, which may be negative.
+     * @return values as consecutive varints.
+     */
+    private static Out packed(int[] values) {
+        Out out = new Out();
+        for (int value : values)
+            out.varint(zigzag(value));
+        return out;
+    }
+
+    /**
+     * @param data - A binary save, as written by encode(Player).
+     * @return The saved Player, with binary set.
+     * @throws IOException if data is not a binary save, is corrupted or was written by a newer VERSION.
+     */
+    static Player decode(byte[] data) throws IOException {
+        if (!isBinary(data))
+            throw new IOException("Not a binary save");
+        In in = new In(data, MAGIC.length, data.length);
+        // Version 1 is the first, so there is nothing older to convert.
+        long version = in.varint();
+        if (version > VERSION)
+            throw new IOException("Save version " + version + " is newer than this game's (" + VERSION + ")");
+        int count = in.count();
+        if (count > in.left()) // Each name takes at least one byte, its length.
+            throw new IOException("Corrupted save: bad name count " + count);
+        String[] names = new String[count];
+        for (int i = 0; i < names.length; i++) {
+            int length = in.count();
+            names[i] = new String(data, in.take(length), length, StandardCharsets.UTF_8);
+        }
+
+        Player user = new Player();
+        user.binary = true;
+        while (in.more()) {
+            int tag = in.count();
+            switch (tag) {
+                case NAME << 3 | VARINT:
+                    user.name = in.string(names);
+                    break;
+                case BAG_SIZE << 3 | VARINT:
+                    user.bagSize = in.integer();
+                    break;
+                case MONEY << 3 | VARINT:
+                    user.money = in.integer();
+                    break;
+                case KILLS << 3 | VARINT:
+                    user.kills = in.integer();
+                    break;
+                case SCORE << 3 | VARINT:
+                    user.score = in.integer();
+                    break;
+                case XP_SHARE << 3 | VARINT:
+                    user.xpShare = in.integer() != 0;
+                    break;
+                case RNG << 3 | LENGTH:
+                    In rng = in.message();
+                    long[] state = new long[Rng.STATE_SIZE];
+                    for (int i = 0; i < state.length; i++)
+                        state[i] = rng.fixed64();
+                    try {
+                        user.rng = new Rng(state);
+                    } catch (IllegalArgumentException e) { // All zero: the generator would never move.
+                        throw new IOException("Corrupted save: bad rng state", e);
+                    }
+                    break;
+                case BAG << 3 | VARINT:
+                    user.bag.add(in.string(names));
+                    break;
+                case TEAM << 3 | LENGTH:
+                    user.team.add(decode(in.message(), names));
+                    break;
+                default:
+                    in.skip(tag);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * @param in    - A monster's fields.
+     * @param names - The save's name table.
+     * @return The monster.
+     * @throws IOException if the fields are corrupted.
+     */
+    private static Monster decode(In in, String[] names) throws IOException {
+        Monster mon = new Monster((String) null);
+        mon.xp = null;
+        while (in.more()) {
+            int tag = in.count();
+            switch (tag) {
+                case MON_NAME << 3 | VARINT:
+                    mon.name = in.string(names);
+                    break;
+                case MON_ID << 3 | VARINT:
+                    mon.ID = in.integer();
+                    break;
+                case MON_XP << 3 | VARINT:
+                    mon.xp = in.integer();
+                    break;
+                case STATS << 3 | LENGTH:
+                    mon.stats = unpacked(in.message());
+                    break;
+                case TEMP_STATS << 3 | LENGTH:
+                    mon.tempStats = unpacked(in.message());
+                    break;
+                case ATTACKS << 3 | VARINT:
+                    mon.attacks.add(in.string(names));
+                    break;
+                case HOLD_ITEM << 3 | VARINT:
+                    mon.holdItem = in.string(names);
+                    break;
+                default:
+                    in.skip(tag);
+            }
+        }
+        if (mon.name == null)
+            throw new IOException("Corrupted save: monster without a name");
+        return mon;
+    }
+
+    /**
+     * @param in - Consecutive varints, as written by packed(int[]).
+     * @return The first NUM_STATS stats; stats this version does not know are skipped.
+     * @throws IOException if in is corrupted.
+     */
+    private static int[] unpacked(In in) throws IOException {
+        int[] values = new int[NUM_STATS];
+        for (int i = 0; in.more(); i++) {
+            int value = unzigzag(in.varint());
+            if (i < values.length)
+                values[i] = value;
+        }
+        return values;
+    }
+
+    /**
+     * @param value - Any int.
+     * @return value with its sign in the lowest bit, so small negative numbers are small varints too.
+     */
+    private static long zigzag(int value) {
+        return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param value - As returned by zigzag(int).
+     * @return The original int.
+     */
+    private static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    /*
+     * Bytes being written.
+     */
+    private static class Out extends ByteArrayOutputStream {
+
+        /**
+         * @param value - Written in 7 bit groups, lowest first; the high bit of a byte means another follows.
+         */
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        /**
+         * @param value - Written as 8 bytes, lowest first.
+         */
+        void fixed64(long value) {
+            for (int i = 0; i < Long.BYTES; i++)
+                write((int) (value >>> 8 * i));
+        }
+
+        /**
+         * @param field - A field number.
+         * @param value - Its value.
+         */
+        void field(int field, int value) {
+            varint(field << 3 | VARINT);
+            varint(zigzag(value));
+        }
+
+        /**
+         * @param field - A field number.
+         * @param value - Its value, written with its length.
+         */
+        void field(int field, Out value) {
+            varint(field << 3 | LENGTH);
+            varint(value.size());
+            write(value.buf, 0, value.size());
+        }
+
+        /**
+         * @param field - A field number.
+         * @param value - Its value, written as its index in names.
+         * @param names - The name table so far; value is added to it if it is not in it yet.
+         */
+        void string(int field, String value, Map<String, Integer> names) {
+            Integer index = names.get(value);
+            if (index == null)
+                names.put(value, index = names.size());
+            varint(field << 3 | VARINT);
+            varint(index);
+        }
+
+        /**
+         * Same as writeTo(OutputStream), without the IOException a ByteArrayOutputStream never throws.
+         * @param out - Where the bytes written so far are copied.
+         */
+        void writeTo(Out out) {
+            out.write(buf, 0, count);
+        }
+    }
+
+    /*
+     * Bytes being read, from start to end.
+     */
+    private static class In {
+        private final byte[] data;
+        private int position;
+        private final int end;
+
+        In(byte[] data, int start, int end) {
+            this.data = data;
+            this.position = start;
+            this.end = end;
+        }
+
+        /**
+         * @return Whether any bytes are left.
+         */
+        boolean more() {
+            return position < end;
+        }
+
+        /**
+         * @return How many bytes are left.
+         */
+        int left() {
+            return end - position;
+        }
+
+        /**
+         * @param length - A number of bytes.
+         * @return The position of the next length bytes, which are skipped.
+         * @throws IOException if fewer bytes are left.
+         */
+        int take(int length) throws IOException {
+            if (length > end - position)
+                throw new IOException("Corrupted save: truncated");
+            int start = position;
+            position += length;
+            return start;
+        }
+
+        /**
+         * @return The next varint.
+         * @throws IOException if it is truncated or too long.
+         */
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                byte b = data[take(1)];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+            throw new IOException("Corrupted save: varint too long");
+        }
+
+        /**
+         * @return The next varint, which must be a count or an index.
+         * @throws IOException if it is corrupted or not between 0 and Integer.MAX_VALUE.
+         */
+        int count() throws IOException {
+            long value = varint();
+            if (value < 0 || value > Integer.MAX_VALUE)
+                throw new IOException("Corrupted save: bad count " + value);
+            return (int) value;
+        }
+
+        /**
+         * @return The next varint, as written by Out.field(int, int).
+         * @throws IOException if it is corrupted.
+         */
+        int integer() throws IOException {
+            return unzigzag(varint());
+        }
+
+        /**
+         * @return The next 8 bytes, as written by Out.fixed64(long).
+         * @throws IOException if fewer bytes are left.
+         */
+        long fixed64() throws IOException {
+            int start = take(Long.BYTES);
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++)
+                value |= (data[start + i] & 0xFFL) << 8 * i;
+            return value;
+        }
+
+        /**
+         * @param names - The save's name table.
+         * @return The name at the next index.
+         * @throws IOException if the index is not in names.
+         */
+        String string(String[] names) throws IOException {
+            int index = count();
+            if (index >= names.length)
+                throw new IOException("Corrupted save: bad name " + index);
+            return names[index];
+        }
+
+        /**
+         * @return The value of a LENGTH field, to be read on its own.
+         * @throws IOException if it is truncated.
+         */
+        In message() throws IOException {
+            int length = count();
+            int start = take(length);
+            return new In(data, start, start + length);
+        }
+
+        /**
+         * Skips the value of a field this version does not know.
+         * @param tag - The field's tag.
+         * @throws IOException if its wire type is unknown or it is truncated.
+         */
+        void skip(int tag) throws IOException {
+            if ((tag & 7) == VARINT)
+                varint();
+            else if ((tag & 7) == LENGTH)
+                take(count());
+            else throw new IOException("Corrupted save: bad field " + tag);
+        }
+    }
+}
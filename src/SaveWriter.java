@@ -0,0 +1,306 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Paulkia 2020.
+ * Writes save files on its own thread, so the game never waits for the disk.
+ * A Player is only saved if its fingerprint changed since the last save, and saves of the same Player that pile up
+ * before the thread gets to them are merged into the latest one. Each save is written to a temporary file, synced to
+ * the disk, then renamed over the old save, so a crash leaves either the old save or the new one, never half of one.
+ * Players are saved as JSON (name.json) or, if Player.binary, with SaveCodec (name.sav); the file in the other format
+ * is deleted once the new one is written.
+ * The buffers holding the contents are reused, so a save allocates no more memory for a big team than a small one.
+ * A game holds a lock on the save file of its Player, so two games, in one JVM or two, cannot play (and overwrite) the
+ * same save.
+ */
+class SaveWriter {
+
+    // Extensions of the two save formats.
+    static final String JSON = ".json", BINARY = ".sav", JOURNAL = ".fkj";
+
+    private final Path dir;
+    // Save file name -> contents still to be written. Only the latest contents of each file are kept.
+    private final Map<String, Buffer> pending = new LinkedHashMap<>();
+    // Buffers that were written and can be reused.
+    private final Deque<Buffer> free = new ArrayDeque<>();
+    // Save file name -> fingerprint of the Player last queued to it.
+    private final Map<String, Long> saved = new HashMap<>();
+    // Save file name -> lock held on name + ".lock", and the game holding it.
+    private final Map<String, FileLock> locks = new HashMap<>();
+    private final Map<String, Object> owners = new HashMap<>();
+    // Number of files taken from pending that are still being written, and the name of the one being written, or null.
+    private int writing;
+    private String current;
+    // Save file name -> why its last write failed, reported by the next save(Player) of that file.
+    private final Map<String, IOException> failures = new HashMap<>();
+
+    /**
+     * Starts the writer thread. Saves still pending when the program exits are written before it does.
+     * @param dir - Directory of the save files, such as SAVE_DIR.
+     */
+    SaveWriter(File dir) {
+        this.dir = dir.toPath();
+        Thread thread = new Thread(this::run, "saves");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+    }
+
+    /**
+     * @param name - A Player's name.
+     * @return The file the Player is saved to: data/saves/name.sav if it exists, data/saves/name.json otherwise.
+     */
+    File file(String name) {
+        File binary = dir.resolve(name.toLowerCase() + BINARY).toFile();
+        return binary.exists() ? binary : dir.resolve(name.toLowerCase() + JSON).toFile();
+    }
+
+    /**
+     * @param name - A Player's name.
+     * @return The file the Player's battles are journaled in: data/saves/name.fkj. See BattleJournal.
+     */
+    File journal(String name) {
+        return dir.resolve(name.toLowerCase() + JOURNAL).toFile();
+    }
+
+    /**
+     * Locks the save file of name for owner until it unlocks it or the program exits. Does nothing if owner already
+     * holds the lock.
+     * @param name  - A Player's name.
+     * @param owner - The game playing that Player, such as its GameContext.
+     * @return Whether owner now holds the lock, false if another game, in this JVM or another, is playing this save.
+     * @throws IOException if the lock file cannot be created.
+     */
+    synchronized boolean lock(String name, Object owner) throws IOException {
+        String key = name.toLowerCase();
+        if (locks.containsKey(key))
+            return owners.get(key) == owner;
+        Files.createDirectories(dir);
+        FileChannel channel = new RandomAccessFile(dir.resolve(key + ".lock").toFile(), "rw").getChannel();
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            return false;
+        }
+        locks.put(key, lock);
+        owners.put(key, owner);
+        return true;
+    }
+
+    /**
+     * Releases every save file lock held by owner, so another game may play those saves. Waits for their queued
+     * saves to be written first, so the next game to lock one loads its latest contents.
+     * @param owner - A game given to lock(String, Object).
+     */
+    synchronized void unlock(Object owner) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : owners.entrySet())
+            if (entry.getValue() == owner)
+                keys.add(entry.getKey());
+        for (String key : keys)
+            release(key);
+    }
+
+    /**
+     * Releases the lock owner holds on the save file of name, as unlock(Object) does, if it holds it.
+     * @param name  - A Player's name.
+     * @param owner - A game given to lock(String, Object).
+     */
+    synchronized void unlock(String name, Object owner) {
+        String key = name.toLowerCase();
+        if (owners.get(key) == owner)
+            release(key);
+    }
+
+    /**
+     * Waits for the queued saves of key (a lowercase name) to be written, then releases its lock.
+     * @param key - The name.
+     */
+    private void release(String key) {
+        awaitWritten(key);
+        owners.remove(key);
+        try {
+            locks.remove(key).channel().close();
+        } catch (IOException e) {
+            // Closing the channel released the lock anyway.
+        }
+    }
+
+    /**
+     * Waits until no save of key (a lowercase name) is queued or being written.
+     * @param key - The name.
+     */
+    private void awaitWritten(String key) {
+        while (pending.containsKey(key + JSON) || pending.containsKey(key + BINARY) ||
+                (key + JSON).equals(current) || (key + BINARY).equals(current)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queues user to be written to its save file, unless it has not changed since it was last queued.
+     * The file's contents are made here, so user may be changed again as soon as this returns.
+     * @param user - The Player being saved.
+     * @return Whether user had changed and was queued.
+     * @throws IOException if the previous write of user's save failed. It is only reported once, and user is still
+     *                     queued.
+     */
+    boolean save(Player user) throws IOException {
+        String key = user.name.toLowerCase() + (user.binary ? BINARY : JSON);
+        long fingerprint = user.fingerprint();
+        Buffer buffer;
+        synchronized (this) {
+            Long last = saved.get(key);
+            if (last != null && last == fingerprint && !failures.containsKey(key))
+                return false;
+            buffer = free.isEmpty() ? new Buffer() : free.pop();
+        }
+        buffer.reset();
+        if (user.binary)
+            buffer.writeBytes(SaveCodec.encode(user));
+        else user.writeJSON(buffer.json);
+        IOException failed;
+        synchronized (this) {
+            saved.put(key, fingerprint);
+            Buffer replaced = pending.put(key, buffer);
+            if (replaced != null)
+                free.push(replaced);
+            failed = failures.remove(key);
+            notifyAll();
+        }
+        if (failed != null)
+            throw failed;
+        return true;
+    }
+
+    /**
+     * Waits until every queued save has been written.
+     */
+    synchronized void flush() {
+        while (!pending.isEmpty() || writing > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes queued saves, oldest first, until the program exits.
+     */
+    private void run() {
+        while (true) {
+            String key;
+            Buffer contents;
+            synchronized (this) {
+                while (pending.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                key = pending.keySet().iterator().next();
+                contents = pending.remove(key);
+                writing++;
+                current = key;
+            }
+            IOException failed = null;
+            try {
+                write(key, contents);
+            } catch (IOException e) {
+                failed = e;
+            }
+            synchronized (this) {
+                if (failed != null) {
+                    failures.put(key, failed);
+                    saved.remove(key);
+                } else failures.remove(key);
+                free.push(contents);
+                writing--;
+                current = null;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Replaces the save file key with contents: writes them to key + ".tmp", syncs it, and renames it. Then deletes the
+     * save in the other format, if any.
+     * @param key      - The save file name, such as name.json.
+     * @param contents - The Player as JSON or as a binary save.
+     * @throws IOException if the file cannot be written.
+     */
+    private void write(String key, Buffer contents) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(dir);
+        Path target = dir.resolve(key);
+        Path temp = dir.resolve(key + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = contents.bytes();
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        String name = key.substring(0, key.lastIndexOf('.'));
+        Files.deleteIfExists(dir.resolve(name + (key.endsWith(BINARY) ? JSON : BINARY)));
+        Metrics.SAVE_WRITE_TIME.observeNanos(System.nanoTime() - start);
+        Metrics.SAVE_BYTES.observe(contents.size());
+        // Sync the directory too, so the rename itself survives a crash. Not every system allows this.
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The save is written; only the rename might be lost.
+        }
+    }
+
+    /*
+     * The contents of a save file, with a JsonWriter to write them. Reused from one save to the next.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        final JsonWriter json = new JsonWriter(this);
+
+        /**
+         * @return The bytes written since the last reset(), without copying them.
+         */
+        ByteBuffer bytes() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
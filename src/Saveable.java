@@ -1,5 +1,7 @@
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
+
 /*
  * All save-able objects (i.e. objects that can be saved to JSON files), such as Player, Monster, Attack, and Item,
  * implement Saveable.
@@ -11,4 +13,14 @@ interface Saveable {
      * @return an instance of a Saveable object in JSON format as a JSONObject.
      */
     JSONObject toJSON();
+
+    /**
+     * Writes the same JSON as toJSON().toString() to out, field by field. Saveable objects that are saved often
+     * (Player and Monster) override this so that no JSONObject or String is made; the others make toJSON() anyway.
+     * @param out - Where the JSON is written.
+     * @throws IOException if out throws an IOException.
+     */
+    default void writeJSON(JsonWriter out) throws IOException {
+        out.raw(toJSON().toString());
+    }
 }
@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Paulkia 2020.
+ * One thread that reads every player's socket: it waits on a Selector for whichever sockets have bytes, reads them into
+ * one buffer and feeds them to that player's InputQueue. No thread waits on any one socket, however many players are
+ * connected. A socket whose queue is full() is not read again until its game takes a line. Output is written straight
+ * from the player's own (virtual) thread; if the socket cannot take any more, that thread parks until the pump sees the
+ * socket become writable. If the Selector itself fails, every connection is closed and the pump stops.
+ */
+class SocketPump {
+
+    private final Selector selector;
+    // The buffer every socket is read into. Only used by the pump thread.
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+
+    /**
+     * Starts the pump thread.
+     *
+     * @throws IOException if no Selector can be opened.
+     */
+    SocketPump() throws IOException {
+        selector = Selector.open();
+        Thread thread = new Thread(this::run, "socket-pump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hands a socket to the pump: from now on its input is fed to the returned Connection's queue.
+     *
+     * @param channel - The socket, just accepted. It is made non-blocking.
+     * @return The socket's input queue and output stream.
+     * @throws IOException if the socket cannot be registered, e.g. it was closed, or the pump has stopped.
+     */
+    Connection register(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel);
+        try {
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        } catch (ClosedSelectorException e) {
+            throw new IOException("The socket pump has stopped.", e);
+        }
+        selector.wakeup();
+        return connection;
+    }
+
+    /**
+     * Waits for sockets to be readable or writable, until the program exits.
+     *
+     * @throws IllegalStateException if the Selector fails, after closing every connection so that their games end.
+     */
+    private void run() {
+        while (true) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                stop();
+                throw new IllegalStateException("The socket pump stopped: no player's input can be read.", e);
+            }
+            for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                SelectionKey key = it.next();
+                it.remove();
+                Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isWritable())
+                        connection.writable();
+                    if (key.isReadable())
+                        read(key, connection);
+                } catch (CancelledKeyException e) {
+                    // The game closed the socket meanwhile.
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every connection, ending their input and waking their writers, then the Selector, so that no socket is
+     * registered with a pump that no longer runs.
+     */
+    private void stop() {
+        for (SelectionKey key : selector.keys()) {
+            key.cancel();
+            ((Connection) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Stopping either way.
+        }
+    }
+
+    /**
+     * Reads whatever connection has received and feeds it to its queue. Closes the queue when the socket ends.
+     *
+     * @param key        - The connection's key.
+     * @param connection - A readable connection.
+     */
+    private void read(SelectionKey key, Connection connection) {
+        int count;
+        try {
+            buffer.clear();
+            count = connection.channel.read(buffer);
+        } catch (IOException e) {
+            count = -1; // Reset by the player: the same as the end of the input.
+        }
+        if (count < 0) {
+            key.cancel();
+            connection.close();
+        } else if (count > 0) {
+            buffer.flip();
+            connection.input.feed(buffer);
+            connection.pauseIfFull();
+        }
+    }
+
+    /*
+     * A socket handed to the pump: its lines, queued by the pump, and a stream writing to it.
+     */
+    class Connection extends OutputStream {
+
+        // The lines the player typed.
+        final InputQueue input = new InputQueue(this::resume);
+        final SocketChannel channel;
+        private SelectionKey key;
+        private final ReentrantLock lock = new ReentrantLock();
+        // Signalled when the socket becomes writable again, or the connection closes.
+        private final Condition drained = lock.newCondition();
+        // waiting: whether a writer waits for the socket to be writable. paused: whether reading stopped, the queue
+        // being full.
+        private boolean waiting, paused, closed;
+
+        /**
+         * @param channel - The socket.
+         */
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        /**
+         * Writes all of len bytes, parking while the socket cannot take more.
+         *
+         * @throws IOException if the socket is closed.
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(b, off, len);
+            while (bytes.hasRemaining())
+                if (channel.write(bytes) == 0)
+                    awaitWritable();
+        }
+
+        /**
+         * Parks until the pump finds the socket writable.
+         *
+         * @throws IOException if the connection closes first, or the thread is interrupted.
+         */
+        private void awaitWritable() throws IOException {
+            lock.lock();
+            try {
+                waiting = true;
+                interest();
+                while (waiting && !closed)
+                    drained.await();
+                if (closed)
+                    throw new IOException("The connection closed.");
+            } catch (CancelledKeyException e) {
+                throw new IOException("The connection closed.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing.");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Called by the pump when the socket can take more.
+         */
+        private void writable() {
+            lock.lock();
+            try {
+                waiting = false;
+                interest();
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Called by the pump after feeding input: stops reading the socket if the queue is full().
+         */
+        private void pauseIfFull() {
+            lock.lock();
+            try {
+                if (!paused && input.full()) {
+                    paused = true;
+                    interest();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Called after the game takes a line: reads the socket again if it was paused.
+         */
+        private void resume() {
+            lock.lock();
+            try {
+                if (paused && !input.full()) {
+                    paused = false;
+                    interest();
+                }
+            } catch (CancelledKeyException e) {
+                // The socket closed; there is nothing left to read.
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Tells the pump what to wait for on this socket: reading unless paused, writing while a writer waits.
+         * Called while holding lock.
+         */
+        private void interest() {
+            key.interestOps((paused ? 0 : SelectionKey.OP_READ) | (waiting ? SelectionKey.OP_WRITE : 0));
+            selector.wakeup();
+        }
+
+        /**
+         * Ends the input and wakes any writer. The socket itself is closed by whoever accepted it.
+         */
+        @Override
+        public void close() {
+            input.close();
+            lock.lock();
+            try {
+                closed = true;
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import javax.sound.sampled.*;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Paulkia 2020.
+ * All sound effects, decoded once into memory (as Pcm.FORMAT) and played on a few lines that stay open for the
+ * whole game, so playing a sound reads no file and opens no line. Up to VOICES sounds overlap; a further sound cuts
+ * off the one that started first. When there is no audio device (or -Dfakeymon.sound=off), the bank is silent and
+ * play(String) does nothing.
+ */
+class SoundBank {
+
+    // Number of sounds that can play at once.
+    static final int VOICES = 4;
+    // Bytes written to a line at a time; a cut-off sound stops within about this much audio (~20 ms).
+    private static final int CHUNK = 4096;
+
+    // A bank that plays nothing.
+    static final SoundBank SILENT = new SoundBank(new HashMap<>(), new Voice[0]);
+
+    // Sound name (file name without .wav) -> frames.
+    private final Map<String, byte[]> sounds;
+    private final Voice[] voices;
+
+    private SoundBank(Map<String, byte[]> sounds, Voice[] voices) {
+        this.sounds = sounds;
+        this.voices = voices;
+    }
+
+    /**
+     * Decodes every track of the audio packs in dir (see AudioPack) and every .wav file in dir, and opens VOICES
+     * lines to play them on. A sound in a pack is used instead of a .wav file of the same name. Files that cannot be
+     * decoded are reported and left out.
+     *
+     * @param dir - The directory of sound effects, normally SFX_DIR.
+     * @return The bank, or SILENT if sound is off or no line can be opened.
+     */
+    static SoundBank load(File dir) {
+        if ("off".equalsIgnoreCase(System.getProperty("fakeymon.sound")) ||
+                !AudioSystem.isLineSupported(new DataLine.Info(SourceDataLine.class, Pcm.FORMAT)))
+            return SILENT;
+        Voice[] voices = new Voice[VOICES];
+        try {
+            for (int i = 0; i < voices.length; i++)
+                voices[i] = new Voice(i);
+        } catch (LineUnavailableException e) {
+            for (Voice voice : voices)
+                if (voice != null)
+                    voice.close();
+            return SILENT;
+        }
+        Map<String, byte[]> sounds = new HashMap<>();
+        for (AudioPack pack : AudioPack.openAll(dir))
+            for (String name : pack.names()) {
+                long start = System.nanoTime();
+                try (AudioInputStream in = Pcm.convert(pack.stream(name))) {
+                    sounds.putIfAbsent(name, in.readAllBytes());
+                    Metrics.SOUND_LOAD_TIME.observeNanos(System.nanoTime() - start);
+                } catch (Exception e) {
+                    System.err.println("Could not load sound " + name + " from " + pack.file + ": " + e);
+                }
+            }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".wav"));
+        if (files != null)
+            for (File file : files) {
+                String name = file.getName().substring(0, file.getName().length() - 4);
+                if (sounds.containsKey(name))
+                    continue;
+                long start = System.nanoTime();
+                try {
+                    sounds.put(name, Pcm.decode(file));
+                    Metrics.SOUND_LOAD_TIME.observeNanos(System.nanoTime() - start);
+                } catch (Exception e) {
+                    System.err.println("Could not load sound " + file + ": " + e);
+                }
+            }
+        return new SoundBank(sounds, voices);
+    }
+
+    /**
+     * Starts playing a sound and returns at once. If all voices are busy, the sound that started first is cut off.
+     *
+     * @param name - The name of the sound (file name without .wav). Unknown names are ignored.
+     */
+    void play(String name) {
+        byte[] sound = sounds.get(name);
+        if (sound == null || voices.length == 0)
+            return;
+        Voice chosen = voices[0];
+        for (Voice voice : voices) {
+            if (!voice.busy()) {
+                chosen = voice;
+                break;
+            }
+            if (voice.startedAt < chosen.startedAt)
+                chosen = voice;
+        }
+        chosen.play(sound);
+    }
+
+    /**
+     * @return Whether this bank plays nothing.
+     */
+    boolean silent() {
+        return voices.length == 0;
+    }
+
+    /**
+     * @param name - The name of a sound.
+     * @return Whether the sound was loaded.
+     */
+    boolean has(String name) {
+        return sounds.containsKey(name);
+    }
+
+    /*
+     * One open line and the daemon thread feeding it, playing one sound at a time.
+     */
+    private static final class Voice implements Runnable {
+        private final SourceDataLine line;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition queued = lock.newCondition();
+        // The sound to play next, or null. Written under lock, but read by busy() without it.
+        private volatile byte[] next;
+        // Bumped by every play(byte[]), so that the sound being played stops.
+        private volatile int generation;
+        private volatile boolean playing;
+        // When the current sound started, from System.nanoTime().
+        volatile long startedAt;
+
+        Voice(int index) throws LineUnavailableException {
+            line = AudioSystem.getSourceDataLine(Pcm.FORMAT);
+            line.open(Pcm.FORMAT, CHUNK * 4);
+            line.start();
+            Thread thread = new Thread(this, "sfx-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        boolean busy() {
+            return playing || next != null;
+        }
+
+        void play(byte[] sound) {
+            lock.lock();
+            try {
+                next = sound;
+                startedAt = System.nanoTime();
+                generation++;
+                queued.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void run() {
+            while (true) {
+                byte[] sound;
+                int current;
+                lock.lock();
+                try {
+                    while (next == null)
+                        queued.awaitUninterruptibly();
+                    sound = next;
+                    next = null;
+                    current = generation;
+                    playing = true;
+                } finally {
+                    lock.unlock();
+                }
+                for (int pos = 0; pos < sound.length; pos += CHUNK) {
+                    if (generation != current) {
+                        line.flush();
+                        break;
+                    }
+                    line.write(sound, pos, Math.min(CHUNK, sound.length - pos));
+                }
+                playing = false;
+            }
+        }
+
+        void close() {
+            line.close();
+        }
+    }
+}
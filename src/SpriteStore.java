@@ -0,0 +1,167 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Paulkia 2020.
+ * The ascii art of every species, kept out of the heap until it is shown. The sprites live in one text file
+ * (DATA_DIR/sprites.txt), where each one starts after a line
+ *      #sprite ID name
+ * and ends before the next such line (the newline before it is not part of the sprite). The file is memory-mapped
+ * and only scanned for these lines when it is opened; a sprite is decoded into a String the first time it is shown,
+ * and the last CACHED decoded sprites are kept.
+ */
+class SpriteStore {
+
+    // Number of decoded sprites kept.
+    static final int CACHED = 8;
+    // Start of the line before each sprite.
+    static final String HEADER = "#sprite ";
+
+    // A store with no sprites, if the file is missing.
+    static final SpriteStore EMPTY = new SpriteStore(ByteBuffer.allocate(0), new int[0], new int[0], new int[0]);
+
+    private final ByteBuffer file;
+    // For each sprite, sorted by ID: its ID, and where it starts and ends in file.
+    private final int[] ids, starts, ends;
+    // Decoded sprites by ID, least recently shown first.
+    private final Map<Integer, String> cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHED;
+        }
+    };
+
+    private SpriteStore(ByteBuffer file, int[] ids, int[] starts, int[] ends) {
+        this.file = file;
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Maps file and finds where each sprite is.
+     *
+     * @param file - A sprite file, such as DATA_DIR/sprites.txt.
+     * @return The store, or EMPTY (after saying why) if file cannot be read.
+     */
+    static SpriteStore open(File file) {
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            System.err.println("No sprites: " + e);
+            return EMPTY;
+        }
+
+        byte[] header = HEADER.getBytes(StandardCharsets.US_ASCII);
+        int count = 0, limit = bytes.limit();
+        int[] ids = new int[16], starts = new int[16], ends = new int[16];
+        for (int line = 0; line < limit; line = next(bytes, line) + 1) {
+            if (!startsWith(bytes, line, header))
+                continue;
+            int end = next(bytes, line);
+            if (count > 0)
+                ends[count - 1] = line > 0 && bytes.get(line - 1) == '\n' ? line - 1 : line;
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ids[count] = parseId(bytes, line + header.length, end);
+            starts[count] = Math.min(end + 1, limit);
+            count++;
+        }
+        if (count > 0)
+            ends[count - 1] = limit > 0 && bytes.get(limit - 1) == '\n' ? limit - 1 : limit;
+        for (int i = 0; i < count; i++)
+            ends[i] = Math.max(ends[i], starts[i]);
+
+        // Sort the sprites by ID, so get(Integer) can search them.
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++)
+            order[i] = i;
+        int[] byId = ids;
+        Arrays.sort(order, (a, b) -> Integer.compare(byId[a], byId[b]));
+        int[] sortedIds = new int[count], sortedStarts = new int[count], sortedEnds = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedIds[i] = ids[order[i]];
+            sortedStarts[i] = starts[order[i]];
+            sortedEnds[i] = ends[order[i]];
+        }
+        return new SpriteStore(bytes, sortedIds, sortedStarts, sortedEnds);
+    }
+
+    /**
+     * @param bytes - The sprite file.
+     * @param from  - An index in bytes.
+     * @return The index of the next '\n' at or after from, or bytes.limit() if there is none.
+     */
+    private static int next(ByteBuffer bytes, int from) {
+        int limit = bytes.limit();
+        while (from < limit && bytes.get(from) != '\n')
+            from++;
+        return from;
+    }
+
+    /**
+     * @param bytes  - The sprite file.
+     * @param at     - An index in bytes.
+     * @param prefix - Some bytes.
+     * @return Whether the bytes at index at are prefix.
+     */
+    private static boolean startsWith(ByteBuffer bytes, int at, byte[] prefix) {
+        if (at + prefix.length > bytes.limit())
+            return false;
+        for (int i = 0; i < prefix.length; i++)
+            if (bytes.get(at + i) != prefix[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * @param bytes - The sprite file.
+     * @param from  - Where the ID starts, after HEADER.
+     * @param end   - The end of the line.
+     * @return The ID, or -1 if there is no number there.
+     */
+    private static int parseId(ByteBuffer bytes, int from, int end) {
+        int id = 0, digits = 0;
+        for (int i = from; i < end && '0' <= bytes.get(i) && bytes.get(i) <= '9'; i++, digits++)
+            id = id * 10 + bytes.get(i) - '0';
+        return digits == 0 ? -1 : id;
+    }
+
+    /**
+     * @return How many sprites the store has.
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param id - A species' ID, or null.
+     * @return The sprite of that species, decoded now unless it was shown recently, or null if it has none.
+     */
+    synchronized String get(Integer id) {
+        if (id == null)
+            return null;
+        String sprite = cache.get(id);
+        if (sprite != null)
+            return sprite;
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0)
+            return null;
+        byte[] bytes = new byte[ends[index] - starts[index]];
+        file.get(starts[index], bytes);
+        sprite = new String(bytes, StandardCharsets.UTF_8);
+        cache.put(id, sprite);
+        return sprite;
+    }
+}